@@ -0,0 +1,96 @@
+/*
+ * Copyright 2023 juanmuscaria
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.juanmuscaria.microcord.processor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/** Naming rules of discord application commands and microcord custom id patterns. */
+final class CommandRules {
+  private static final Pattern SLASH_NAME =
+      Pattern.compile(
+          "^[-_\\p{L}\\p{N}\\p{sc=Deva}\\p{sc=Thai}]{1,32}$", Pattern.UNICODE_CHARACTER_CLASS);
+  private static final int MAX_NAME_LENGTH = 32;
+  private static final int MAX_CUSTOM_ID_LENGTH = 100;
+
+  private CommandRules() {
+    // Sealed class
+  }
+
+  /**
+   * Checks a slash command, sub-command, group or option name. Names must be lowercase if the
+   * letters have a lowercase variant.
+   *
+   * @param name the name.
+   * @return whether the name is valid.
+   */
+  static boolean isValidSlashName(String name) {
+    return SLASH_NAME.matcher(name).matches() && name.equals(name.toLowerCase(Locale.ROOT));
+  }
+
+  /**
+   * Checks a context menu command name, which may contain spaces and uppercase letters.
+   *
+   * @param name the name.
+   * @return whether the name is valid.
+   */
+  static boolean isValidContextName(String name) {
+    return !name.trim().isEmpty() && name.length() <= MAX_NAME_LENGTH;
+  }
+
+  /**
+   * Parses the variables of a custom id pattern, following the same rules as the runtime router.
+   *
+   * @param pattern the custom id pattern.
+   * @return the names of the pattern variables, in the order they appear.
+   * @throws IllegalArgumentException if the pattern is malformed.
+   */
+  static List<String> customIdVariables(String pattern) {
+    List<String> variables = new ArrayList<>();
+    int literals = 0;
+    for (int i = 0; i < pattern.length(); i++) {
+      char c = pattern.charAt(i);
+      if (c == '{') {
+        int end = pattern.indexOf('}', i);
+        if (end < 0) {
+          throw new IllegalArgumentException("Unclosed variable in custom id pattern " + pattern);
+        }
+        String name = pattern.substring(i + 1, end);
+        if (name.isEmpty() || variables.contains(name)) {
+          throw new IllegalArgumentException(
+              "Empty or duplicated variable in custom id pattern " + pattern);
+        }
+        if (end + 1 < pattern.length() && pattern.charAt(end + 1) == '{') {
+          throw new IllegalArgumentException(
+              "Variables must be separated by literal text in custom id pattern " + pattern);
+        }
+        variables.add(name);
+        i = end;
+      } else if (c == '}') {
+        throw new IllegalArgumentException("Unopened variable in custom id pattern " + pattern);
+      } else {
+        literals++;
+      }
+    }
+    if (literals + variables.size() > MAX_CUSTOM_ID_LENGTH) {
+      throw new IllegalArgumentException(
+          "Custom id pattern " + pattern + " cannot match ids of at most 100 characters");
+    }
+    return variables;
+  }
+}
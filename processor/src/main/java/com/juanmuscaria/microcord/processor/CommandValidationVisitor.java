@@ -0,0 +1,299 @@
+/*
+ * Copyright 2023 juanmuscaria
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.juanmuscaria.microcord.processor;
+
+import io.micronaut.core.annotation.NonNull;
+import io.micronaut.inject.ast.ClassElement;
+import io.micronaut.inject.ast.Element;
+import io.micronaut.inject.ast.ElementQuery;
+import io.micronaut.inject.ast.MethodElement;
+import io.micronaut.inject.ast.ParameterElement;
+import io.micronaut.inject.visitor.TypeElementVisitor;
+import io.micronaut.inject.visitor.VisitorContext;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Validates the usage of the microcord annotations at compile time, so invalid commands and
+ * component handlers fail the build instead of the application startup. It runs next to the
+ * Micronaut bean processing, which already generates the reflection free method invokers used at
+ * runtime.
+ *
+ * <p>Checked rules:
+ *
+ * <ul>
+ *   <li>Command, sub-command, group and option names follow the discord naming rules.
+ *   <li>Commands do not mix a default executor with sub-commands, and sub-commands and options are
+ *       not duplicated.
+ *   <li>Option parameters have a supported type, other parameters are the interaction event.
+ *   <li>Autocomplete handlers refer to an option with autocomplete enabled.
+ *   <li>Custom id patterns are well-formed and handler parameters bind to their variables.
+ *   <li>Executors and handlers are public member methods.
+ * </ul>
+ */
+public class CommandValidationVisitor implements TypeElementVisitor<Object, Object> {
+  private static final String ANNOTATIONS = "com.juanmuscaria.microcord.annotations.";
+  private static final String SLASH_COMMAND = ANNOTATIONS + "SlashCommand";
+  private static final String ON_COMMAND = SLASH_COMMAND + "$OnCommand";
+  private static final String ON_AUTOCOMPLETE = SLASH_COMMAND + "$OnAutocomplete";
+  private static final String OPTION = SLASH_COMMAND + "$Option";
+  private static final String USER_COMMAND = ANNOTATIONS + "UserCommand";
+  private static final String MESSAGE_COMMAND = ANNOTATIONS + "MessageCommand";
+  private static final List<String> COMPONENT_HANDLERS =
+      Arrays.asList(ANNOTATIONS + "OnButton", ANNOTATIONS + "OnSelect", ANNOTATIONS + "OnModal");
+
+  private static final String JDA = "net.dv8tion.jda.api.";
+  private static final String SLASH_EVENT =
+      JDA + "events.interaction.command.SlashCommandInteractionEvent";
+  private static final String AUTOCOMPLETE_EVENT =
+      JDA + "events.interaction.command.CommandAutoCompleteInteractionEvent";
+  private static final String AUTOCOMPLETE_QUERY = JDA + "interactions.AutoCompleteQuery";
+  private static final String INTERACTION_EVENT =
+      JDA + "events.interaction.GenericInteractionCreateEvent";
+  private static final String COMMAND_CHOICES = "com.juanmuscaria.microcord.slash.CommandChoices";
+  // Same order and types as the runtime option mapping
+  private static final List<String> OPTION_TYPES =
+      Arrays.asList(
+          String.class.getName(),
+          Long.class.getName(),
+          Boolean.class.getName(),
+          Double.class.getName(),
+          JDA + "entities.User",
+          JDA + "entities.Member",
+          JDA + "entities.channel.unions.GuildChannelUnion",
+          JDA + "entities.Role",
+          JDA + "entities.IMentionable",
+          JDA + "entities.Message$Attachment");
+  private static final List<String> OPTION_PRIMITIVES = Arrays.asList("long", "boolean", "double");
+  private static final List<String> VARIABLE_TYPES =
+      Arrays.asList(
+          String.class.getName(),
+          Long.class.getName(),
+          Integer.class.getName(),
+          Double.class.getName(),
+          Boolean.class.getName(),
+          "long",
+          "int",
+          "double",
+          "boolean");
+
+  @NonNull @Override
+  public Set<String> getSupportedAnnotationNames() {
+    return Collections.singleton(ANNOTATIONS + "*");
+  }
+
+  @NonNull @Override
+  public VisitorKind getVisitorKind() {
+    return VisitorKind.ISOLATING;
+  }
+
+  @Override
+  public void visitClass(ClassElement element, VisitorContext context) {
+    if (element.hasDeclaredAnnotation(SLASH_COMMAND)) {
+      validateSlashCommand(element, context);
+    }
+    for (MethodElement method : element.getEnclosedElements(ElementQuery.ALL_METHODS)) {
+      if (method.hasDeclaredAnnotation(USER_COMMAND)) {
+        validateContextCommand(
+            method,
+            USER_COMMAND,
+            context,
+            JDA + "events.interaction.command.UserContextInteractionEvent",
+            JDA + "entities.User",
+            JDA + "entities.Member");
+      }
+      if (method.hasDeclaredAnnotation(MESSAGE_COMMAND)) {
+        validateContextCommand(
+            method,
+            MESSAGE_COMMAND,
+            context,
+            JDA + "events.interaction.command.MessageContextInteractionEvent",
+            JDA + "entities.Message");
+      }
+      for (String handler : COMPONENT_HANDLERS) {
+        if (method.hasDeclaredAnnotation(handler)) {
+          validateComponentHandler(method, handler, context);
+        }
+      }
+    }
+  }
+
+  private void validateSlashCommand(ClassElement element, VisitorContext context) {
+    String name = element.stringValue(SLASH_COMMAND).orElse("");
+    if (!CommandRules.isValidSlashName(name)) {
+      context.fail("Invalid slash command name '" + name + "'", element);
+    }
+
+    MethodElement defaultExecutor = null;
+    Set<String> subCommands = new HashSet<>();
+    // Group, sub-command and option names joined by spaces, the same rules disallow spaces in them
+    Set<String> autocompleteOptions = new HashSet<>();
+    for (MethodElement method : element.getEnclosedElements(ElementQuery.ALL_METHODS)) {
+      if (!method.hasDeclaredAnnotation(ON_COMMAND)) {
+        continue;
+      }
+      requireMemberMethod(method, context);
+      String subCommand = method.stringValue(ON_COMMAND).orElse("");
+      String group = method.stringValue(ON_COMMAND, "group").orElse("");
+      if (subCommand.isEmpty()) {
+        if (!group.isEmpty()) {
+          context.fail("A command group requires a sub-command name", method);
+        } else if (defaultExecutor != null) {
+          context.fail("Command " + name + " already has a default executor", method);
+        }
+        defaultExecutor = method;
+      } else {
+        requireSlashName(subCommand, "sub-command", method, context);
+        if (!group.isEmpty()) {
+          requireSlashName(group, "command group", method, context);
+        }
+        String fullName = group.isEmpty() ? subCommand : group + " " + subCommand;
+        if (!subCommands.add(fullName)) {
+          context.fail("Sub-command " + fullName + " is duplicated", method);
+        }
+      }
+
+      Set<String> options = new HashSet<>();
+      for (ParameterElement parameter : method.getParameters()) {
+        if (parameter.hasAnnotation(OPTION)) {
+          String option = parameter.stringValue(OPTION).orElse("");
+          requireSlashName(option, "option", parameter, context);
+          if (!options.add(option)) {
+            context.fail("Option " + option + " is duplicated", parameter);
+          }
+          if (!isOptionType(parameter.getGenericType())) {
+            context.fail("Unsupported option type " + parameter.getType().getName(), parameter);
+          }
+          if (parameter.booleanValue(OPTION, "autocomplete").orElse(false)
+              || parameter.stringValues(OPTION, "suggestions").length > 0) {
+            autocompleteOptions.add(group + " " + subCommand + " " + option);
+          }
+        } else if (!parameter.getType().isAssignable(SLASH_EVENT)) {
+          context.fail(
+              "Unknown argument " + parameter.getName() + ", it must be an option or the event",
+              parameter);
+        }
+      }
+    }
+    if (defaultExecutor != null && !subCommands.isEmpty()) {
+      context.fail("Cannot register a default executor in a command with sub-commands", element);
+    }
+
+    for (MethodElement method : element.getEnclosedElements(ElementQuery.ALL_METHODS)) {
+      if (method.hasDeclaredAnnotation(ON_AUTOCOMPLETE)) {
+        requireMemberMethod(method, context);
+        String option = method.stringValue(ON_AUTOCOMPLETE).orElse("");
+        String key =
+            method.stringValue(ON_AUTOCOMPLETE, "group").orElse("")
+                + " "
+                + method.stringValue(ON_AUTOCOMPLETE, "subCommand").orElse("")
+                + " "
+                + option;
+        if (!autocompleteOptions.contains(key)) {
+          context.fail("Option " + option + " does not exist or has no autocomplete", method);
+        }
+        for (ParameterElement parameter : method.getParameters()) {
+          if (!parameter.hasAnnotation(OPTION)
+              && !parameter.getType().isAssignable(AUTOCOMPLETE_EVENT)
+              && !parameter.getType().isAssignable(AUTOCOMPLETE_QUERY)) {
+            context.fail(
+                "Unknown argument " + parameter.getName() + ", it must be an option or the event",
+                parameter);
+          }
+        }
+      }
+    }
+  }
+
+  private void validateContextCommand(
+      MethodElement method,
+      String annotation,
+      VisitorContext context,
+      String event,
+      String... targets) {
+    requireMemberMethod(method, context);
+    String name = method.stringValue(annotation).orElse("");
+    if (!CommandRules.isValidContextName(name)) {
+      context.fail("Invalid context menu command name '" + name + "'", method);
+    }
+    for (ParameterElement parameter : method.getParameters()) {
+      ClassElement type = parameter.getType();
+      if (!type.isAssignable(event) && !Arrays.asList(targets).contains(type.getName())) {
+        context.fail(
+            "Unknown argument " + parameter.getName() + ", it must be the target or the event",
+            parameter);
+      }
+    }
+  }
+
+  private void validateComponentHandler(
+      MethodElement method, String annotation, VisitorContext context) {
+    requireMemberMethod(method, context);
+    List<String> variables;
+    try {
+      variables = CommandRules.customIdVariables(method.stringValue(annotation).orElse(""));
+    } catch (IllegalArgumentException e) {
+      context.fail(e.getMessage(), method);
+      return;
+    }
+    for (ParameterElement parameter : method.getParameters()) {
+      ClassElement type = parameter.getType();
+      if (variables.contains(parameter.getName())) {
+        if (!type.isEnum() && !VARIABLE_TYPES.contains(type.getName())) {
+          context.fail("Unsupported custom id variable type " + type.getName(), parameter);
+        }
+      } else if (!type.isAssignable(INTERACTION_EVENT)) {
+        context.fail(
+            "Unknown argument " + parameter.getName() + ", it must be a custom id variable",
+            parameter);
+      }
+    }
+  }
+
+  private static boolean isOptionType(ClassElement type) {
+    if (type.isOptional()) {
+      type = type.getFirstTypeArgument().orElse(type);
+    }
+    if (type.isPrimitive()) {
+      return !type.isArray() && OPTION_PRIMITIVES.contains(type.getName());
+    }
+    if (type.isEnum()) {
+      return type.isAssignable(COMMAND_CHOICES);
+    }
+    for (String optionType : OPTION_TYPES) {
+      if (type.isAssignable(optionType)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static void requireSlashName(
+      String name, String kind, Element element, VisitorContext context) {
+    if (!CommandRules.isValidSlashName(name)) {
+      context.fail("Invalid " + kind + " name '" + name + "'", element);
+    }
+  }
+
+  private static void requireMemberMethod(MethodElement method, VisitorContext context) {
+    if (!method.isPublic() || method.isStatic()) {
+      context.fail("Method " + method.getName() + " must be a public member method", method);
+    }
+  }
+}
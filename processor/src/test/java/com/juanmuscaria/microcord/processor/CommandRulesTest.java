@@ -0,0 +1,55 @@
+/*
+ * Copyright 2023 juanmuscaria
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.juanmuscaria.microcord.processor;
+
+import java.util.Arrays;
+import java.util.Collections;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class CommandRulesTest {
+
+  @Test
+  void testSlashNames() {
+    Assertions.assertTrue(CommandRules.isValidSlashName("ping"));
+    Assertions.assertTrue(CommandRules.isValidSlashName("set-role_2"));
+    Assertions.assertTrue(CommandRules.isValidSlashName("a\u00e7\u00e3o"));
+    Assertions.assertFalse(CommandRules.isValidSlashName("Ping"));
+    Assertions.assertFalse(CommandRules.isValidSlashName("two words"));
+    Assertions.assertFalse(CommandRules.isValidSlashName(""));
+    Assertions.assertFalse(CommandRules.isValidSlashName("a23456789012345678901234567890123"));
+  }
+
+  @Test
+  void testContextNames() {
+    Assertions.assertTrue(CommandRules.isValidContextName("Ban User"));
+    Assertions.assertFalse(CommandRules.isValidContextName(" "));
+  }
+
+  @Test
+  void testCustomIdVariables() {
+    Assertions.assertEquals(
+        Arrays.asList("pollId", "choice"),
+        CommandRules.customIdVariables("vote:{pollId}:{choice}"));
+    Assertions.assertEquals(Collections.emptyList(), CommandRules.customIdVariables("close"));
+    Assertions.assertThrows(
+        IllegalArgumentException.class, () -> CommandRules.customIdVariables("a:{x}{y}"));
+    Assertions.assertThrows(
+        IllegalArgumentException.class, () -> CommandRules.customIdVariables("a:{x"));
+    Assertions.assertThrows(
+        IllegalArgumentException.class, () -> CommandRules.customIdVariables("a:}"));
+  }
+}
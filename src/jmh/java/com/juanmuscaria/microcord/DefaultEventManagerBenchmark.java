@@ -0,0 +1,170 @@
+/*
+ * Copyright 2023 juanmuscaria
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.juanmuscaria.microcord;
+
+import com.juanmuscaria.microcord.metrics.MicrocordMetrics;
+import com.juanmuscaria.microcord.scope.DiscordContext;
+import com.juanmuscaria.microcord.scope.DiscordContextData;
+import com.juanmuscaria.microcord.scope.DiscordContextTerminatedEvent;
+import io.micronaut.context.ApplicationContext;
+import io.micronaut.context.event.ApplicationEventListener;
+import io.micronaut.core.annotation.NonNull;
+import io.micronaut.core.annotation.Nullable;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import net.dv8tion.jda.api.JDA;
+import net.dv8tion.jda.api.entities.Message;
+import net.dv8tion.jda.api.events.GatewayPingEvent;
+import net.dv8tion.jda.api.events.GenericEvent;
+import net.dv8tion.jda.api.events.StatusChangeEvent;
+import net.dv8tion.jda.api.events.message.MessageReceivedEvent;
+import net.dv8tion.jda.api.hooks.InterfacedEventManager;
+import net.dv8tion.jda.api.hooks.ListenerAdapter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Throughput of {@link DefaultEventManager#handle} in the gateway thread, for an event with only a
+ * Micronaut listener, an event with Micronaut and JDA listeners and an event nobody listens to.
+ * Run with the gc profiler to get the allocation rate.
+ *
+ * <p>{@code handleIndexed} and {@code handleBaseline} dispatch to the listeners of a started
+ * application, without connecting. The baseline dispatches like the event manager did before the
+ * listener tables: the publisher resolves the listeners of every event, every JDA listener gets
+ * every event and the context is built and torn down for each of them.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DefaultEventManagerBenchmark {
+  private static final MicrocordMetrics NO_METRICS =
+      new MicrocordMetrics() {
+        @Override
+        public boolean isEnabled() {
+          return false;
+        }
+
+        @NonNull @Override
+        public CommandTimer commandTimer(
+            @NonNull String command, @Nullable String group, @Nullable String subCommand) {
+          return (shardId, outcome, nanos) -> {};
+        }
+
+        @Override
+        public void unknownCommand(int shardId) {}
+
+        @NonNull @Override
+        public EventTimer eventTimer(@NonNull Class<?> eventType) {
+          throw new UnsupportedOperationException();
+        }
+      };
+
+  @Param({"ping", "message", "unlistened"})
+  String eventType;
+
+  private DefaultEventManager eventManager;
+  private GenericEvent event;
+  private Blackhole blackhole;
+  private ApplicationContext context;
+  private DefaultEventManager indexedEventManager;
+  private InterfacedEventManager baselineEventManager;
+
+  @Setup(Level.Trial)
+  public void setup(Blackhole blackhole) {
+    this.blackhole = blackhole;
+    var jda = Synthetic.jda();
+    ApplicationEventListener<?>[] applicationListeners = {
+      (ApplicationEventListener<GenericEvent>) blackhole::consume
+    };
+    var listenerIndex =
+        new EventListenerIndex(null) {
+          @NonNull @Override
+          ApplicationEventListener<?>[] listenersOf(@NonNull Class<?> type) {
+            return type == StatusChangeEvent.class ? NO_LISTENERS : applicationListeners;
+          }
+        };
+    var listener =
+        new ListenerAdapter() {
+          @Override
+          public void onMessageReceived(@NonNull MessageReceivedEvent event) {
+            DefaultEventManagerBenchmark.this.blackhole.consume(event);
+          }
+        };
+    eventManager =
+        new DefaultEventManager(event -> {}, listenerIndex, null, NO_METRICS, null, null, 0);
+    eventManager.register(listener);
+
+    context = ApplicationContext.run(Collections.singletonMap("discord.token", "benchmark"));
+    indexedEventManager =
+        new DefaultEventManager(
+            context, new EventListenerIndex(context), null, NO_METRICS, null, null, 0);
+    indexedEventManager.register(listener);
+    baselineEventManager = new InterfacedEventManager();
+    baselineEventManager.register(listener);
+
+    event =
+        switch (eventType) {
+          case "ping" -> new GatewayPingEvent(jda, 42);
+          case "message" -> new MessageReceivedEvent(
+              jda, 0, Synthetic.proxy(Message.class, Collections.emptyMap()));
+          default -> new StatusChangeEvent(
+              jda, JDA.Status.CONNECTED, JDA.Status.LOADING_SUBSYSTEMS);
+        };
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    context.close();
+  }
+
+  @Benchmark
+  public void handle() {
+    eventManager.handle(event);
+  }
+
+  @Benchmark
+  public void handleIndexed() {
+    indexedEventManager.handle(event);
+  }
+
+  @Benchmark
+  public void handleBaseline() {
+    var ctx = new DiscordContextData(null, null, null, event.getJDA(), 0);
+    DiscordContext.set(ctx);
+    try {
+      context.publishEvent(event);
+      baselineEventManager.handle(event);
+    } finally {
+      context.publishEvent(new DiscordContextTerminatedEvent(ctx));
+      DiscordContext.set(null);
+    }
+  }
+}
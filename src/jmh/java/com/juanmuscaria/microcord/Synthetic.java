@@ -0,0 +1,91 @@
+/*
+ * Copyright 2023 juanmuscaria
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.juanmuscaria.microcord;
+
+import java.lang.reflect.Proxy;
+import java.util.Collections;
+import java.util.Map;
+import net.dv8tion.jda.api.JDA;
+
+/**
+ * Synthetic JDA objects for benchmarks. Interfaces are implemented by proxies answering values by
+ * method name, anything else returns null, zero or false, so nothing reaches the network.
+ */
+public final class Synthetic {
+  private static final JDA JDA_INSTANCE =
+      proxy(JDA.class, Collections.singletonMap("getShardInfo", JDA.ShardInfo.SINGLE));
+
+  private Synthetic() {
+    // Sealed class
+  }
+
+  /**
+   * Retrieves a synthetic shard.
+   *
+   * @return a JDA instance that is not connected.
+   */
+  public static JDA jda() {
+    return JDA_INSTANCE;
+  }
+
+  /**
+   * Creates a synthetic implementation of an interface.
+   *
+   * @param type the interface.
+   * @param answers the values returned by method name, an {@link Answer} is called with the
+   *     arguments of every invocation.
+   * @return the synthetic implementation.
+   */
+  public static <T> T proxy(Class<T> type, Map<String, Object> answers) {
+    return type.cast(
+        Proxy.newProxyInstance(
+            Synthetic.class.getClassLoader(),
+            new Class<?>[] {type},
+            (proxy, method, args) -> {
+              switch (method.getName()) {
+                case "hashCode":
+                  return System.identityHashCode(proxy);
+                case "equals":
+                  return proxy == args[0];
+                case "toString":
+                  return "Synthetic" + type.getSimpleName();
+                default:
+                  break;
+              }
+              if (answers.containsKey(method.getName())) {
+                var answer = answers.get(method.getName());
+                return answer instanceof Answer dynamic ? dynamic.answer(args) : answer;
+              }
+              var returnType = method.getReturnType();
+              if (returnType == boolean.class) {
+                return false;
+              } else if (returnType == long.class) {
+                return 0L;
+              } else if (returnType == int.class) {
+                return 0;
+              } else if (returnType == double.class) {
+                return 0.0;
+              }
+              return null;
+            }));
+  }
+
+  /** Computes the value returned by a synthetic method from its arguments. */
+  @FunctionalInterface
+  public interface Answer {
+    Object answer(Object[] args);
+  }
+}
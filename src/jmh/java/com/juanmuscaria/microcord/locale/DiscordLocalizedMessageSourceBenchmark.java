@@ -0,0 +1,118 @@
+/*
+ * Copyright 2023 juanmuscaria
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.juanmuscaria.microcord.locale;
+
+import com.juanmuscaria.microcord.Synthetic;
+import com.juanmuscaria.microcord.scope.DiscordContextData;
+import io.micronaut.context.AbstractLocalizedMessageSource;
+import io.micronaut.context.StaticMessageSource;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import net.dv8tion.jda.api.interactions.DiscordLocale;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Message lookups through {@link DiscordLocalizedMessageSource}: a translated key, a key missing in
+ * the user locale and resolving the locale of a new context before the lookup, which happens once
+ * per locale using the source.
+ *
+ * <p>{@code uncached} and {@code uncachedUntranslated} run the same lookups through Micronaut's
+ * {@link AbstractLocalizedMessageSource}, which the source extended before the messages were
+ * cached: every call looks the message up and interpolates it again. Compare them with {@code
+ * translated} and {@code untranslated} to measure the cache.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DiscordLocalizedMessageSourceBenchmark {
+  private static final String KEY = "interaction.slash.ping.response";
+  private static final String MISSING_KEY = "interaction.slash.ping.invalid_shard";
+
+  private StaticMessageSource messages;
+  private Locale locale;
+  private DiscordLocaleResolver localeResolver;
+  private DiscordLocalizedMessageSource messageSource;
+  private AbstractLocalizedMessageSource<DiscordContextData> uncachedSource;
+  private DiscordContextData context;
+
+  @Setup(Level.Trial)
+  public void setup() {
+    locale = DiscordLocales.toLocale(DiscordLocale.PORTUGUESE_BRAZILIAN);
+    messages = new StaticMessageSource();
+    messages.addMessage(Locale.ENGLISH, KEY, "Pong! {0}ms");
+    messages.addMessage(locale, KEY, "Pong! {0}ms");
+    messages.addMessage(Locale.ENGLISH, MISSING_KEY, "Invalid shard");
+    context =
+        new DiscordContextData(
+            null,
+            DiscordLocale.PORTUGUESE_BRAZILIAN,
+            DiscordLocale.ENGLISH_US,
+            Synthetic.jda(),
+            0);
+    localeResolver = new DiscordLocaleResolver();
+    messageSource =
+        new DiscordLocalizedMessageSource(
+            localeResolver, messages, MessageTemplateCache.create(messages, 4096));
+    messageSource.setLocale(localeResolver.resolveOrDefault(context));
+    uncachedSource =
+        new AbstractLocalizedMessageSource<DiscordContextData>(localeResolver, messages) {
+          @Override
+          protected Locale getLocale() {
+            return locale;
+          }
+        };
+  }
+
+  @Benchmark
+  public Object translated() {
+    return messageSource.getMessage(KEY, 42L);
+  }
+
+  @Benchmark
+  public Object uncached() {
+    return uncachedSource.getMessage(KEY, 42L);
+  }
+
+  @Benchmark
+  public Object uncachedUntranslated() {
+    return uncachedSource.getMessageOrDefault(MISSING_KEY, MISSING_KEY);
+  }
+
+  @Benchmark
+  public Object untranslated() {
+    return messageSource.getMessageOrDefault(MISSING_KEY, MISSING_KEY);
+  }
+
+  @Benchmark
+  public Object newContext() {
+    var source = messageSource;
+    source.setLocale(localeResolver.resolveOrDefault(context));
+    return source.getMessage(KEY);
+  }
+}
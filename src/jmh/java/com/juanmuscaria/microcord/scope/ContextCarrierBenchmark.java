@@ -0,0 +1,86 @@
+/*
+ * Copyright 2023 juanmuscaria
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.juanmuscaria.microcord.scope;
+
+import com.juanmuscaria.microcord.Synthetic;
+import com.juanmuscaria.microcord.utils.ThreadFactories;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Cost of the {@link ContextCarrier} implementations. {@code dispatch} runs the context accesses of
+ * a single event within a worker task, {@code virtualThread} runs it in a new virtual thread (a
+ * platform thread before Java 21) so the gc profiler reports the memory used per thread. The
+ * {@code scoped-value} carrier is skipped when not running on Java 25 or newer.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ContextCarrierBenchmark {
+  @Param({"thread-local", "inheritable", "scoped-value"})
+  public String carrierName;
+
+  private ContextCarrier carrier;
+  private DiscordContextData context;
+  private ThreadFactory threads;
+  private Runnable task;
+
+  @Setup(Level.Trial)
+  public void setup(Blackhole blackhole) {
+    carrier = ContextCarriers.named(carrierName);
+    context = new DiscordContextData(null, null, null, Synthetic.jda(), 0);
+    threads =
+        ThreadFactories.supportsVirtualThreads()
+            ? ThreadFactories.virtual("carrier-bench-")
+            : ThreadFactories.platform("carrier-bench-", true);
+    Runnable reads =
+        () -> {
+          // An event touches the context a few times, e.g. scope lookup and locale resolution
+          for (int i = 0; i < 4; i++) {
+            blackhole.consume(carrier.get());
+          }
+        };
+    task = () -> carrier.runWith(context, reads);
+  }
+
+  @Benchmark
+  public void dispatch() {
+    carrier.runIsolated(task);
+  }
+
+  @Benchmark
+  public void virtualThread() throws InterruptedException {
+    var thread = threads.newThread(() -> carrier.runIsolated(task));
+    thread.start();
+    thread.join();
+  }
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright 2023 juanmuscaria
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.juanmuscaria.microcord.scope;
+
+import com.juanmuscaria.microcord.Synthetic;
+import java.util.concurrent.TimeUnit;
+import net.dv8tion.jda.api.interactions.DiscordLocale;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Overhead of {@link ScopedCallbacks#wrap(Runnable)} within a discord context, wrapping and running
+ * a callback compared to running it directly.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ScopedCallbacksBenchmark {
+  private ScopedCallbacks callbacks;
+  private Runnable callback;
+
+  @Setup(Level.Trial)
+  public void setup(Blackhole blackhole) {
+    callbacks = new ScopedCallbacks(new DiscordContextCustomScope());
+    callback = () -> blackhole.consume(DiscordContext.currentContext());
+    DiscordContext.set(
+        new DiscordContextData(
+            null,
+            DiscordLocale.PORTUGUESE_BRAZILIAN,
+            DiscordLocale.ENGLISH_US,
+            Synthetic.jda(),
+            0));
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    DiscordContext.set(null);
+  }
+
+  @Benchmark
+  public void direct() {
+    callback.run();
+  }
+
+  @Benchmark
+  public void wrapped() {
+    callbacks.wrap(callback).run();
+  }
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright 2023 juanmuscaria
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.juanmuscaria.microcord.slash;
+
+import com.juanmuscaria.microcord.annotations.ApplicationCommand;
+import com.juanmuscaria.microcord.configuration.JdaConfiguration;
+import com.juanmuscaria.microcord.metrics.MicrocordMetrics;
+import io.micronaut.context.ApplicationContext;
+import io.micronaut.context.MessageSource;
+import io.micronaut.inject.BeanDefinition;
+import io.micronaut.inject.ExecutableMethod;
+import io.micronaut.inject.qualifiers.Qualifiers;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Startup cost of building the command definitions, running a fresh {@link AnnotatedSlashBuilder}
+ * over every executable method of the application commands compiled in the benchmark source set.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 10)
+@Measurement(iterations = 20)
+@Fork(1)
+public class AnnotatedSlashBuilderBenchmark {
+  private ApplicationContext context;
+  private List<BeanDefinition<?>> commandBeans;
+
+  @Setup(Level.Trial)
+  public void setup() {
+    context = ApplicationContext.run(Collections.singletonMap("discord.token", "benchmark"));
+    commandBeans =
+        new ArrayList<>(
+            context.getBeanDefinitions(Qualifiers.byStereotype(ApplicationCommand.class)));
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    context.close();
+  }
+
+  @Benchmark
+  public void buildDefinitions(Blackhole blackhole) {
+    var builder =
+        new AnnotatedSlashBuilder(
+            context,
+            new LocalizationTable(context.getBean(MessageSource.class)),
+            context,
+            context.getBean(JdaConfiguration.class),
+            context.getBean(MicrocordMetrics.class));
+    for (BeanDefinition<?> bean : commandBeans) {
+      for (ExecutableMethod<?, ?> method : bean.getExecutableMethods()) {
+        builder.process(bean, method);
+      }
+    }
+    blackhole.consume(builder.getDefinitions());
+  }
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright 2023 juanmuscaria
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.juanmuscaria.microcord.slash;
+
+import com.juanmuscaria.microcord.annotations.SlashCommand;
+import com.juanmuscaria.microcord.annotations.SlashCommand.OnCommand;
+import com.juanmuscaria.microcord.annotations.SlashCommand.Option;
+import net.dv8tion.jda.api.events.interaction.command.SlashCommandInteractionEvent;
+
+/** Command used by {@link SlashCommandBenchmark}, with sub-commands of 0, 3 and 10 options. */
+@SlashCommand("bench")
+public class BenchmarkCommand {
+  // Keeps the bound arguments reachable
+  Object last;
+
+  @OnCommand("options0")
+  public void options0(SlashCommandInteractionEvent event) {
+    last = event;
+  }
+
+  @OnCommand("options3")
+  public void options3(
+      SlashCommandInteractionEvent event,
+      @Option("o0") String o0,
+      @Option("o1") String o1,
+      @Option("o2") String o2) {
+    last = o2;
+  }
+
+  @OnCommand("options10")
+  public void options10(
+      SlashCommandInteractionEvent event,
+      @Option("o0") String o0,
+      @Option("o1") String o1,
+      @Option("o2") String o2,
+      @Option("o3") String o3,
+      @Option("o4") String o4,
+      @Option("o5") String o5,
+      @Option("o6") String o6,
+      @Option("o7") String o7,
+      @Option("o8") String o8,
+      @Option("o9") String o9) {
+    last = o9;
+  }
+}
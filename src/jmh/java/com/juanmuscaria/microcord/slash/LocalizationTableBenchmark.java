@@ -0,0 +1,125 @@
+/*
+ * Copyright 2023 juanmuscaria
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.juanmuscaria.microcord.slash;
+
+import com.juanmuscaria.microcord.locale.DiscordLocales;
+import io.micronaut.context.StaticMessageSource;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import net.dv8tion.jda.api.interactions.DiscordLocale;
+import net.dv8tion.jda.api.interactions.commands.OptionType;
+import net.dv8tion.jda.api.interactions.commands.build.Commands;
+import net.dv8tion.jda.api.interactions.commands.build.OptionData;
+import net.dv8tion.jda.api.interactions.commands.build.SlashCommandData;
+import net.dv8tion.jda.api.interactions.commands.build.SubcommandData;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Startup cost of localizing a large synthetic command set: every command has sub-commands with
+ * options and choices, translated in a handful of locales. Compares looking up every key on each
+ * serialization with the precomputed {@link LocalizationTable}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class LocalizationTableBenchmark {
+  private static final String PREFIX = "interaction.slash.";
+  private static final DiscordLocale[] TRANSLATED = {
+    DiscordLocale.ENGLISH_US, DiscordLocale.PORTUGUESE_BRAZILIAN, DiscordLocale.SPANISH,
+    DiscordLocale.GERMAN, DiscordLocale.FRENCH
+  };
+
+  @Param({"100", "500"})
+  int commandCount;
+
+  private StaticMessageSource messageSource;
+  private List<SlashCommandData> commands;
+  private volatile Function<String, Map<DiscordLocale, String>> localizer;
+
+  @Setup(Level.Trial)
+  public void setup() {
+    messageSource = new StaticMessageSource();
+    commands = new ArrayList<>(commandCount);
+    for (int c = 0; c < commandCount; c++) {
+      var command =
+          Commands.slash("command" + c, "placeholder")
+              .setLocalizationFunction(key -> localizer.apply(PREFIX + key));
+      for (int s = 0; s < 5; s++) {
+        var subCommand = new SubcommandData("sub" + s, "placeholder");
+        for (int o = 0; o < 4; o++) {
+          var option = new OptionData(OptionType.STRING, "option" + o, "placeholder");
+          for (int choice = 0; choice < 5; choice++) {
+            option.addChoice("choice" + choice, "value" + choice);
+          }
+          subCommand.addOptions(option);
+        }
+        command.addSubcommands(subCommand);
+      }
+      commands.add(command);
+    }
+
+    // Translate every key used by the commands
+    var table = new LocalizationTable(messageSource);
+    localizer = table::get;
+    var keys = table.collectKeys(this::serializeAll);
+    for (String key : keys) {
+      for (DiscordLocale locale : TRANSLATED) {
+        messageSource.addMessage(DiscordLocales.toLocale(locale), key, key + ' ' + locale.name());
+      }
+    }
+  }
+
+  @Benchmark
+  public void uncached(Blackhole blackhole) {
+    var table = new LocalizationTable(messageSource);
+    localizer = table::load;
+    blackhole.consume(serializeAll());
+  }
+
+  @Benchmark
+  public void precomputed(Blackhole blackhole) {
+    var table = new LocalizationTable(messageSource);
+    localizer = table::get;
+    table.precompute(table.collectKeys(this::serializeAll));
+    blackhole.consume(serializeAll());
+  }
+
+  private int serializeAll() {
+    var size = 0;
+    for (SlashCommandData command : commands) {
+      size += command.toData().keys().size();
+    }
+    return size;
+  }
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright 2023 juanmuscaria
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.juanmuscaria.microcord.slash;
+
+import com.juanmuscaria.microcord.Synthetic;
+import io.micronaut.context.ApplicationContext;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import net.dv8tion.jda.api.events.interaction.command.SlashCommandInteractionEvent;
+import net.dv8tion.jda.api.interactions.commands.Command;
+import net.dv8tion.jda.api.interactions.commands.OptionMapping;
+import net.dv8tion.jda.api.interactions.commands.OptionType;
+import net.dv8tion.jda.api.interactions.commands.SlashCommandInteraction;
+import net.dv8tion.jda.api.utils.data.DataObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Slash command routing and argument binding through {@link
+ * SlashCommandService#processSlashEvent}, for sub-commands of {@link BenchmarkCommand} with 0, 3
+ * and 10 options.
+ *
+ * <p>The application context is started without connecting, events are synthetic and the command
+ * ids are cached after the first invocation, as they would be in a running bot.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SlashCommandBenchmark {
+  @Param({"0", "3", "10"})
+  int optionCount;
+
+  private ApplicationContext context;
+  private SlashCommandService service;
+  private SlashCommandInteractionEvent event;
+
+  @Setup(Level.Trial)
+  public void setup() {
+    context = ApplicationContext.run(Collections.singletonMap("discord.token", "benchmark"));
+    service = context.getBean(SlashCommandService.class);
+
+    var jda = Synthetic.jda();
+    var options = new ArrayList<OptionMapping>(optionCount);
+    var optionsByName = new HashMap<String, OptionMapping>();
+    for (int i = 0; i < optionCount; i++) {
+      var data =
+          DataObject.empty()
+              .put("type", OptionType.STRING.getKey())
+              .put("name", "o" + i)
+              .put("value", "value" + i);
+      var mapping = new OptionMapping(data, null, jda, null);
+      options.add(mapping);
+      optionsByName.put(mapping.getName(), mapping);
+    }
+    Map<String, Object> answers = new HashMap<>();
+    answers.put("getJDA", jda);
+    answers.put("getCommandType", Command.Type.SLASH);
+    answers.put("getCommandIdLong", 1L);
+    answers.put("getName", "bench");
+    answers.put("getSubcommandName", "options" + optionCount);
+    answers.put("getOptions", options);
+    answers.put("getOption", (Synthetic.Answer) args -> optionsByName.get((String) args[0]));
+    event =
+        new SlashCommandInteractionEvent(
+            jda, 0, Synthetic.proxy(SlashCommandInteraction.class, answers));
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    context.close();
+  }
+
+  @Benchmark
+  public void processSlashEvent() {
+    service.processSlashEvent(event);
+  }
+}
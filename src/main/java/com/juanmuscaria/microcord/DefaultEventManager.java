@@ -0,0 +1,254 @@
+/*
+ * Copyright 2023 juanmuscaria
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.juanmuscaria.microcord;
+
+import com.juanmuscaria.microcord.gateway.GatewayRecorder;
+import com.juanmuscaria.microcord.metrics.MicrocordMetrics;
+import com.juanmuscaria.microcord.metrics.MicrocordMetrics.EventTimer;
+import com.juanmuscaria.microcord.scope.DiscordContext;
+import com.juanmuscaria.microcord.scope.DiscordContextData;
+import com.juanmuscaria.microcord.scope.DiscordContextTerminatedEvent;
+import com.juanmuscaria.microcord.utils.LatencyHistogram;
+import io.micronaut.context.event.ApplicationEventListener;
+import io.micronaut.context.event.ApplicationEventPublisher;
+import io.micronaut.core.annotation.NonNull;
+import io.micronaut.core.annotation.Nullable;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import net.dv8tion.jda.api.events.GenericEvent;
+import net.dv8tion.jda.api.events.RawGatewayEvent;
+import net.dv8tion.jda.api.hooks.EventListener;
+import net.dv8tion.jda.api.hooks.IEventManager;
+import net.dv8tion.jda.api.hooks.ListenerAdapter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Event manager installed in every shard. Events are dispatched to the Micronaut listeners first
+ * and then to the JDA listeners registered in the shard, both sides are looked up from tables
+ * indexed by the event class, so event types nobody listens to are skipped entirely.
+ *
+ * <p>When an {@link EventPipeline} is present events are dispatched by its workers instead of the
+ * JDA gateway thread.
+ *
+ * <p>When a {@link GatewayRecorder} is present raw dispatch payloads are recorded in the gateway
+ * thread, before anything else handles them.
+ */
+class DefaultEventManager implements IEventManager {
+  private static final Logger logger = LoggerFactory.getLogger(DefaultEventManager.class);
+
+  @SuppressWarnings("rawtypes")
+  private final ApplicationEventPublisher publisher;
+
+  private final EventListenerIndex applicationListeners;
+  @Nullable private final EventPipeline pipeline;
+  private final MicrocordMetrics metrics;
+  @Nullable private final GatewayRecorder recorder;
+  @Nullable private final LatencyHistogram dispatchLatency;
+  private final int shardId;
+  // Replaced as a whole on every (un)register, so lookups never see a half updated table
+  private volatile JdaListenerTable jdaListeners = new JdaListenerTable(new EventListener[0]);
+
+  DefaultEventManager(
+      @SuppressWarnings("rawtypes") ApplicationEventPublisher publisher,
+      EventListenerIndex applicationListeners,
+      @Nullable EventPipeline pipeline,
+      MicrocordMetrics metrics,
+      @Nullable GatewayRecorder recorder,
+      @Nullable LatencyHistogram dispatchLatency,
+      int shardId) {
+    this.publisher = publisher;
+    this.applicationListeners = applicationListeners;
+    this.pipeline = pipeline;
+    this.metrics = metrics;
+    this.recorder = recorder;
+    this.dispatchLatency = dispatchLatency;
+    this.shardId = shardId;
+  }
+
+  @Override
+  public synchronized void register(@NonNull Object listener) {
+    if (!(listener instanceof EventListener)) {
+      throw new IllegalArgumentException("Listener must implement EventListener");
+    }
+    var current = jdaListeners.listeners;
+    var updated = Arrays.copyOf(current, current.length + 1);
+    updated[current.length] = (EventListener) listener;
+    jdaListeners = new JdaListenerTable(updated);
+  }
+
+  @Override
+  public synchronized void unregister(@NonNull Object listener) {
+    var updated = new ArrayList<>(Arrays.asList(jdaListeners.listeners));
+    if (updated.remove(listener)) {
+      jdaListeners = new JdaListenerTable(updated.toArray(new EventListener[0]));
+    }
+  }
+
+  @Override
+  public void handle(@NonNull GenericEvent genericEvent) {
+    if (recorder != null
+        && genericEvent instanceof RawGatewayEvent raw
+        && raw.getPackage().getInt("op", -1) == 0) {
+      recorder.append(shardId, raw.getPackage().toJson());
+    }
+    if (pipeline != null) {
+      pipeline.submit(this, genericEvent);
+    } else {
+      dispatch(genericEvent);
+    }
+  }
+
+  /**
+   * Dispatches an event to its listeners in the current thread, setting up the discord context for
+   * it.
+   *
+   * @param genericEvent the event to dispatch.
+   */
+  void dispatch(@NonNull GenericEvent genericEvent) {
+    var eventType = genericEvent.getClass();
+    var listeners = applicationListeners.listenersOf(eventType);
+    var eventListeners = jdaListeners.listenersOf(eventType);
+    if (listeners.length == 0 && eventListeners.length == 0) {
+      return;
+    }
+
+    var dispatchStart = dispatchLatency != null ? System.nanoTime() : 0L;
+    var timer = metrics.isEnabled() ? metrics.eventTimer(eventType) : null;
+    var ctx = DiscordContextData.of(genericEvent, shardId);
+    try {
+      DiscordContext.runWith(
+          ctx, () -> deliver(genericEvent, ctx, listeners, eventListeners, timer));
+    } finally {
+      if (dispatchLatency != null) {
+        dispatchLatency.record(System.nanoTime() - dispatchStart);
+      }
+    }
+  }
+
+  // Runs within the context of the event
+  private void deliver(
+      GenericEvent genericEvent,
+      DiscordContextData ctx,
+      ApplicationEventListener<?>[] listeners,
+      EventListener[] eventListeners,
+      @Nullable EventTimer timer) {
+    try {
+      if (listeners.length > 0) {
+        var start = timer != null ? System.nanoTime() : 0L;
+        publish(listeners, genericEvent);
+        if (timer != null) {
+          timer.recordPublish(System.nanoTime() - start);
+        }
+      }
+      var start = timer != null && eventListeners.length > 0 ? System.nanoTime() : 0L;
+      for (EventListener listener : eventListeners) {
+        try {
+          listener.onEvent(genericEvent);
+        } catch (Throwable e) {
+          logger.error("One of the EventListeners had an uncaught exception", e);
+          if (e instanceof Error) {
+            throw (Error) e;
+          }
+        }
+      }
+      if (timer != null && eventListeners.length > 0) {
+        timer.recordListeners(System.nanoTime() - start);
+      }
+    } finally {
+      // Nothing to tear down if no listener touched the context, or if it is still in use
+      if (ctx.release() && (ctx.hasScopedBeans() || ctx.hasAttributes())) {
+        try {
+          //noinspection unchecked
+          publisher.publishEvent(new DiscordContextTerminatedEvent(ctx));
+        } catch (Throwable e) {
+          logger.error("An error occurred while terminating event context", e);
+        }
+      }
+    }
+  }
+
+  @NonNull @Override
+  public List<Object> getRegisteredListeners() {
+    return Collections.unmodifiableList(Arrays.asList((Object[]) jdaListeners.listeners));
+  }
+
+  // Same semantics as ApplicationEventPublisher::publishEvent, without resolving listeners again
+  @SuppressWarnings({"rawtypes", "unchecked"})
+  private static void publish(ApplicationEventListener<?>[] listeners, GenericEvent event) {
+    for (ApplicationEventListener listener : listeners) {
+      if (listener.supports(event)) {
+        listener.onApplicationEvent(event);
+      }
+    }
+  }
+
+  /** Immutable snapshot of the registered JDA listeners, indexed by the event class they accept. */
+  private static final class JdaListenerTable {
+    private final EventListener[] listeners;
+    private final Map<Class<?>, EventListener[]> byEventType = new ConcurrentHashMap<>();
+
+    private JdaListenerTable(EventListener[] listeners) {
+      this.listeners = listeners;
+    }
+
+    private EventListener[] listenersOf(Class<?> eventType) {
+      if (listeners.length == 0) {
+        return listeners;
+      }
+      var resolved = byEventType.get(eventType);
+      if (resolved == null) {
+        var accepting = new ArrayList<EventListener>(listeners.length);
+        for (EventListener listener : listeners) {
+          if (accepts(listener, eventType)) {
+            accepting.add(listener);
+          }
+        }
+        resolved = accepting.toArray(new EventListener[0]);
+        byEventType.put(eventType, resolved);
+      }
+      return resolved;
+    }
+
+    // A ListenerAdapter only reacts to the events it has a handler for, anything else could react
+    // to every event.
+    private static boolean accepts(EventListener listener, Class<?> eventType) {
+      if (!(listener instanceof ListenerAdapter)) {
+        return true;
+      }
+      for (Class<?> type = listener.getClass();
+          type != ListenerAdapter.class;
+          type = type.getSuperclass()) {
+        for (Method method : type.getDeclaredMethods()) {
+          if (method.getParameterCount() == 1
+              && !Modifier.isStatic(method.getModifiers())
+              && method.getName().startsWith("on")
+              && GenericEvent.class.isAssignableFrom(method.getParameterTypes()[0])
+              && method.getParameterTypes()[0].isAssignableFrom(eventType)) {
+            return true;
+          }
+        }
+      }
+      return false;
+    }
+  }
+}
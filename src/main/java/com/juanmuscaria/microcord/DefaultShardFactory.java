@@ -18,33 +18,37 @@ package com.juanmuscaria.microcord;
 import static com.juanmuscaria.microcord.JdaShardFactory.SHARD_MANAGER_KEY;
 
 import com.juanmuscaria.microcord.configuration.JdaConfiguration;
-import com.juanmuscaria.microcord.scope.DiscordContext;
-import com.juanmuscaria.microcord.scope.DiscordContextData;
-import com.juanmuscaria.microcord.scope.DiscordContextTerminatedEvent;
+import com.juanmuscaria.microcord.gateway.FixedGatewaySessionController;
+import com.juanmuscaria.microcord.gateway.GatewayRecorder;
+import com.juanmuscaria.microcord.gateway.ReplayGateway;
+import com.juanmuscaria.microcord.metrics.MicrocordMetrics;
+import com.juanmuscaria.microcord.utils.ThreadFactories;
 import io.micronaut.context.ApplicationContext;
 import io.micronaut.context.BeanProvider;
 import io.micronaut.context.annotation.*;
 import io.micronaut.context.event.ApplicationEventPublisher;
 import io.micronaut.core.annotation.NonNull;
+import io.micronaut.core.annotation.Nullable;
 import io.micronaut.core.naming.Described;
 import io.micronaut.runtime.ApplicationConfiguration;
 import io.micronaut.runtime.context.scope.Refreshable;
 import io.micronaut.runtime.context.scope.refresh.RefreshEvent;
+import jakarta.annotation.PreDestroy;
 import jakarta.inject.Singleton;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Paths;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.atomic.AtomicBoolean;
+import net.dv8tion.jda.api.JDA;
 import net.dv8tion.jda.api.audio.factory.IAudioSendFactory;
-import net.dv8tion.jda.api.entities.User;
-import net.dv8tion.jda.api.events.GenericEvent;
-import net.dv8tion.jda.api.events.guild.GenericGuildEvent;
-import net.dv8tion.jda.api.events.guild.member.GenericGuildMemberEvent;
-import net.dv8tion.jda.api.events.interaction.GenericInteractionCreateEvent;
-import net.dv8tion.jda.api.events.user.GenericUserEvent;
-import net.dv8tion.jda.api.hooks.IEventManager;
-import net.dv8tion.jda.api.hooks.InterfacedEventManager;
-import net.dv8tion.jda.api.interactions.DiscordLocale;
+import net.dv8tion.jda.api.requests.RestConfig;
 import net.dv8tion.jda.api.sharding.DefaultShardManagerBuilder;
 import net.dv8tion.jda.api.sharding.ShardManager;
+import net.dv8tion.jda.api.utils.Compression;
+import net.dv8tion.jda.api.utils.ConcurrentSessionController;
+import net.dv8tion.jda.api.utils.SessionController;
 import net.dv8tion.jda.api.utils.cache.CacheFlag;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -59,7 +63,7 @@ import org.slf4j.LoggerFactory;
 @Requires(property = "discord.token")
 public class DefaultShardFactory implements JdaShardFactory {
 
-  private final ShardManagerContainer container;
+  private final DefaultShardContainer container;
 
   protected DefaultShardFactory(
       ApplicationContext applicationContext,
@@ -67,7 +71,8 @@ public class DefaultShardFactory implements JdaShardFactory {
       JdaConfiguration configuration,
       ApplicationEventPublisher publisher,
       @Any BeanProvider<JdaProviders> providers,
-      @Any BeanProvider<IAudioSendFactory> audioSendFactory) {
+      @Any BeanProvider<IAudioSendFactory> audioSendFactory,
+      MicrocordMetrics metrics) {
     this.container =
         new DefaultShardContainer(
             applicationContext,
@@ -75,7 +80,8 @@ public class DefaultShardFactory implements JdaShardFactory {
             configuration,
             publisher,
             providers,
-            audioSendFactory);
+            audioSendFactory,
+            metrics);
   }
 
   @NonNull @Primary
@@ -90,15 +96,28 @@ public class DefaultShardFactory implements JdaShardFactory {
   public ShardManager getShardManager() {
     return container.getShardManager();
   }
+
+  @PreDestroy
+  void close() {
+    container.close();
+  }
 }
 
 /**
  * Container for managing the lifecycle of {@link ShardManager} as an embedded application. Since
  * JDA ShardManager does not support a stop and start, the ShardManager is always rebuilt from
  * scratch, this also accommodates changed properties when the application is refreshed.
+ *
+ * <p>The gateway recorder and replay gateway, when configured, outlive the rebuilds and are only
+ * closed with the container.
+ *
+ * <p>In {@link JdaConfiguration.RestartMode#ROLLING} mode a refresh restarts the shards in batches
+ * within the same ShardManager instead, see {@link #restartShards()}.
  */
 class DefaultShardContainer implements ShardManagerContainer, Described {
   private static final Logger logger = LoggerFactory.getLogger(DefaultShardContainer.class);
+  // How long the container waits for the events being dispatched when closed
+  private static final long PIPELINE_SHUTDOWN_TIMEOUT = 10_000;
   private final AtomicBoolean isRunning = new AtomicBoolean(true);
   private final ApplicationContext context;
   private final ApplicationConfiguration applicationConfiguration;
@@ -109,8 +128,18 @@ class DefaultShardContainer implements ShardManagerContainer, Described {
 
   private final BeanProvider<JdaProviders> providers;
   private final BeanProvider<IAudioSendFactory> audioSendFactory;
-
-  @NonNull private ShardManager shardManager;
+  private final MicrocordMetrics metrics;
+  private final EventListenerIndex listenerIndex;
+  @Nullable private final GatewayRecorder recorder;
+  @Nullable private final ReplayGateway replay;
+
+  @NonNull private volatile ShardManager shardManager;
+  @Nullable private EventPipeline pipeline;
+  // Pipeline of the previous ShardManager, its workers may still be dispatching when closed
+  @Nullable private EventPipeline retiredPipeline;
+  // Session controller of the current ShardManager, asked for the identify concurrency
+  @Nullable private SessionController sessionController;
+  @Nullable private volatile CompletableFuture<Void> rollingRestart;
 
   DefaultShardContainer(
       ApplicationContext context,
@@ -118,13 +147,30 @@ class DefaultShardContainer implements ShardManagerContainer, Described {
       JdaConfiguration configuration,
       @SuppressWarnings("rawtypes") ApplicationEventPublisher publisher,
       BeanProvider<JdaProviders> providers,
-      BeanProvider<IAudioSendFactory> audioSendFactory) {
+      BeanProvider<IAudioSendFactory> audioSendFactory,
+      MicrocordMetrics metrics) {
     this.context = context;
     this.applicationConfiguration = applicationConfiguration;
     this.configuration = configuration;
     this.publisher = publisher;
     this.providers = providers;
     this.audioSendFactory = audioSendFactory;
+    this.metrics = metrics;
+    this.listenerIndex = new EventListenerIndex(context);
+    try {
+      var recording = configuration.getRecording();
+      this.recorder =
+          recording.getFile() != null
+              ? GatewayRecorder.create(Paths.get(recording.getFile()), recording.getSegmentSize())
+              : null;
+      var replayFile = configuration.getReplay().getFile();
+      this.replay =
+          replayFile != null
+              ? ReplayGateway.start(Paths.get(replayFile), configuration.getReplay().getRate())
+              : null;
+    } catch (IOException e) {
+      throw new UncheckedIOException("Unable to set up the gateway recording or replay", e);
+    }
     this.shardManager = build();
   }
 
@@ -176,7 +222,138 @@ class DefaultShardContainer implements ShardManagerContainer, Described {
     return isRunning.get();
   }
 
+  @NonNull @Override
+  public ShardManagerContainer refresh() {
+    // Listener beans may have been added or replaced since the events were indexed
+    listenerIndex.clear();
+    if (configuration.getRestart().getMode() == JdaConfiguration.RestartMode.ROLLING
+        && isRunning()) {
+      restartShards();
+      return this;
+    }
+    return ShardManagerContainer.super.refresh();
+  }
+
+  /**
+   * Restarts the shards in batches of the identify concurrency discord allows, the next batch is
+   * only restarted once the shards of the current one connected again. The ShardManager instance
+   * is kept, so injected ShardManager proxies keep working and shards not in the current batch
+   * keep receiving events. Only one restart runs at a time, calling this during a restart returns
+   * the running one.
+   *
+   * @return a future completed once every shard was restarted.
+   */
+  @NonNull @Override
+  public synchronized CompletableFuture<Void> restartShards() {
+    var running = rollingRestart;
+    if (running != null && !running.isDone()) {
+      return running;
+    }
+    var manager = shardManager;
+    var restart = new CompletableFuture<Void>();
+    rollingRestart = restart;
+    var thread =
+        ThreadFactories.platform("microcord-restart-", true)
+            .newThread(
+                () -> {
+                  try {
+                    roll(manager);
+                    restart.complete(null);
+                  } catch (Throwable e) {
+                    logger.error("Rolling restart failed", e);
+                    restart.completeExceptionally(e);
+                  }
+                });
+    thread.start();
+    return restart;
+  }
+
+  private void roll(ShardManager manager) throws InterruptedException {
+    var ids =
+        manager.getShards().stream()
+            .mapToInt(jda -> jda.getShardInfo().getShardId())
+            .sorted()
+            .toArray();
+    var batchSize = batchSize(manager);
+    var timeout = configuration.getRestart().getShardTimeout().toNanos();
+    logger.info("Restarting {} shards in batches of {}", ids.length, batchSize);
+    for (int start = 0; start < ids.length; start += batchSize) {
+      if (manager != shardManager) {
+        logger.warn("ShardManager was rebuilt, rolling restart interrupted");
+        return;
+      }
+      // Consecutive shard ids fall in different identify buckets and connect in parallel
+      var batch = Arrays.copyOfRange(ids, start, Math.min(ids.length, start + batchSize));
+      for (int shardId : batch) {
+        publish(manager, shardId, ShardRestartEvent.Phase.STOPPING);
+        manager.restart(shardId);
+      }
+      var deadline = System.nanoTime() + timeout;
+      for (int shardId : batch) {
+        var connected = awaitConnected(manager, shardId, deadline);
+        publish(
+            manager,
+            shardId,
+            connected ? ShardRestartEvent.Phase.CONNECTED : ShardRestartEvent.Phase.TIMED_OUT);
+        if (!connected) {
+          logger.warn("Shard {} did not connect again in time, moving on", shardId);
+        }
+      }
+    }
+    logger.info("Rolling restart of {} shards finished", ids.length);
+  }
+
+  private int batchSize(ShardManager manager) {
+    var configured = configuration.getRestart().getBatchSize();
+    if (configured > 0) {
+      return configured;
+    }
+    var controller = sessionController;
+    var shards = manager.getShards();
+    if (controller == null || shards.isEmpty()) {
+      return 1;
+    }
+    try {
+      return Math.max(1, controller.getShardedGateway(shards.get(0)).getConcurrency());
+    } catch (RuntimeException e) {
+      logger.warn("Unable to retrieve the identify concurrency, restarting one shard at a time", e);
+      return 1;
+    }
+  }
+
+  private static boolean awaitConnected(ShardManager manager, int shardId, long deadline)
+      throws InterruptedException {
+    while (System.nanoTime() < deadline) {
+      var shard = manager.getShardById(shardId);
+      if (shard != null && shard.getStatus() == JDA.Status.CONNECTED) {
+        return true;
+      }
+      Thread.sleep(100);
+    }
+    return false;
+  }
+
+  private void publish(ShardManager manager, int shardId, ShardRestartEvent.Phase phase) {
+    try {
+      //noinspection unchecked
+      publisher.publishEvent(new ShardRestartEvent(manager, shardId, phase));
+    } catch (Throwable e) {
+      logger.error("One of the ShardRestartEvent listeners had an uncaught exception", e);
+    }
+  }
+
   private ShardManager build() {
+    // Events still queued for the previous ShardManager are discarded along with it
+    if (pipeline != null) {
+      pipeline.shutdown();
+      retiredPipeline = pipeline;
+    }
+    var eventPipeline =
+        configuration.getDispatch().getMode() == JdaConfiguration.DispatchMode.ASYNC
+            ? new EventPipeline(configuration.getDispatch())
+            : null;
+    pipeline = eventPipeline;
+
     var intents = new HashSet<>(configuration.getIntents());
     configuration.getCacheFlags().stream()
         .map(CacheFlag::getRequiredIntent)
@@ -186,8 +363,37 @@ class DefaultShardContainer implements ShardManagerContainer, Described {
         DefaultShardManagerBuilder.create(configuration.getToken(), intents)
             .disableCache(EnumSet.allOf(CacheFlag.class))
             .enableCache(configuration.getCacheFlags())
-            .setEventManagerProvider(value -> new DefaultEventManager(publisher, value))
-            .setShardsTotal(configuration.getShardsTotal());
+            .setEventManagerProvider(
+                value ->
+                    new DefaultEventManager(
+                        publisher,
+                        listenerIndex,
+                        eventPipeline,
+                        metrics,
+                        recorder,
+                        replay != null ? replay.getDispatchLatency() : null,
+                        value))
+            .setShardsTotal(configuration.getShardsTotal())
+            .setCompression(configuration.getCompression());
+
+    if (configuration.getRestUrl() != null) {
+      builder.setRestConfig(new RestConfig().setBaseUrl(configuration.getRestUrl()));
+    }
+    SessionController controller = new ConcurrentSessionController();
+    if (configuration.getGatewayUrl() != null) {
+      controller =
+          new FixedGatewaySessionController(
+              configuration.getGatewayUrl(), configuration.getShardsTotal());
+    }
+    if (recorder != null) {
+      builder.setRawEventsEnabled(true);
+    }
+    if (replay != null) {
+      controller = replay.sessionController();
+      builder.setCompression(Compression.NONE).setShardsTotal(replay.getShardsTotal());
+    }
+    builder.setSessionController(controller);
+    sessionController = controller;
 
     if (configuration.getShards().length > 0) {
       builder.setShards(configuration.getShards());
@@ -209,81 +415,40 @@ class DefaultShardContainer implements ShardManagerContainer, Described {
     return builder.build(false);
   }
 
-  @NonNull @Override
-  public String getDescription() {
-    return "Embedded JDA Runtime";
-  }
-}
-
-class DefaultEventManager implements IEventManager {
-  private static final Logger logger = LoggerFactory.getLogger(DefaultEventManager.class);
-  private final IEventManager eventManager = new InterfacedEventManager();
-
-  @SuppressWarnings("rawtypes")
-  private final ApplicationEventPublisher publisher;
-
-  private final int shardId;
-
-  DefaultEventManager(
-      @SuppressWarnings("rawtypes") ApplicationEventPublisher publisher, int shardId) {
-    this.publisher = publisher;
-    this.shardId = shardId;
-  }
-
-  @Override
-  public void register(@NonNull Object listener) {
-    eventManager.register(listener);
-  }
-
-  @Override
-  public void unregister(@NonNull Object listener) {
-    eventManager.unregister(listener);
-  }
-
-  @Override
-  public void handle(@NonNull GenericEvent genericEvent) {
-    User resolvedUser = null;
-    DiscordLocale resolvedUserLocale = null;
-    DiscordLocale resolvedGuildLocale = null;
-
-    if (genericEvent instanceof GenericUserEvent event) {
-      resolvedUser = event.getUser();
-    }
-    if (genericEvent instanceof GenericGuildEvent event) {
-      resolvedGuildLocale = event.getGuild().getLocale();
-    }
-    if (genericEvent instanceof GenericGuildMemberEvent event) {
-      resolvedUser = event.getUser();
-    }
-    if (genericEvent instanceof GenericInteractionCreateEvent event) {
-      resolvedUser = event.getUser();
-      resolvedUserLocale = event.getUserLocale();
-      if (event.getGuild() != null) {
-        resolvedGuildLocale = event.getGuildLocale();
-      }
-    }
-
-    var ctx =
-        new DiscordContextData(
-            resolvedUser, resolvedUserLocale, resolvedGuildLocale, genericEvent.getJDA(), shardId);
-    DiscordContext.set(ctx);
+  /**
+   * Stops the event pipelines, waiting for the events being dispatched, then closes the gateway
+   * recorder and replay gateway, if any.
+   */
+  void close() {
+    shutdownPipeline(retiredPipeline);
+    shutdownPipeline(pipeline);
     try {
-      //noinspection unchecked
-      publisher.publishEvent(genericEvent);
-      eventManager.handle(genericEvent);
+      if (recorder != null) {
+        recorder.close();
+      }
+    } catch (IOException e) {
+      logger.error("Unable to close the gateway recorder", e);
     } finally {
       try {
-        //noinspection unchecked
-        publisher.publishEvent(new DiscordContextTerminatedEvent(ctx));
-      } catch (Throwable e) {
-        logger.error("An error occurred while terminating event context", e);
+        if (replay != null) {
+          replay.close();
+        }
+      } catch (IOException e) {
+        logger.error("Unable to close the replay gateway", e);
       }
-      DiscordContext.set(null);
+    }
+  }
+
+  private static void shutdownPipeline(@Nullable EventPipeline eventPipeline) {
+    if (eventPipeline != null && !eventPipeline.shutdownAndWait(PIPELINE_SHUTDOWN_TIMEOUT)) {
+      logger.warn(
+          "Event pipeline did not finish within {}ms, interrupted its workers",
+          PIPELINE_SHUTDOWN_TIMEOUT);
     }
   }
 
   @NonNull @Override
-  public List<Object> getRegisteredListeners() {
-    return eventManager.getRegisteredListeners();
+  public String getDescription() {
+    return "Embedded JDA Runtime";
   }
 }
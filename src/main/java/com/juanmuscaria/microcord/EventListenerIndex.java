@@ -0,0 +1,120 @@
+/*
+ * Copyright 2023 juanmuscaria
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.juanmuscaria.microcord;
+
+import io.micronaut.context.BeanContext;
+import io.micronaut.context.event.ApplicationEventListener;
+import io.micronaut.core.annotation.NonNull;
+import io.micronaut.core.order.OrderUtil;
+import io.micronaut.inject.BeanDefinition;
+import io.micronaut.inject.qualifiers.Qualifiers;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Index of the Micronaut {@link ApplicationEventListener} beans (including {@code @EventListener}
+ * methods) accepting a given JDA event class. Listeners are resolved once per event class, the
+ * first time it is dispatched, following the same rules and ordering as {@link
+ * io.micronaut.context.event.ApplicationEventPublisher}. Every following event of that class is
+ * dispatched straight from the resolved array.
+ *
+ * <p>Only event classes whose listeners are all singletons are indexed, the listeners of the other
+ * classes are resolved again for every event so prototype and other scoped listeners keep their
+ * semantics. Listeners registered after an event class was indexed are seen once the index is
+ * {@link #clear() cleared}, which the shard container does on refresh.
+ */
+class EventListenerIndex {
+  private static final Logger logger = LoggerFactory.getLogger(EventListenerIndex.class);
+  static final ApplicationEventListener<?>[] NO_LISTENERS = new ApplicationEventListener<?>[0];
+  // Marks event classes with non-singleton listeners, resolved on every dispatch
+  private static final ApplicationEventListener<?>[] PER_DISPATCH =
+      new ApplicationEventListener<?>[0];
+
+  private final BeanContext context;
+  private final Map<Class<?>, ApplicationEventListener<?>[]> listeners =
+      new ConcurrentHashMap<>();
+
+  EventListenerIndex(BeanContext context) {
+    this.context = context;
+  }
+
+  /**
+   * Retrieves the listeners accepting the given event class, in the order they must be called.
+   *
+   * @param eventType the event class.
+   * @return the listeners for the event class, an empty array if there are none.
+   */
+  @NonNull ApplicationEventListener<?>[] listenersOf(@NonNull Class<?> eventType) {
+    var resolved = listeners.get(eventType);
+    if (resolved == PER_DISPATCH) {
+      return resolve(eventType);
+    }
+    if (resolved == null) {
+      if (!onlySingletons(eventType)) {
+        listeners.put(eventType, PER_DISPATCH);
+        return resolve(eventType);
+      }
+      // Resolved outside computeIfAbsent, creating a listener bean may end up dispatching events
+      resolved = resolve(eventType);
+      var previous = listeners.putIfAbsent(eventType, resolved);
+      if (previous != null) {
+        resolved = previous;
+      }
+    }
+    return resolved;
+  }
+
+  /** Discards the resolved listeners, they are resolved again on the next event of each class. */
+  void clear() {
+    listeners.clear();
+  }
+
+  @SuppressWarnings({"rawtypes", "unchecked"})
+  private boolean onlySingletons(Class<?> eventType) {
+    Collection<BeanDefinition<ApplicationEventListener>> definitions =
+        context.getBeanDefinitions(
+            ApplicationEventListener.class, Qualifiers.byTypeArguments(eventType));
+    for (BeanDefinition<?> definition : definitions) {
+      if (!definition.isSingleton()) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  @SuppressWarnings("rawtypes")
+  private ApplicationEventListener<?>[] resolve(Class<?> eventType) {
+    Collection<ApplicationEventListener> found =
+        context.getBeansOfType(
+            ApplicationEventListener.class, Qualifiers.byTypeArguments(eventType));
+    if (found.isEmpty()) {
+      logger.debug("No listeners found for {}, it will be skipped", eventType.getSimpleName());
+      return NO_LISTENERS;
+    }
+
+    var sorted = new ArrayList<ApplicationEventListener<?>>(found.size());
+    for (ApplicationEventListener<?> listener : found) {
+      sorted.add(listener);
+    }
+    OrderUtil.sort(sorted);
+    logger.debug("Resolved {} listeners for {}", sorted.size(), eventType.getSimpleName());
+    return sorted.toArray(NO_LISTENERS);
+  }
+}
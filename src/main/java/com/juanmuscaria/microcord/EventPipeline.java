@@ -0,0 +1,269 @@
+/*
+ * Copyright 2023 juanmuscaria
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.juanmuscaria.microcord;
+
+import com.github.bsideup.jabel.Desugar;
+import com.juanmuscaria.microcord.configuration.JdaConfiguration;
+import com.juanmuscaria.microcord.configuration.JdaConfiguration.OverflowPolicy;
+import com.juanmuscaria.microcord.configuration.JdaConfiguration.WorkerType;
+import com.juanmuscaria.microcord.scope.DiscordContext;
+import com.juanmuscaria.microcord.utils.ThreadFactories;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import net.dv8tion.jda.api.entities.channel.middleman.GuildChannel;
+import net.dv8tion.jda.api.events.GenericEvent;
+import net.dv8tion.jda.api.events.channel.GenericChannelEvent;
+import net.dv8tion.jda.api.events.guild.GenericGuildEvent;
+import net.dv8tion.jda.api.events.interaction.GenericInteractionCreateEvent;
+import net.dv8tion.jda.api.events.message.GenericMessageEvent;
+import net.dv8tion.jda.api.events.user.GenericUserEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Asynchronous event pipeline shared by all shards of a {@link DefaultShardContainer}. Events are
+ * put in bounded queues striped by guild ID (channel ID for direct messages), each queue is drained
+ * by at most one worker at a time, so events of a guild are handled in the order they were
+ * received while different guilds are handled in parallel.
+ */
+class EventPipeline {
+  private static final Logger logger = LoggerFactory.getLogger(EventPipeline.class);
+  // Max events drained from a queue before giving the worker back to other queues
+  private static final int DRAIN_BATCH = 64;
+
+  private final Stripe[] stripes;
+  private final int mask;
+  private final ExecutorService executor;
+  private final OverflowPolicy overflowPolicy;
+  private final Set<Class<? extends GenericEvent>> droppableEvents;
+  private final Map<Class<?>, Boolean> droppableCache = new ConcurrentHashMap<>();
+  private final AtomicLong droppedEvents = new AtomicLong();
+
+  EventPipeline(JdaConfiguration.Dispatch configuration) {
+    var requested = configuration.getStripes();
+    var stripeCount = requested <= 1 ? 1 : Integer.highestOneBit(requested - 1) << 1;
+    this.stripes = new Stripe[stripeCount];
+    this.mask = stripeCount - 1;
+    for (int i = 0; i < stripeCount; i++) {
+      stripes[i] = new Stripe(configuration.getQueueCapacity());
+    }
+    this.overflowPolicy = configuration.getOverflowPolicy();
+    this.droppableEvents = configuration.getDroppableEvents();
+    this.executor = createExecutor(configuration);
+  }
+
+  /**
+   * Queues an event to be dispatched by the given event manager in a worker thread.
+   *
+   * @param eventManager the event manager of the shard that received the event.
+   * @param event the event.
+   */
+  void submit(DefaultEventManager eventManager, GenericEvent event) {
+    stripes[stripeOf(orderingKey(event))].offer(new PendingEvent(eventManager, event));
+  }
+
+  /**
+   * Retrieves how many events were discarded due to the overflow policy.
+   *
+   * @return the amount of discarded events.
+   */
+  long getDroppedEvents() {
+    return droppedEvents.get();
+  }
+
+  /** Stops the workers, events still queued will not be dispatched. */
+  void shutdown() {
+    executor.shutdown();
+  }
+
+  /**
+   * Stops the workers and waits for the events they are dispatching, events still queued will not
+   * be dispatched. Workers still running once the timeout elapses are interrupted.
+   *
+   * @param timeoutMillis how long to wait for the workers, in milliseconds.
+   * @return whether every worker finished within the timeout.
+   */
+  boolean shutdownAndWait(long timeoutMillis) {
+    executor.shutdown();
+    try {
+      if (executor.awaitTermination(timeoutMillis, TimeUnit.MILLISECONDS)) {
+        return true;
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    executor.shutdownNow();
+    return false;
+  }
+
+  int stripeOf(long key) {
+    var hash = (int) (key ^ (key >>> 32)) * 0x9E3779B9;
+    return (hash ^ (hash >>> 16)) & mask;
+  }
+
+  private boolean isDroppable(Class<?> eventType) {
+    var droppable = droppableCache.get(eventType);
+    if (droppable == null) {
+      droppable = false;
+      for (Class<? extends GenericEvent> type : droppableEvents) {
+        if (type.isAssignableFrom(eventType)) {
+          droppable = true;
+          break;
+        }
+      }
+      droppableCache.put(eventType, droppable);
+    }
+    return droppable;
+  }
+
+  private void drop(PendingEvent pending) {
+    droppedEvents.incrementAndGet();
+    logger.debug("Event queue is full, discarding {}", pending.event().getClass().getSimpleName());
+  }
+
+  // Events with the same key are always handled in order
+  static long orderingKey(GenericEvent event) {
+    if (event instanceof GenericGuildEvent guildEvent) {
+      return guildEvent.getGuild().getIdLong();
+    }
+    if (event instanceof GenericInteractionCreateEvent interaction) {
+      var guild = interaction.getGuild();
+      if (guild != null) {
+        return guild.getIdLong();
+      }
+      // Same key as the message events of the direct message channel
+      var channel = interaction.getChannel();
+      return channel != null ? channel.getIdLong() : interaction.getUser().getIdLong();
+    }
+    if (event instanceof GenericMessageEvent messageEvent) {
+      // Every event of a direct message channel is keyed by the channel, whatever its author
+      return messageEvent.isFromGuild()
+          ? messageEvent.getGuild().getIdLong()
+          : messageEvent.getChannel().getIdLong();
+    }
+    if (event instanceof GenericChannelEvent channelEvent
+        && channelEvent.getChannel() instanceof GuildChannel channel) {
+      return channel.getGuild().getIdLong();
+    }
+    if (event instanceof GenericUserEvent userEvent) {
+      return userEvent.getUser().getIdLong();
+    }
+    // Session events and anything not tied to a guild are kept in order within their shard
+    return event.getJDA().getShardInfo().getShardId();
+  }
+
+  private static ExecutorService createExecutor(JdaConfiguration.Dispatch configuration) {
+    if (configuration.getWorkers() == WorkerType.VIRTUAL) {
+      if (ThreadFactories.supportsVirtualThreads()) {
+        return ThreadFactories.virtualThreadPerTask("microcord-events-");
+      }
+      logger.warn("Virtual threads are not supported by this runtime, using platform threads.");
+    }
+    return Executors.newFixedThreadPool(
+        configuration.getThreads(), ThreadFactories.platform("microcord-events-", true));
+  }
+
+  @Desugar
+  private record PendingEvent(DefaultEventManager eventManager, GenericEvent event) {}
+
+  private final class Stripe implements Runnable {
+    private final BlockingQueue<PendingEvent> queue;
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+    // Contexts left behind by a dispatch never outlive the drain
+    private final Runnable isolated = () -> DiscordContext.runIsolated(this);
+
+    private Stripe(int capacity) {
+      this.queue = new ArrayBlockingQueue<>(capacity);
+    }
+
+    private void offer(PendingEvent pending) {
+      if (!queue.offer(pending)) {
+        switch (overflowPolicy) {
+          case DROP_OLDEST -> {
+            while (!queue.offer(pending)) {
+              var oldest = queue.poll();
+              if (oldest != null) {
+                drop(oldest);
+              }
+            }
+          }
+          case DROP_BY_TYPE -> {
+            if (isDroppable(pending.event().getClass())) {
+              drop(pending);
+              return;
+            }
+            put(pending);
+          }
+          default -> put(pending);
+        }
+      }
+      schedule();
+    }
+
+    private void put(PendingEvent pending) {
+      try {
+        queue.put(pending);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        drop(pending);
+      }
+    }
+
+    private void schedule() {
+      if (scheduled.compareAndSet(false, true)) {
+        try {
+          executor.execute(isolated);
+        } catch (RejectedExecutionException e) {
+          scheduled.set(false);
+          logger.warn("Event pipeline is shut down, {} queued events discarded", queue.size());
+          queue.clear();
+        }
+      }
+    }
+
+    @Override
+    public void run() {
+      try {
+        for (int i = 0; i < DRAIN_BATCH; i++) {
+          var pending = queue.poll();
+          if (pending == null) {
+            break;
+          }
+          try {
+            pending.eventManager().dispatch(pending.event());
+          } catch (Throwable e) {
+            logger.error("An error occurred while dispatching an event", e);
+          }
+        }
+      } finally {
+        scheduled.set(false);
+      }
+      // Either more events than the batch size or new events raced with the reset above
+      if (!queue.isEmpty()) {
+        schedule();
+      }
+    }
+  }
+}
@@ -17,6 +17,7 @@ package com.juanmuscaria.microcord;
 
 import io.micronaut.core.annotation.NonNull;
 import io.micronaut.runtime.EmbeddedApplication;
+import java.util.concurrent.CompletableFuture;
 import net.dv8tion.jda.api.sharding.ShardManager;
 
 /** Container for a managed {@link ShardManager} instance */
@@ -27,4 +28,16 @@ public interface ShardManagerContainer extends EmbeddedApplication<ShardManagerC
    * @return The {@link ShardManager} instance.
    */
   @NonNull ShardManager getShardManager();
+
+  /**
+   * Restarts every shard. The default implementation refreshes the container, implementations may
+   * restart the shards in batches keeping the others online, publishing a {@link
+   * ShardRestartEvent} for each shard.
+   *
+   * @return a future completed once every shard was restarted.
+   */
+  @NonNull default CompletableFuture<Void> restartShards() {
+    refresh();
+    return CompletableFuture.completedFuture(null);
+  }
 }
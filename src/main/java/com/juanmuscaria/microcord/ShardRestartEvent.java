@@ -0,0 +1,67 @@
+/*
+ * Copyright 2023 juanmuscaria
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.juanmuscaria.microcord;
+
+import io.micronaut.context.event.ApplicationEvent;
+import io.micronaut.core.annotation.NonNull;
+import net.dv8tion.jda.api.sharding.ShardManager;
+
+/**
+ * An event fired for each shard restarted by a rolling restart, see {@link
+ * ShardManagerContainer#restartShards()}.
+ */
+public class ShardRestartEvent extends ApplicationEvent {
+  private final int shardId;
+  private final Phase phase;
+
+  /**
+   * @param source the ShardManager the shard belongs to.
+   * @param shardId the id of the restarted shard.
+   * @param phase the phase of the restart the shard is in.
+   */
+  public ShardRestartEvent(@NonNull ShardManager source, int shardId, @NonNull Phase phase) {
+    super(source);
+    this.shardId = shardId;
+    this.phase = phase;
+  }
+
+  @Override
+  public ShardManager getSource() {
+    return (ShardManager) super.getSource();
+  }
+
+  public int getShardId() {
+    return shardId;
+  }
+
+  @NonNull public Phase getPhase() {
+    return phase;
+  }
+
+  @Override
+  public String toString() {
+    return "ShardRestartEvent(shardId=" + shardId + ", phase=" + phase + ")";
+  }
+
+  public enum Phase {
+    /** The shard is about to be shut down, it stops receiving events. */
+    STOPPING,
+    /** The shard connected again and is receiving events. */
+    CONNECTED,
+    /** The shard did not connect again within the configured timeout. */
+    TIMED_OUT
+  }
+}
@@ -0,0 +1,40 @@
+/*
+ * Copyright 2023 juanmuscaria
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.juanmuscaria.microcord.annotations;
+
+import io.micronaut.context.annotation.Executable;
+import java.lang.annotation.*;
+
+/**
+ * Stereotype of the component interaction handler annotations, {@link OnButton}, {@link OnSelect}
+ * and {@link OnModal}.
+ *
+ * <p>Handlers are routed by a custom id pattern, made of literal text and variables enclosed in
+ * braces, such as {@code vote:{pollId}:{choice}}. A variable matches everything up to the
+ * character following it in the pattern, or the rest of the id if it is the last element, so two
+ * variables cannot be adjacent. When a literal and a variable could both match, the literal is
+ * preferred.
+ *
+ * <p>Variables are bound to the handler parameters with the same name, converted to the parameter
+ * type. Supported types are {@link String}, {@link Long}/long, {@link Integer}/int, {@link
+ * Double}/double, {@link Boolean}/boolean and enums, by their constant name. Handlers may also
+ * receive the interaction event.
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.ANNOTATION_TYPE})
+@Executable
+public @interface ComponentInteraction {}
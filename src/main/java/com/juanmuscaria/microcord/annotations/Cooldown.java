@@ -0,0 +1,50 @@
+/*
+ * Copyright 2023 juanmuscaria
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.juanmuscaria.microcord.annotations;
+
+import java.lang.annotation.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time that must pass between two uses of a slash command, a shorthand for a {@link RateLimit} of
+ * a single use. Can be used on the same classes and methods as {@link RateLimit}.
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.TYPE, ElementType.METHOD})
+public @interface Cooldown {
+
+  /**
+   * Time between two uses.
+   *
+   * @return the cooldown length.
+   */
+  long value();
+
+  /**
+   * Unit of the cooldown.
+   *
+   * @return the cooldown unit.
+   */
+  TimeUnit unit() default TimeUnit.SECONDS;
+
+  /**
+   * Who shares the cooldown.
+   *
+   * @return the cooldown scope.
+   */
+  RateLimit.Scope scope() default RateLimit.Scope.USER;
+}
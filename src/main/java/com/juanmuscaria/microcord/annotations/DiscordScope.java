@@ -27,4 +27,26 @@ import java.lang.annotation.*;
 @Retention(RetentionPolicy.RUNTIME)
 @Target({ElementType.TYPE, ElementType.METHOD})
 @Scope
-public @interface DiscordScope {}
+public @interface DiscordScope {
+
+  /**
+   * Shares a single bean between every event with the same key instead of creating one per event.
+   * Shared beans live until the application stops, they must be immutable once created and
+   * thread safe.
+   *
+   * @return what the bean is shared by.
+   */
+  ShareBy shareBy() default ShareBy.NONE;
+
+  /** Keys a {@link DiscordScope} bean can be shared by. */
+  enum ShareBy {
+    /** A new bean is created for every event. */
+    NONE,
+    /**
+     * One bean per locale the {@code LocaleResolver<DiscordContextData>} bean resolves for the
+     * event. Shared beans never receive the event context, a {@link
+     * com.juanmuscaria.microcord.scope.LocaleAware} bean receives the locale it is shared by.
+     */
+    LOCALE
+  }
+}
@@ -0,0 +1,37 @@
+/*
+ * Copyright 2023 juanmuscaria
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.juanmuscaria.microcord.annotations;
+
+import java.lang.annotation.*;
+
+/**
+ * Indicates a method handles button interactions, routed by the button custom id.
+ *
+ * @see ComponentInteraction
+ * @see net.dv8tion.jda.api.events.interaction.component.ButtonInteractionEvent
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.METHOD})
+@ComponentInteraction
+public @interface OnButton {
+  /**
+   * Custom id pattern of the handled interactions, such as {@code vote:{pollId}:{choice}}.
+   *
+   * @return the custom id pattern.
+   */
+  String value();
+}
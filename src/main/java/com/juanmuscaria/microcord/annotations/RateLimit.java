@@ -0,0 +1,75 @@
+/*
+ * Copyright 2023 juanmuscaria
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.juanmuscaria.microcord.annotations;
+
+import java.lang.annotation.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Limits how many times a slash command can be used within a period. On a {@link SlashCommand}
+ * class the limit is shared by all its subcommands, on an {@link SlashCommand.OnCommand} method it
+ * only applies to that executor. Both limits apply if both are present.
+ *
+ * <p>Limited interactions are answered with an ephemeral message, using the {@code
+ * microcord.rate-limited} translation key with the {@code {seconds}} to wait as a variable. The
+ * limit is checked before any option is read.
+ *
+ * @see Cooldown
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.TYPE, ElementType.METHOD})
+public @interface RateLimit {
+
+  /**
+   * Amount of uses allowed within the period.
+   *
+   * @return the amount of uses.
+   */
+  int value();
+
+  /**
+   * Period the uses are counted in, uses are regained gradually along it.
+   *
+   * @return the period length.
+   */
+  long period();
+
+  /**
+   * Unit of the period.
+   *
+   * @return the period unit.
+   */
+  TimeUnit unit() default TimeUnit.SECONDS;
+
+  /**
+   * Who shares the limit.
+   *
+   * @return the limit scope.
+   */
+  Scope scope() default Scope.USER;
+
+  enum Scope {
+    /** Each user has its own limit. */
+    USER,
+    /** Each guild has its own limit, direct messages are limited by channel. */
+    GUILD,
+    /** Each channel has its own limit. */
+    CHANNEL,
+    /** A single limit shared by everyone. */
+    GLOBAL
+  }
+}
@@ -24,6 +24,9 @@ import java.lang.annotation.*;
 import net.dv8tion.jda.api.entities.*;
 import net.dv8tion.jda.api.entities.Message.Attachment;
 import net.dv8tion.jda.api.entities.channel.unions.GuildChannelUnion;
+import net.dv8tion.jda.api.events.interaction.command.CommandAutoCompleteInteractionEvent;
+import net.dv8tion.jda.api.interactions.AutoCompleteQuery;
+import net.dv8tion.jda.api.interactions.commands.Command;
 import net.dv8tion.jda.api.interactions.commands.OptionType;
 import net.dv8tion.jda.api.interactions.commands.localization.LocalizationFunction;
 
@@ -31,6 +34,7 @@ import net.dv8tion.jda.api.interactions.commands.localization.LocalizationFuncti
 @SuppressWarnings("unused") // None of this is really unused
 @Bean
 @DefaultScope(Singleton.class)
+@ApplicationCommand
 @Documented
 @Retention(RetentionPolicy.RUNTIME)
 @Target({ElementType.TYPE})
@@ -81,7 +85,12 @@ public @interface SlashCommand {
    * Indicates a method is a slash command executor. It can also define the executor for a
    * subcommand.
    *
-   * <p>Command executors must be a public void member method.
+   * <p>Command executors must be public member methods. Executors returning a {@code
+   * CompletionStage}, a {@code Publisher} or a {@code MessageCreateData} run in a worker and their
+   * messages are sent as the reply, the reply is deferred if they take too long. Such executors
+   * should answer through their result. If they answer through the interaction hook instead, they
+   * must edit the original reply, as a reply deferred by microcord is deleted if it is still empty
+   * once the result completes without a message.
    */
   @Retention(RetentionPolicy.RUNTIME)
   @Target({ElementType.METHOD})
@@ -131,5 +140,70 @@ public @interface SlashCommand {
     String value();
 
     boolean autocomplete() default false;
+
+    /**
+     * Static autocomplete suggestions of this option, implicitly enables {@link #autocomplete()}.
+     * Suggestions starting with what the user typed are answered directly from a prefix index
+     * without calling any method, an {@link OnAutocomplete} handler is not needed.
+     *
+     * <p>Suggestions are converted to the option type, they must be valid numbers for numeric
+     * options.
+     *
+     * @return the suggestions of this option.
+     */
+    String[] suggestions() default {};
+  }
+
+  /**
+   * Indicates a method provides the autocomplete suggestions of a command option. The option must
+   * have {@link Option#autocomplete()} enabled.
+   *
+   * <p>The method may receive the {@link CommandAutoCompleteInteractionEvent}, the focused {@link
+   * AutoCompleteQuery} and other options of the command annotated with {@link Option}, options the
+   * user has not filled yet are null or empty. It must return a collection of {@link
+   * Command.Choice}, or a collection of strings, longs or doubles used as both the choice name and
+   * value. Only the first 25 suggestions are sent.
+   */
+  @Retention(RetentionPolicy.RUNTIME)
+  @Target({ElementType.METHOD})
+  @Executable
+  @Inherited
+  @interface OnAutocomplete {
+    /**
+     * Name of the option this method provides suggestions for.
+     *
+     * @return the option name.
+     */
+    String value();
+
+    /**
+     * Subcommand the option belongs to, empty if the option belongs to the command itself.
+     *
+     * @return the subcommand name.
+     */
+    String subCommand() default "";
+
+    /**
+     * Group the subcommand belongs to.
+     *
+     * @return the group name.
+     */
+    String group() default "";
+
+    /**
+     * Time in seconds the suggestions are cached for, by guild and typed value. Suggestions are
+     * not cached by default, enable it only if the suggestions do not depend on the user or on
+     * other options.
+     *
+     * @return the cache time to live in seconds, 0 to disable caching.
+     */
+    long cacheTtl() default 0;
+
+    /**
+     * Maximum amount of cached suggestion lists, the least used are evicted first.
+     *
+     * @return the maximum cache size.
+     */
+    long cacheSize() default 1000;
   }
 }
@@ -0,0 +1,78 @@
+/*
+ * Copyright 2023 juanmuscaria
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.juanmuscaria.microcord.annotations;
+
+import io.micronaut.context.annotation.Executable;
+import java.lang.annotation.*;
+import net.dv8tion.jda.api.entities.Member;
+import net.dv8tion.jda.api.entities.User;
+import net.dv8tion.jda.api.events.interaction.command.UserContextInteractionEvent;
+import net.dv8tion.jda.api.interactions.commands.localization.LocalizationFunction;
+
+/**
+ * Indicates a method is the executor of a user context menu command. The method may receive the
+ * {@link UserContextInteractionEvent} and the target user, as {@link User} or {@link Member}. The
+ * member is null outside guilds.
+ *
+ * <p>Context menu commands are synchronized and routed along the slash commands, they support the
+ * same asynchronous results and {@link RateLimit}/{@link Cooldown} limits, declared on the method
+ * or on its class.
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.METHOD})
+@Executable
+@ApplicationCommand
+public @interface UserCommand {
+
+  /**
+   * Command name, between 1 and 32 characters. Unlike slash commands the name may contain spaces
+   * and uppercase letters.
+   *
+   * @return the command name.
+   */
+  String value();
+
+  /**
+   * Indicates this is an age restricted command.
+   *
+   * @return whether the command is age-restricted.
+   */
+  boolean nsfw() default false;
+
+  /**
+   * Indicates this is a command only usable in a guild. Only affects global commands.
+   *
+   * @return whether this command is only usable in a guild.
+   */
+  boolean guildOnly() default false;
+
+  /**
+   * List of guild IDs this command will be available to. This implicitly makes this command a guild
+   * command instead of global command.
+   *
+   * @return the guild IDs this command will be available to.
+   */
+  long[] guilds() default {};
+
+  /**
+   * Translation key prefix applied to localization lookups, used to group up command localizations.
+   *
+   * @return the translation key prefix for this command.
+   * @see LocalizationFunction
+   */
+  String translationKeyPrefix() default "interaction.user.";
+}
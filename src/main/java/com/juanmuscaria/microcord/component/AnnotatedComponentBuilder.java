@@ -0,0 +1,187 @@
+/*
+ * Copyright 2023 juanmuscaria
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.juanmuscaria.microcord.component;
+
+import com.github.bsideup.jabel.Desugar;
+import com.juanmuscaria.microcord.annotations.ComponentInteraction;
+import com.juanmuscaria.microcord.annotations.OnButton;
+import com.juanmuscaria.microcord.annotations.OnModal;
+import com.juanmuscaria.microcord.annotations.OnSelect;
+import com.juanmuscaria.microcord.utils.MethodBinder;
+import com.juanmuscaria.microcord.utils.MethodBinder.ArgumentBinder;
+import io.micronaut.context.ExecutionHandleLocator;
+import io.micronaut.context.processor.ExecutableMethodProcessor;
+import io.micronaut.core.annotation.NonNull;
+import io.micronaut.core.annotation.Nullable;
+import io.micronaut.core.type.Argument;
+import io.micronaut.inject.BeanDefinition;
+import io.micronaut.inject.ExecutableMethod;
+import jakarta.inject.Singleton;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+import lombok.AllArgsConstructor;
+import net.dv8tion.jda.api.events.interaction.GenericInteractionCreateEvent;
+import net.dv8tion.jda.api.events.interaction.ModalInteractionEvent;
+import net.dv8tion.jda.api.events.interaction.component.ButtonInteractionEvent;
+import net.dv8tion.jda.api.events.interaction.component.GenericSelectMenuInteractionEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Method processor for {@link OnButton}, {@link OnSelect} and {@link OnModal} handlers. Custom id
+ * patterns are compiled into one {@link CustomIdTrie} per interaction kind and handlers into
+ * {@link MethodBinder}s, so routing an interaction only walks its id and binds the arguments.
+ */
+@Singleton
+@AllArgsConstructor
+public class AnnotatedComponentBuilder implements ExecutableMethodProcessor<ComponentInteraction> {
+  private static final Logger logger = LoggerFactory.getLogger(AnnotatedComponentBuilder.class);
+
+  private final CustomIdTrie<MethodBinder<ComponentCall>> buttons = new CustomIdTrie<>();
+  private final CustomIdTrie<MethodBinder<ComponentCall>> selects = new CustomIdTrie<>();
+  private final CustomIdTrie<MethodBinder<ComponentCall>> modals = new CustomIdTrie<>();
+  private final ExecutionHandleLocator executionHandleLocator;
+
+  @Override
+  public synchronized void process(
+      BeanDefinition<?> beanDefinition, ExecutableMethod<?, ?> method) {
+    method
+        .stringValue(OnButton.class)
+        .ifPresent(
+            pattern ->
+                register(buttons, ButtonInteractionEvent.class, pattern, beanDefinition, method));
+    method
+        .stringValue(OnSelect.class)
+        .ifPresent(
+            pattern ->
+                register(
+                    selects,
+                    GenericSelectMenuInteractionEvent.class,
+                    pattern,
+                    beanDefinition,
+                    method));
+    method
+        .stringValue(OnModal.class)
+        .ifPresent(
+            pattern ->
+                register(modals, ModalInteractionEvent.class, pattern, beanDefinition, method));
+  }
+
+  @Nullable CustomIdTrie.Match<MethodBinder<ComponentCall>> findButton(String customId) {
+    return buttons.match(customId);
+  }
+
+  @Nullable CustomIdTrie.Match<MethodBinder<ComponentCall>> findSelect(String customId) {
+    return selects.match(customId);
+  }
+
+  @Nullable CustomIdTrie.Match<MethodBinder<ComponentCall>> findModal(String customId) {
+    return modals.match(customId);
+  }
+
+  // The pattern is parsed on its own first, binders need its variables and a binding error must
+  // leave the trie untouched
+  @SuppressWarnings("unchecked")
+  private void register(
+      CustomIdTrie<MethodBinder<ComponentCall>> handlers,
+      Class<?> eventType,
+      String pattern,
+      BeanDefinition<?> beanDefinition,
+      ExecutableMethod<?, ?> method) {
+    var variables = new CustomIdTrie<Boolean>().add(pattern, Boolean.TRUE);
+    var binders = new ArrayList<ArgumentBinder<ComponentCall>>();
+    for (Argument<?> argument : method.getArguments()) {
+      binders.add(argumentBinder(eventType, variables, argument, method));
+    }
+    handlers.add(
+        pattern,
+        new MethodBinder<>(
+            executionHandleLocator.createExecutionHandle(
+                beanDefinition, (ExecutableMethod<Object, ?>) method),
+            binders));
+    logger.debug("Registered {} as the handler of {}", method, pattern);
+  }
+
+  private static ArgumentBinder<ComponentCall> argumentBinder(
+      Class<?> eventType,
+      List<String> variables,
+      Argument<?> argument,
+      ExecutableMethod<?, ?> method) {
+    var type = argument.getType();
+    var variable = variables.indexOf(argument.getName());
+    if (variable >= 0) {
+      var converter = converterOf(type);
+      if (converter == null) {
+        throw new IllegalArgumentException(
+            "Unsupported custom id variable type " + argument + " in " + method);
+      }
+      return call -> {
+        try {
+          return converter.apply(call.variables()[variable]);
+        } catch (IllegalArgumentException e) {
+          // Custom ids can be crafted by users, a value of the wrong type is not a match
+          throw MalformedCustomIdException.INSTANCE;
+        }
+      };
+    }
+    if (GenericInteractionCreateEvent.class.isAssignableFrom(type)
+        && (type.isAssignableFrom(eventType) || eventType.isAssignableFrom(type))) {
+      // Narrower event types, such as a single kind of select menu, receive null for the others
+      return type.isAssignableFrom(eventType)
+          ? ComponentCall::event
+          : call -> type.isInstance(call.event()) ? call.event() : null;
+    }
+    throw new IllegalArgumentException(
+        "Unknown argument " + argument + " in " + method + ", it must be a custom id variable");
+  }
+
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  @Nullable private static Function<String, Object> converterOf(Class<?> type) {
+    if (type == String.class) {
+      return value -> value;
+    } else if (type == long.class || type == Long.class) {
+      return Long::valueOf;
+    } else if (type == int.class || type == Integer.class) {
+      return Integer::valueOf;
+    } else if (type == double.class || type == Double.class) {
+      return Double::valueOf;
+    } else if (type == boolean.class || type == Boolean.class) {
+      return Boolean::valueOf;
+    } else if (Enum.class.isAssignableFrom(type)) {
+      return value -> Enum.valueOf((Class<? extends Enum>) type, value);
+    }
+    return null;
+  }
+
+  /**
+   * Invocation context of a component handler.
+   *
+   * @param event the interaction event.
+   * @param variables the values of the custom id variables.
+   */
+  @Desugar
+  record ComponentCall(@NonNull GenericInteractionCreateEvent event, String[] variables) {}
+
+  /** Thrown while binding a handler when a custom id variable can't be converted. */
+  static final class MalformedCustomIdException extends RuntimeException {
+    static final MalformedCustomIdException INSTANCE = new MalformedCustomIdException();
+
+    private MalformedCustomIdException() {
+      super("Malformed custom id variable", null, false, false);
+    }
+  }
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright 2023 juanmuscaria
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.juanmuscaria.microcord.component;
+
+import com.juanmuscaria.microcord.component.AnnotatedComponentBuilder.ComponentCall;
+import com.juanmuscaria.microcord.component.AnnotatedComponentBuilder.MalformedCustomIdException;
+import com.juanmuscaria.microcord.utils.MethodBinder;
+import io.micronaut.runtime.event.annotation.EventListener;
+import jakarta.inject.Singleton;
+import net.dv8tion.jda.api.events.interaction.GenericInteractionCreateEvent;
+import net.dv8tion.jda.api.events.interaction.ModalInteractionEvent;
+import net.dv8tion.jda.api.events.interaction.component.ButtonInteractionEvent;
+import net.dv8tion.jda.api.events.interaction.component.EntitySelectInteractionEvent;
+import net.dv8tion.jda.api.events.interaction.component.StringSelectInteractionEvent;
+
+/**
+ * Service to route incoming button, select menu and modal interactions to the handlers collected
+ * by {@link AnnotatedComponentBuilder}.
+ *
+ * <p>Interactions without a matching handler are ignored, they may still be handled by regular
+ * event listeners. Ids whose variables can't be converted to the handler argument types are
+ * ignored as well.
+ */
+@Singleton
+public class ComponentInteractionService {
+  private final AnnotatedComponentBuilder componentBuilder;
+
+  public ComponentInteractionService(AnnotatedComponentBuilder componentBuilder) {
+    this.componentBuilder = componentBuilder;
+  }
+
+  @EventListener
+  public void processButtonEvent(ButtonInteractionEvent event) {
+    invoke(componentBuilder.findButton(event.getComponentId()), event);
+  }
+
+  @EventListener
+  public void processStringSelectEvent(StringSelectInteractionEvent event) {
+    invoke(componentBuilder.findSelect(event.getComponentId()), event);
+  }
+
+  @EventListener
+  public void processEntitySelectEvent(EntitySelectInteractionEvent event) {
+    invoke(componentBuilder.findSelect(event.getComponentId()), event);
+  }
+
+  @EventListener
+  public void processModalEvent(ModalInteractionEvent event) {
+    invoke(componentBuilder.findModal(event.getModalId()), event);
+  }
+
+  private static void invoke(
+      CustomIdTrie.Match<MethodBinder<ComponentCall>> match, GenericInteractionCreateEvent event) {
+    if (match != null) {
+      try {
+        match.value().invoke(new ComponentCall(event, match.variables()));
+      } catch (MalformedCustomIdException e) {
+        // The id matched a pattern but not the variable types, same as no match
+      }
+    }
+  }
+}
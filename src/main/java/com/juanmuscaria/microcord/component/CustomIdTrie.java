@@ -0,0 +1,183 @@
+/*
+ * Copyright 2023 juanmuscaria
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.juanmuscaria.microcord.component;
+
+import com.github.bsideup.jabel.Desugar;
+import io.micronaut.core.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Index of custom id patterns, such as {@code vote:{pollId}:{choice}}. Patterns are compiled into
+ * a character trie where every variable is a single edge, so matching an id is a walk of its
+ * characters. Literal characters are preferred over variables and variables capture as little as
+ * possible, the matcher backtracks to the variable or to a longer capture when the rest of the
+ * pattern fails.
+ *
+ * <p>Patterns are added at startup, before any id is matched.
+ *
+ * @param <T> the type of the values mapped to the patterns.
+ */
+final class CustomIdTrie<T> {
+  private static final String[] NO_VARIABLES = new String[0];
+  private final Node<T> root = new Node<>();
+  private int maxVariables;
+
+  /**
+   * Adds a pattern to this trie.
+   *
+   * @param pattern the custom id pattern.
+   * @param value the value matched by the pattern.
+   * @return the names of the pattern variables, in the order they appear.
+   * @throws IllegalArgumentException if the pattern is malformed or conflicts with another one.
+   */
+  List<String> add(String pattern, T value) {
+    var variables = new ArrayList<String>();
+    var node = root;
+    for (int i = 0; i < pattern.length(); i++) {
+      var c = pattern.charAt(i);
+      if (c == '{') {
+        var end = pattern.indexOf('}', i);
+        if (end < 0) {
+          throw new IllegalArgumentException("Unclosed variable in custom id pattern " + pattern);
+        }
+        var name = pattern.substring(i + 1, end);
+        if (name.isEmpty() || variables.contains(name)) {
+          throw new IllegalArgumentException(
+              "Empty or duplicated variable in custom id pattern " + pattern);
+        }
+        if (end + 1 < pattern.length() && pattern.charAt(end + 1) == '{') {
+          throw new IllegalArgumentException(
+              "Variables must be separated by literal text in custom id pattern " + pattern);
+        }
+        variables.add(name);
+        node = node.variableOrCreate();
+        i = end;
+      } else if (c == '}') {
+        throw new IllegalArgumentException("Unopened variable in custom id pattern " + pattern);
+      } else {
+        node = node.childOrCreate(c);
+      }
+    }
+    if (node.value != null) {
+      throw new IllegalArgumentException(
+          "Custom id pattern " + pattern + " conflicts with another handler");
+    }
+    node.value = value;
+    maxVariables = Math.max(maxVariables, variables.size());
+    return variables;
+  }
+
+  /**
+   * Finds the pattern matching a custom id.
+   *
+   * @param customId the custom id.
+   * @return the match, or null if no pattern matches the id.
+   */
+  @Nullable Match<T> match(String customId) {
+    var variables = maxVariables == 0 ? NO_VARIABLES : new String[maxVariables];
+    var node = find(root, customId, 0, variables, 0);
+    return node == null ? null : new Match<>(node.value, variables);
+  }
+
+  private static <T> Node<T> find(
+      Node<T> node, String id, int index, String[] variables, int variable) {
+    // Follow literal characters as far as possible, only trying variables where they fail
+    while (true) {
+      if (index == id.length()) {
+        return node.value != null ? node : null;
+      }
+      var child = node.child(id.charAt(index));
+      if (child == null) {
+        break;
+      }
+      if (node.variable != null) {
+        var found = find(child, id, index + 1, variables, variable);
+        if (found != null) {
+          return found;
+        }
+        break;
+      }
+      node = child;
+      index++;
+    }
+
+    var variableNode = node.variable;
+    if (variableNode == null) {
+      return null;
+    }
+    // A variable runs until a character the pattern continues with, or the end of the id. Longer
+    // captures are tried when the rest of the pattern does not match after a shorter one
+    for (int end = index + 1; end <= id.length(); end++) {
+      if (end == id.length() || variableNode.child(id.charAt(end)) != null) {
+        variables[variable] = id.substring(index, end);
+        var found = find(variableNode, id, end, variables, variable + 1);
+        if (found != null) {
+          return found;
+        }
+      }
+    }
+    return null;
+  }
+
+  /**
+   * A matched pattern.
+   *
+   * @param value the value mapped to the pattern.
+   * @param variables the variable values, in the order they appear in the pattern. The array may
+   *     be longer than the amount of variables of the pattern.
+   */
+  @Desugar
+  record Match<T>(T value, String[] variables) {}
+
+  private static final class Node<T> {
+    private char[] keys = new char[0];
+    @SuppressWarnings("unchecked")
+    private Node<T>[] children = new Node[0];
+    @Nullable private Node<T> variable;
+    @Nullable private T value;
+
+    private Node<T> child(char key) {
+      // Nodes have few children, a linear scan beats hashing boxed characters
+      for (int i = 0; i < keys.length; i++) {
+        if (keys[i] == key) {
+          return children[i];
+        }
+      }
+      return null;
+    }
+
+    private Node<T> childOrCreate(char key) {
+      var child = child(key);
+      if (child == null) {
+        child = new Node<>();
+        keys = Arrays.copyOf(keys, keys.length + 1);
+        children = Arrays.copyOf(children, children.length + 1);
+        keys[keys.length - 1] = key;
+        children[children.length - 1] = child;
+      }
+      return child;
+    }
+
+    private Node<T> variableOrCreate() {
+      if (variable == null) {
+        variable = new Node<>();
+      }
+      return variable;
+    }
+  }
+}
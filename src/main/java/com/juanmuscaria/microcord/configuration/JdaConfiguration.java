@@ -18,12 +18,19 @@ package com.juanmuscaria.microcord.configuration;
 import static net.dv8tion.jda.api.requests.GatewayIntent.*;
 
 import io.micronaut.context.annotation.ConfigurationProperties;
+import io.micronaut.core.annotation.Nullable;
+import java.time.Duration;
 import java.util.EnumSet;
+import java.util.HashSet;
 import java.util.Set;
+import javax.validation.constraints.Min;
 import javax.validation.constraints.NotBlank;
+import javax.validation.constraints.NotNull;
 import lombok.Getter;
 import lombok.Setter;
+import net.dv8tion.jda.api.events.GenericEvent;
 import net.dv8tion.jda.api.requests.GatewayIntent;
+import net.dv8tion.jda.api.utils.Compression;
 import net.dv8tion.jda.api.utils.cache.CacheFlag;
 
 @ConfigurationProperties(JdaConfiguration.PREFIX)
@@ -37,6 +44,28 @@ public class JdaConfiguration {
   private int shardsTotal = -1;
   private int[] shards = new int[0];
 
+  /**
+   * Gateway the shards connect to instead of the one advertised by discord, such as a local fake
+   * gateway in tests. Every shard identifies at once.
+   */
+  @Nullable private String gatewayUrl;
+
+  /**
+   * Base url of the REST API instead of discord, including the API version and the trailing slash
+   * ({@code http://localhost:8080/api/v10/}).
+   */
+  @Nullable private String restUrl;
+
+  /** Compression of the gateway connection, local gateways usually require {@code NONE}. */
+  private Compression compression = Compression.ZLIB;
+
+  private Dispatch dispatch = new Dispatch();
+  private Commands commands = new Commands();
+  private Recording recording = new Recording();
+  private Replay replay = new Replay();
+  private Messages messages = new Messages();
+  private Restart restart = new Restart();
+
   private static Set<GatewayIntent> getDefaultIntents() {
     var intents = EnumSet.allOf(GatewayIntent.class);
     intents.removeAll(
@@ -49,4 +78,152 @@ public class JdaConfiguration {
             DIRECT_MESSAGE_TYPING));
     return intents;
   }
+
+  /** Configures how gateway events are handed over to the event listeners. */
+  @ConfigurationProperties("dispatch")
+  @Getter
+  @Setter
+  public static class Dispatch {
+    private DispatchMode mode = DispatchMode.INLINE;
+    private WorkerType workers = WorkerType.PLATFORM;
+    @Min(1) private int threads = Runtime.getRuntime().availableProcessors();
+    @Min(1) private int stripes = 64;
+    @Min(1) private int queueCapacity = 1024;
+    private OverflowPolicy overflowPolicy = OverflowPolicy.BLOCK;
+    private Set<Class<? extends GenericEvent>> droppableEvents = new HashSet<>();
+  }
+
+  /** Configures how commands are synchronized with discord. */
+  @ConfigurationProperties("commands")
+  @Getter
+  @Setter
+  public static class Commands {
+    /**
+     * File where the fingerprint and id of synchronized commands are stored. When set, commands
+     * that did not change since the last synchronization are not fetched from discord again on
+     * restart. Disabled by default.
+     */
+    @Nullable private String cacheFile;
+
+    /**
+     * Workers running the commands that return an asynchronous result ({@code CompletionStage},
+     * {@code Publisher} or {@code MessageCreateData}), other commands run in the event thread.
+     */
+    private WorkerType workers = WorkerType.PLATFORM;
+
+    @Min(1) private int threads = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * Time to wait for an asynchronous result before deferring the reply, must be below the 3
+     * seconds discord gives to acknowledge an interaction.
+     */
+    @NotNull private Duration deferThreshold = Duration.ofSeconds(2);
+
+    /**
+     * Amount of users, guilds or channels each {@code @RateLimit} and {@code @Cooldown} tracks at
+     * once. Entries are reused once their limit is fully regained.
+     */
+    @Min(8) private int rateLimitCapacity = 4096;
+  }
+
+  /** Records the gateway traffic so it can be replayed offline, see {@link Replay}. */
+  @ConfigurationProperties("recording")
+  @Getter
+  @Setter
+  public static class Recording {
+    /**
+     * File the raw gateway dispatch payloads of every shard are appended to. Recording is disabled
+     * unless a file is set.
+     */
+    @Nullable private String file;
+
+    /** Size of each memory-mapped region of the log file, the file grows by this amount. */
+    @Min(65536) private long segmentSize = 64L * 1024 * 1024;
+  }
+
+  /**
+   * Replays a log written by {@link Recording} instead of connecting to discord. Shards connect to
+   * a local gateway serving the recorded payloads, REST requests still go to discord.
+   */
+  @ConfigurationProperties("replay")
+  @Getter
+  @Setter
+  public static class Replay {
+    /** Recorded log to replay, the shards connect to discord unless a file is set. */
+    @Nullable private String file;
+
+    /**
+     * Speed of the replay relative to the recording, 10 replays ten times faster. Zero or less
+     * sends the payloads as fast as possible.
+     */
+    private double rate = 1;
+  }
+
+  /** Configures the localized messages of {@code DiscordLocalizedMessageSource}. */
+  @ConfigurationProperties("messages")
+  @Getter
+  @Setter
+  public static class Messages {
+    /**
+     * Maximum amount of parsed message templates kept, each one is a message key in a locale. The
+     * least used ones are evicted when the cache is full.
+     */
+    @Min(16) private long cacheSize = 4096;
+  }
+
+  /** Configures how the shards are restarted when the application is refreshed. */
+  @ConfigurationProperties("restart")
+  @Getter
+  @Setter
+  public static class Restart {
+    private RestartMode mode = RestartMode.REBUILD;
+
+    /**
+     * Shards restarted at once in {@link RestartMode#ROLLING} mode, 0 uses the max_concurrency
+     * discord allows the bot, which lets every shard of a batch identify at the same time.
+     */
+    @Min(0) private int batchSize = 0;
+
+    /** Time a restarted shard has to connect again before the restart moves on without it. */
+    @NotNull private Duration shardTimeout = Duration.ofMinutes(2);
+  }
+
+  public enum RestartMode {
+    /**
+     * The whole ShardManager is shut down and built again, every shard goes offline at once.
+     * Required for changes to the token, intents, cache flags or shards to be applied.
+     */
+    REBUILD,
+    /**
+     * Shards are restarted in batches within the same ShardManager, the other shards keep serving
+     * events. Configuration changes that need a new ShardManager are not applied.
+     */
+    ROLLING
+  }
+
+  public enum DispatchMode {
+    /** Listeners are called in the JDA gateway thread that received the event. */
+    INLINE,
+    /**
+     * Events are queued by guild (or channel for direct messages) and drained by a worker pool.
+     * Events of the same guild keep their order while different guilds are handled in parallel.
+     */
+    ASYNC
+  }
+
+  public enum WorkerType {
+    /** A fixed pool of platform threads. */
+    PLATFORM,
+    /** A virtual thread per task, requires Java 21 or newer. */
+    VIRTUAL
+  }
+
+  public enum OverflowPolicy {
+    /** Blocks the gateway thread until there's room in the queue. */
+    BLOCK,
+    /** Discards the oldest queued event to make room for the new one. */
+    DROP_OLDEST,
+    /** Discards the new event if it is one of the droppable events, otherwise blocks. */
+    DROP_BY_TYPE
+  }
 }
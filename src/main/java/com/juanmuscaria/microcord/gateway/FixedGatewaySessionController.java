@@ -0,0 +1,64 @@
+/*
+ * Copyright 2023 juanmuscaria
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.juanmuscaria.microcord.gateway;
+
+import io.micronaut.core.annotation.NonNull;
+import net.dv8tion.jda.api.JDA;
+import net.dv8tion.jda.api.utils.ConcurrentSessionController;
+
+/**
+ * Session controller connecting shards to a fixed gateway url instead of the one advertised by
+ * discord. The identify concurrency is the amount of shards, each shard has its own identify queue
+ * so every shard may identify at once.
+ */
+public class FixedGatewaySessionController extends ConcurrentSessionController {
+  private final String url;
+  private final int shardsTotal;
+  private volatile boolean concurrencySet;
+
+  /**
+   * @param url the gateway websocket url.
+   * @param shardsTotal the amount of shards, or -1 to retrieve the recommended amount from discord.
+   */
+  public FixedGatewaySessionController(@NonNull String url, int shardsTotal) {
+    this.url = url;
+    this.shardsTotal = shardsTotal;
+    if (shardsTotal > 0) {
+      setConcurrency(shardsTotal);
+    }
+  }
+
+  @Override
+  public void setConcurrency(int level) {
+    super.setConcurrency(level);
+    concurrencySet = true;
+  }
+
+  @NonNull @Override
+  public String getGateway() {
+    return url;
+  }
+
+  @NonNull @Override
+  public ShardedGateway getShardedGateway(@NonNull JDA api) {
+    var total = shardsTotal > 0 ? shardsTotal : super.getShardedGateway(api).getShardTotal();
+    if (!concurrencySet) {
+      // Only known once discord was asked, before any shard is queued
+      setConcurrency(total);
+    }
+    return new ShardedGateway(url, total, total);
+  }
+}
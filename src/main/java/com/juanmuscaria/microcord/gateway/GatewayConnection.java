@@ -0,0 +1,223 @@
+/*
+ * Copyright 2023 juanmuscaria
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.juanmuscaria.microcord.gateway;
+
+import io.micronaut.core.annotation.NonNull;
+import io.micronaut.core.annotation.Nullable;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+
+/**
+ * Server side of a websocket connection with a shard, used by local gateways such as {@link
+ * ReplayGateway}. Only what JDA needs is implemented: uncompressed text messages, ping and close.
+ * Sent messages are never fragmented.
+ *
+ * <p>Sending is thread safe, reading must be done by a single thread.
+ */
+public final class GatewayConnection implements AutoCloseable {
+  private static final String ACCEPT_GUID = "258EAFA5-E914-47DA-95CA-C5AB0DC85B11";
+  private static final int OP_TEXT = 0x1;
+  private static final int OP_CLOSE = 0x8;
+  private static final int OP_PING = 0x9;
+  private static final int OP_PONG = 0xA;
+  private final Socket socket;
+  private final DataInputStream input;
+  private final DataOutputStream output;
+
+  /**
+   * Accepts a websocket connection, completing the opening handshake.
+   *
+   * @param socket the accepted socket.
+   * @throws IOException if the handshake failed.
+   */
+  public GatewayConnection(@NonNull Socket socket) throws IOException {
+    this.socket = socket;
+    socket.setTcpNoDelay(true);
+    this.input = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+    this.output = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+    try {
+      handshake();
+    } catch (IOException e) {
+      socket.close();
+      throw e;
+    }
+  }
+
+  /**
+   * Reads the next text message, answering the control frames received before it.
+   *
+   * @return the message, or null if the connection was closed.
+   * @throws IOException if the connection failed.
+   */
+  @Nullable public byte[] read() throws IOException {
+    ByteArrayOutputStream fragments = null;
+    while (true) {
+      var first = input.read();
+      if (first < 0) {
+        return null;
+      }
+      var second = input.readUnsignedByte();
+      var opcode = first & 0x0F;
+      long length = second & 0x7F;
+      if (length == 126) {
+        length = input.readUnsignedShort();
+      } else if (length == 127) {
+        length = input.readLong();
+      }
+      if (length > Integer.MAX_VALUE) {
+        throw new IOException("Frame too large: " + length);
+      }
+      var mask = new byte[4];
+      var masked = (second & 0x80) != 0;
+      if (masked) {
+        input.readFully(mask);
+      }
+      var payload = new byte[(int) length];
+      input.readFully(payload);
+      if (masked) {
+        for (int i = 0; i < payload.length; i++) {
+          payload[i] ^= mask[i & 3];
+        }
+      }
+      switch (opcode) {
+        case OP_CLOSE -> {
+          sendFrame(OP_CLOSE, payload.length >= 2 ? new byte[] {payload[0], payload[1]} : payload);
+          return null;
+        }
+        case OP_PING -> sendFrame(OP_PONG, payload);
+        case OP_PONG -> {}
+        default -> {
+          var last = (first & 0x80) != 0;
+          if (last && fragments == null) {
+            return payload;
+          }
+          if (fragments == null) {
+            fragments = new ByteArrayOutputStream(payload.length * 2);
+          }
+          fragments.write(payload);
+          if (last) {
+            return fragments.toByteArray();
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Sends a text message.
+   *
+   * @param payload the UTF-8 encoded message.
+   * @throws IOException if the connection failed.
+   */
+  public void send(@NonNull byte[] payload) throws IOException {
+    sendFrame(OP_TEXT, payload);
+  }
+
+  /**
+   * Sends a close frame and closes the connection, the code tells JDA whether it may resume.
+   *
+   * @param code the close code.
+   */
+  public void close(int code) {
+    try {
+      sendFrame(OP_CLOSE, new byte[] {(byte) (code >>> 8), (byte) code});
+    } catch (IOException ignored) {
+      // Closing anyway
+    }
+    close();
+  }
+
+  @Override
+  public void close() {
+    try {
+      socket.close();
+    } catch (IOException ignored) {
+      // Nothing left to release
+    }
+  }
+
+  private void handshake() throws IOException {
+    String key = null;
+    for (var line = readLine(); !line.isEmpty(); line = readLine()) {
+      var separator = line.indexOf(':');
+      if (separator > 0
+          && line.substring(0, separator).trim().equalsIgnoreCase("Sec-WebSocket-Key")) {
+        key = line.substring(separator + 1).trim();
+      }
+    }
+    if (key == null) {
+      throw new IOException("Not a websocket handshake");
+    }
+    String accept;
+    try {
+      var digest = MessageDigest.getInstance("SHA-1");
+      accept = Base64.getEncoder().encodeToString(digest.digest(utf8(key + ACCEPT_GUID)));
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+    synchronized (this) {
+      output.write(
+          utf8(
+              "HTTP/1.1 101 Switching Protocols\r\n"
+                  + "Upgrade: websocket\r\n"
+                  + "Connection: Upgrade\r\n"
+                  + "Sec-WebSocket-Accept: "
+                  + accept
+                  + "\r\n\r\n"));
+      output.flush();
+    }
+  }
+
+  private synchronized void sendFrame(int opcode, byte[] payload) throws IOException {
+    output.write(0x80 | opcode);
+    if (payload.length < 126) {
+      output.write(payload.length);
+    } else if (payload.length <= 0xFFFF) {
+      output.write(126);
+      output.writeShort(payload.length);
+    } else {
+      output.write(127);
+      output.writeLong(payload.length);
+    }
+    output.write(payload);
+    output.flush();
+  }
+
+  private String readLine() throws IOException {
+    var line = new StringBuilder();
+    for (var c = input.read(); c != '\n'; c = input.read()) {
+      if (c < 0) {
+        throw new IOException("Connection closed during the handshake");
+      } else if (c != '\r') {
+        line.append((char) c);
+      }
+    }
+    return line.toString();
+  }
+
+  private static byte[] utf8(String text) {
+    return text.getBytes(StandardCharsets.UTF_8);
+  }
+}
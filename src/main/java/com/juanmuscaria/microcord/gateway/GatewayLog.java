@@ -0,0 +1,120 @@
+/*
+ * Copyright 2023 juanmuscaria
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.juanmuscaria.microcord.gateway;
+
+import com.github.bsideup.jabel.Desugar;
+import io.micronaut.core.annotation.NonNull;
+import io.micronaut.core.annotation.Nullable;
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Reads a gateway log written by {@link GatewayRecorder}.
+ *
+ * <p>The log starts with a header of the magic number and format version, followed by
+ * length-prefixed records: the payload length, the shard id, the nanoseconds since the recording
+ * started and the payload itself. All numbers are big endian.
+ */
+public final class GatewayLog implements Closeable {
+  static final int MAGIC = 0x4D434757; // MCGW
+  static final int VERSION = 1;
+  static final int HEADER_SIZE = 2 * Integer.BYTES;
+  static final int RECORD_HEADER_SIZE = 2 * Integer.BYTES + Long.BYTES;
+  private final Path file;
+  private final DataInputStream input;
+  private boolean finished;
+
+  private GatewayLog(Path file, DataInputStream input) {
+    this.file = file;
+    this.input = input;
+  }
+
+  /**
+   * Opens a gateway log for reading.
+   *
+   * @param file the log file.
+   * @return the log positioned at the first record.
+   * @throws IOException if the file could not be read or is not a gateway log.
+   */
+  @NonNull public static GatewayLog open(@NonNull Path file) throws IOException {
+    var input = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 1 << 16));
+    try {
+      if (input.readInt() != MAGIC) {
+        throw new IOException(file + " is not a gateway log");
+      }
+      var version = input.readInt();
+      if (version != VERSION) {
+        throw new IOException("Unsupported gateway log version " + version + " in " + file);
+      }
+    } catch (IOException e) {
+      input.close();
+      throw e;
+    }
+    return new GatewayLog(file, input);
+  }
+
+  /**
+   * Reads the next record of the log.
+   *
+   * @return the next record, or null if the end of the log was reached.
+   * @throws IOException if the log could not be read or a record is truncated.
+   */
+  @Nullable public Record next() throws IOException {
+    if (finished) {
+      return null;
+    }
+    int length;
+    try {
+      length = input.readInt();
+    } catch (EOFException e) {
+      length = 0;
+    }
+    // An empty record marks the end of a log that was not closed
+    if (length <= 0) {
+      finished = true;
+      return null;
+    }
+    var shardId = input.readInt();
+    var timestamp = input.readLong();
+    var payload = new byte[length];
+    try {
+      input.readFully(payload);
+    } catch (EOFException e) {
+      throw new IOException("Truncated record in " + file, e);
+    }
+    return new Record(shardId, timestamp, payload);
+  }
+
+  @Override
+  public void close() throws IOException {
+    input.close();
+  }
+
+  /**
+   * A payload received by a shard.
+   *
+   * @param shardId the shard that received the payload.
+   * @param timestamp nanoseconds since the recording started.
+   * @param payload the raw payload.
+   */
+  @Desugar
+  public record Record(int shardId, long timestamp, @NonNull byte[] payload) {}
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright 2023 juanmuscaria
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.juanmuscaria.microcord.gateway;
+
+import io.micronaut.core.annotation.NonNull;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Appends raw gateway payloads to a memory-mapped log, in the format read by {@link GatewayLog}.
+ * The file is mapped one segment at a time and grows by a segment whenever the current one is
+ * full, appending a payload is a copy into the mapped memory.
+ *
+ * <p>Payloads of every shard go to the same log, appends are serialized. The file is truncated to
+ * the written length when closed, a log that was not closed ends at the first empty record.
+ */
+public final class GatewayRecorder implements AutoCloseable {
+  private static final Logger logger = LoggerFactory.getLogger(GatewayRecorder.class);
+  private final Path file;
+  private final FileChannel channel;
+  private final long segmentSize;
+  private final long start = System.nanoTime();
+  private MappedByteBuffer segment;
+  // File offset of the current segment
+  private long segmentOffset;
+  private boolean closed;
+
+  private GatewayRecorder(Path file, FileChannel channel, long segmentSize) throws IOException {
+    this.file = file;
+    this.channel = channel;
+    this.segmentSize = segmentSize;
+    this.segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+    segment.putInt(GatewayLog.MAGIC).putInt(GatewayLog.VERSION);
+  }
+
+  /**
+   * Creates a new log, replacing the file if it exists.
+   *
+   * @param file the log file.
+   * @param segmentSize the size of each mapped segment.
+   * @return the recorder appending to the file.
+   * @throws IOException if the file could not be created.
+   */
+  @NonNull public static GatewayRecorder create(@NonNull Path file, long segmentSize)
+      throws IOException {
+    if (segmentSize < GatewayLog.HEADER_SIZE + GatewayLog.RECORD_HEADER_SIZE) {
+      throw new IllegalArgumentException("Segment size too small: " + segmentSize);
+    }
+    var parent = file.toAbsolutePath().getParent();
+    if (parent != null) {
+      Files.createDirectories(parent);
+    }
+    var channel =
+        FileChannel.open(
+            file,
+            StandardOpenOption.CREATE,
+            StandardOpenOption.TRUNCATE_EXISTING,
+            StandardOpenOption.READ,
+            StandardOpenOption.WRITE);
+    try {
+      return new GatewayRecorder(file, channel, segmentSize);
+    } catch (IOException | RuntimeException e) {
+      channel.close();
+      throw e;
+    }
+  }
+
+  /**
+   * Appends a payload received by a shard, timestamped relative to the creation of this recorder.
+   *
+   * @param shardId the shard that received the payload.
+   * @param payload the raw payload.
+   */
+  public synchronized void append(int shardId, @NonNull byte[] payload) {
+    if (closed) {
+      return;
+    }
+    var timestamp = System.nanoTime() - start;
+    // Keep room for an empty record, it marks the end of an unclosed log
+    var size = GatewayLog.RECORD_HEADER_SIZE + payload.length;
+    if (segment.remaining() < size + Integer.BYTES) {
+      try {
+        nextSegment(size + Integer.BYTES);
+      } catch (IOException e) {
+        logger.error("Unable to grow the gateway log {}, recording stopped", file, e);
+        closed = true;
+        return;
+      }
+    }
+    segment.putInt(payload.length).putInt(shardId).putLong(timestamp).put(payload);
+  }
+
+  @Override
+  public synchronized void close() throws IOException {
+    if (closed && !channel.isOpen()) {
+      return;
+    }
+    closed = true;
+    var length = segmentOffset + segment.position();
+    segment.force();
+    // The mapping is only released by the garbage collector, truncating can fail on some systems
+    try {
+      channel.truncate(length);
+    } catch (IOException e) {
+      logger.debug("Unable to truncate the gateway log {}", file, e);
+    }
+    channel.close();
+  }
+
+  private void nextSegment(int minimumSize) throws IOException {
+    segment.force();
+    segmentOffset += segment.position();
+    segment =
+        channel.map(
+            FileChannel.MapMode.READ_WRITE, segmentOffset, Math.max(segmentSize, minimumSize));
+  }
+}
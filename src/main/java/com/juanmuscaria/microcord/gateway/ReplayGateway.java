@@ -0,0 +1,309 @@
+/*
+ * Copyright 2023 juanmuscaria
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.juanmuscaria.microcord.gateway;
+
+import com.github.bsideup.jabel.Desugar;
+import com.juanmuscaria.microcord.utils.LatencyHistogram;
+import com.juanmuscaria.microcord.utils.ThreadFactories;
+import io.micronaut.core.annotation.NonNull;
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import net.dv8tion.jda.api.utils.SessionController;
+import net.dv8tion.jda.api.utils.data.DataObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Local gateway replaying a log written by {@link GatewayRecorder}. Shards are pointed to it by
+ * {@link #sessionController()}, once a shard identifies the payloads recorded for its shard id are
+ * sent in order, paced by the recorded timestamps divided by the replay rate.
+ *
+ * <p>When every shard finished and no event was dispatched for a second a {@link Report} is logged
+ * with the dispatch throughput, the dispatch latency percentiles recorded through {@link
+ * #getDispatchLatency()} and the garbage collections that happened during the replay.
+ *
+ * <p>Only what JDA needs from a gateway is implemented: heartbeat acknowledgements and
+ * identification. Resuming is refused, making the shard identify again and restart its replay.
+ */
+public final class ReplayGateway implements AutoCloseable {
+  private static final Logger logger = LoggerFactory.getLogger(ReplayGateway.class);
+  private static final byte[] HELLO = utf8("{\"op\":10,\"d\":{\"heartbeat_interval\":41250}}");
+  private static final byte[] HEARTBEAT_ACK = utf8("{\"op\":11}");
+  private static final byte[] INVALID_SESSION = utf8("{\"op\":9,\"d\":false}");
+  private static final long QUIET_PERIOD = TimeUnit.SECONDS.toNanos(1);
+
+  private final Path log;
+  private final double rate;
+  private final int shardsTotal;
+  private final long firstTimestamp;
+  private final LatencyHistogram dispatchLatency = new LatencyHistogram();
+  private final ExecutorService threads =
+      Executors.newCachedThreadPool(ThreadFactories.platform("microcord-replay-", true));
+  private final ServerSocket server;
+  private final AtomicInteger replaying = new AtomicInteger();
+  private final CompletableFuture<Report> report = new CompletableFuture<>();
+  // Set when the first shard identifies
+  private volatile long epoch;
+  private long gcCountBaseline;
+  private long gcTimeBaseline;
+
+  private ReplayGateway(Path log, double rate, int shardsTotal, long firstTimestamp)
+      throws IOException {
+    this.log = log;
+    this.rate = rate;
+    this.shardsTotal = shardsTotal;
+    this.firstTimestamp = firstTimestamp;
+    this.server = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+    threads.execute(this::accept);
+  }
+
+  /**
+   * Starts a local gateway replaying a log.
+   *
+   * @param log the gateway log.
+   * @param rate the replay speed relative to the recording, zero or less to replay as fast as
+   *     possible.
+   * @return the started gateway.
+   * @throws IOException if the log could not be read or the gateway could not be bound.
+   */
+  @NonNull public static ReplayGateway start(@NonNull Path log, double rate) throws IOException {
+    var shards = 0;
+    var firstTimestamp = -1L;
+    try (var reader = GatewayLog.open(log)) {
+      for (var record = reader.next(); record != null; record = reader.next()) {
+        shards = Math.max(shards, record.shardId() + 1);
+        if (firstTimestamp < 0) {
+          firstTimestamp = record.timestamp();
+        }
+      }
+    }
+    if (shards == 0) {
+      throw new IOException("The gateway log " + log + " is empty");
+    }
+    var gateway = new ReplayGateway(log, rate, shards, firstTimestamp);
+    logger.info("Replaying {} ({} shards) at {}", log, shards, gateway.getUrl());
+    return gateway;
+  }
+
+  /**
+   * Retrieves the url shards must connect to.
+   *
+   * @return the websocket url of this gateway.
+   */
+  @NonNull public String getUrl() {
+    return "ws://" + server.getInetAddress().getHostAddress() + ':' + server.getLocalPort() + '/';
+  }
+
+  /**
+   * Retrieves the amount of shards present in the log.
+   *
+   * @return the highest recorded shard id plus one.
+   */
+  public int getShardsTotal() {
+    return shardsTotal;
+  }
+
+  /**
+   * Retrieves the histogram the event dispatch durations must be recorded into.
+   *
+   * @return the dispatch latency histogram.
+   */
+  @NonNull public LatencyHistogram getDispatchLatency() {
+    return dispatchLatency;
+  }
+
+  /**
+   * Creates a session controller pointing shards to this gateway. Its identify concurrency is the
+   * amount of recorded shards, so every shard identifies at once instead of every 5 seconds.
+   *
+   * @return the session controller.
+   */
+  @NonNull public SessionController sessionController() {
+    return new FixedGatewaySessionController(getUrl(), shardsTotal);
+  }
+
+  /**
+   * Retrieves the report of the replay.
+   *
+   * @return a future completed once every shard replayed its payloads.
+   */
+  @NonNull public CompletableFuture<Report> getReport() {
+    return report;
+  }
+
+  @Override
+  public void close() throws IOException {
+    threads.shutdownNow();
+    server.close();
+  }
+
+  private void accept() {
+    while (!server.isClosed()) {
+      try {
+        var socket = server.accept();
+        threads.execute(() -> serve(socket));
+      } catch (IOException e) {
+        if (!server.isClosed()) {
+          logger.error("Replay gateway failed to accept a connection", e);
+        }
+      }
+    }
+  }
+
+  private void serve(Socket socket) {
+    try (var connection = new GatewayConnection(socket)) {
+      connection.send(HELLO);
+      for (var frame = connection.read(); frame != null; frame = connection.read()) {
+        var message = DataObject.fromJson(frame);
+        switch (message.getInt("op", -1)) {
+          case 1 -> connection.send(HEARTBEAT_ACK);
+          case 2 -> {
+            var shardId = message.getObject("d").getArray("shard").getInt(0);
+            threads.execute(() -> replay(connection, shardId));
+          }
+          case 6 -> connection.send(INVALID_SESSION);
+          default -> logger.debug("Ignoring gateway message {}", message);
+        }
+      }
+    } catch (IOException e) {
+      logger.debug("Replay connection closed", e);
+    }
+  }
+
+  private void replay(GatewayConnection connection, int shardId) {
+    begin();
+    var sent = 0;
+    try (var reader = GatewayLog.open(log)) {
+      for (var record = reader.next(); record != null; record = reader.next()) {
+        if (record.shardId() != shardId) {
+          continue;
+        }
+        if (rate > 0) {
+          var target = epoch + (long) ((record.timestamp() - firstTimestamp) / rate);
+          for (var wait = target - System.nanoTime(); wait > 0; wait = target - System.nanoTime()) {
+            LockSupport.parkNanos(wait);
+          }
+        }
+        connection.send(record.payload());
+        sent++;
+      }
+    } catch (IOException e) {
+      logger.warn("Replay of shard {} interrupted after {} payloads", shardId, sent, e);
+    }
+    logger.info("Shard {} replayed {} payloads", shardId, sent);
+    if (replaying.decrementAndGet() == 0) {
+      threads.execute(this::awaitDispatches);
+    }
+  }
+
+  private synchronized void begin() {
+    if (replaying.getAndIncrement() == 0 && epoch == 0) {
+      dispatchLatency.reset();
+      gcCountBaseline = gcCount();
+      gcTimeBaseline = gcTime();
+      epoch = System.nanoTime();
+    }
+  }
+
+  // Events are still being dispatched after the last payload is sent
+  private void awaitDispatches() {
+    var count = dispatchLatency.count();
+    var lastChange = System.nanoTime();
+    while (System.nanoTime() - lastChange < QUIET_PERIOD) {
+      LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(100));
+      var current = dispatchLatency.count();
+      if (current != count) {
+        count = current;
+        lastChange = System.nanoTime();
+      }
+    }
+    if (replaying.get() > 0) {
+      return;
+    }
+    Report result;
+    synchronized (this) {
+      result =
+          new Report(
+              count,
+              lastChange - epoch,
+              dispatchLatency.percentile(0.5),
+              dispatchLatency.percentile(0.99),
+              gcCount() - gcCountBaseline,
+              gcTime() - gcTimeBaseline);
+    }
+    logger.info(
+        "Replay finished: {} events in {} ms, {} events/s, dispatch p50 {} us, p99 {} us, {} GCs"
+            + " taking {} ms",
+        result.events(),
+        TimeUnit.NANOSECONDS.toMillis(result.elapsedNanos()),
+        String.format("%.1f", result.eventsPerSecond()),
+        TimeUnit.NANOSECONDS.toMicros(result.p50Nanos()),
+        TimeUnit.NANOSECONDS.toMicros(result.p99Nanos()),
+        result.gcCount(),
+        result.gcMillis());
+    report.complete(result);
+  }
+
+  private static long gcCount() {
+    var total = 0L;
+    for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+      total += Math.max(0, collector.getCollectionCount());
+    }
+    return total;
+  }
+
+  private static long gcTime() {
+    var total = 0L;
+    for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+      total += Math.max(0, collector.getCollectionTime());
+    }
+    return total;
+  }
+
+  private static byte[] utf8(String text) {
+    return text.getBytes(StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Outcome of a replay.
+   *
+   * @param events the amount of dispatched events.
+   * @param elapsedNanos the time from the first identification to the last dispatched event.
+   * @param p50Nanos the median dispatch duration.
+   * @param p99Nanos the 99th percentile dispatch duration.
+   * @param gcCount the amount of garbage collections during the replay.
+   * @param gcMillis the time spent in garbage collection during the replay.
+   */
+  @Desugar
+  public record Report(
+      long events, long elapsedNanos, long p50Nanos, long p99Nanos, long gcCount, long gcMillis) {
+    public double eventsPerSecond() {
+      return elapsedNanos <= 0 ? 0 : events * 1e9 / elapsedNanos;
+    }
+  }
+}
@@ -31,12 +31,11 @@ public class DiscordLocaleResolver extends AbstractLocaleResolver<DiscordContext
 
   @NotNull @Override
   public Optional<Locale> resolve(DiscordContextData context) {
-    var locale = context.getUserLocale();
-    locale = locale == null ? context.getGuildLocale() : locale;
+    var locale = context.getLocale();
     if (locale == null) {
       return Optional.empty();
     } else {
-      return Optional.of(Locale.forLanguageTag(locale.getLocale()));
+      return Optional.of(DiscordLocales.toLocale(locale));
     }
   }
 }
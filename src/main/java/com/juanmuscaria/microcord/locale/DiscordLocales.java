@@ -0,0 +1,67 @@
+/*
+ * Copyright 2023 juanmuscaria
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.juanmuscaria.microcord.locale;
+
+import io.micronaut.core.annotation.NonNull;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import net.dv8tion.jda.api.interactions.DiscordLocale;
+
+/**
+ * Conversions between {@link DiscordLocale} and {@link Locale}. The java locale of every discord
+ * locale is parsed once, instead of calling {@link Locale#forLanguageTag(String)} on every use.
+ */
+public final class DiscordLocales {
+  private static final EnumMap<DiscordLocale, Locale> LOCALES = new EnumMap<>(DiscordLocale.class);
+  private static final List<DiscordLocale> SUPPORTED;
+
+  static {
+    var supported = new ArrayList<DiscordLocale>();
+    for (DiscordLocale locale : DiscordLocale.values()) {
+      LOCALES.put(locale, Locale.forLanguageTag(locale.getLocale()));
+      if (locale != DiscordLocale.UNKNOWN) {
+        supported.add(locale);
+      }
+    }
+    SUPPORTED = Collections.unmodifiableList(supported);
+  }
+
+  private DiscordLocales() {
+    // Sealed class
+  }
+
+  /**
+   * Converts a discord locale to a java locale.
+   *
+   * @param locale the discord locale.
+   * @return the equivalent java locale.
+   */
+  @NonNull public static Locale toLocale(@NonNull DiscordLocale locale) {
+    return LOCALES.get(locale);
+  }
+
+  /**
+   * Retrieves all locales supported by discord, which excludes {@link DiscordLocale#UNKNOWN}.
+   *
+   * @return an immutable list of the supported locales.
+   */
+  @NonNull public static List<DiscordLocale> supported() {
+    return SUPPORTED;
+  }
+}
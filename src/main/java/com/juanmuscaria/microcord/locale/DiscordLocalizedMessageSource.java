@@ -16,38 +16,93 @@
 package com.juanmuscaria.microcord.locale;
 
 import com.juanmuscaria.microcord.annotations.DiscordScope;
-import com.juanmuscaria.microcord.scope.DiscordAware;
 import com.juanmuscaria.microcord.scope.DiscordContextData;
+import com.juanmuscaria.microcord.scope.LocaleAware;
 import io.micronaut.context.AbstractLocalizedMessageSource;
 import io.micronaut.context.MessageSource;
+import io.micronaut.core.annotation.NonNull;
 import io.micronaut.core.util.LocaleResolver;
 import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
 import org.jetbrains.annotations.NotNull;
 
-@DiscordScope
+/**
+ * Message source localized to the locale of the current discord event. Its only state is the
+ * locale resolved by the {@link LocaleResolver}, a single instance is shared by every event
+ * resolved to the same locale.
+ *
+ * <p>Messages are parsed once per locale and kept in the {@link MessageTemplateCache}, looking a
+ * message up again only fills in its variables.
+ */
+@DiscordScope(shareBy = DiscordScope.ShareBy.LOCALE)
 public class DiscordLocalizedMessageSource
-    extends AbstractLocalizedMessageSource<DiscordContextData> implements DiscordAware {
+    extends AbstractLocalizedMessageSource<DiscordContextData> implements LocaleAware {
+  private static final Object[] NO_ARGUMENTS = new Object[0];
+  private final MessageTemplateCache templates;
   private Locale locale;
 
   /**
    * @param localeResolver The locale resolver
    * @param messageSource The message source
+   * @param templates The cache of the parsed messages of the message source
    */
   public DiscordLocalizedMessageSource(
-      LocaleResolver<DiscordContextData> localeResolver, MessageSource messageSource) {
+      LocaleResolver<DiscordContextData> localeResolver,
+      MessageSource messageSource,
+      MessageTemplateCache templates) {
     super(localeResolver, messageSource);
+    this.templates = templates;
+  }
+
+  @NonNull @Override
+  public Optional<String> getMessage(@NonNull String code) {
+    return templates.getMessage(getLocale(), code, NO_ARGUMENTS);
+  }
+
+  @NonNull @Override
+  public Optional<String> getMessage(@NonNull String code, Object... variables) {
+    return templates.getMessage(getLocale(), code, variables);
+  }
+
+  @NonNull @Override
+  public Optional<String> getMessage(@NonNull String code, Map<String, Object> variables) {
+    return templates.getMessage(getLocale(), code, variables);
+  }
+
+  @NonNull @Override
+  public String getMessageOrDefault(@NonNull String code, @NonNull String defaultMessage) {
+    return getMessageOrDefault(code, defaultMessage, NO_ARGUMENTS);
+  }
+
+  @NonNull @Override
+  public String getMessageOrDefault(
+      @NonNull String code, @NonNull String defaultMessage, Object... variables) {
+    var message = templates.getMessage(getLocale(), code, variables);
+    return message.isPresent()
+        ? message.get()
+        : templates.format(getLocale(), defaultMessage, variables);
+  }
+
+  @NonNull @Override
+  public String getMessageOrDefault(
+      @NonNull String code, @NonNull String defaultMessage, Map<String, Object> variables) {
+    var message = templates.getMessage(getLocale(), code, variables);
+    return message.isPresent()
+        ? message.get()
+        : templates.format(getLocale(), defaultMessage, variables);
   }
 
   @NotNull @Override
   protected Locale getLocale() {
     if (locale == null) {
-      throw new IllegalStateException("DiscordAware::setDiscordContext should have set the locale");
+      throw new IllegalStateException("LocaleAware::setLocale should have set the locale");
     }
     return locale;
   }
 
   @Override
-  public void setDiscordContext(DiscordContextData context) {
-    this.locale = resolveLocale(context);
+  public void setLocale(Locale locale) {
+    this.locale = locale;
   }
 }
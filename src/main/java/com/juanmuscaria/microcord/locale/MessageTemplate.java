@@ -0,0 +1,150 @@
+/*
+ * Copyright 2023 juanmuscaria
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.juanmuscaria.microcord.locale;
+
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * A message split into its literal parts and {@code {variable}} placeholders once, formatting it
+ * only appends the parts. Placeholders follow {@code MessageSource#interpolate}: variables are
+ * replaced by their value, numeric names by the positional argument, and anything else by the
+ * message it names, unresolved placeholders are kept as they are.
+ */
+final class MessageTemplate {
+  /** Cached for keys without a message. */
+  static final MessageTemplate MISSING = new MessageTemplate("", new String[0], new int[0]);
+
+  private final String message;
+  // Literal parts and placeholder names alternate, starting and ending with a literal
+  private final String[] parts;
+  // Positional index of each placeholder, -1 for named ones
+  private final int[] indexes;
+
+  private MessageTemplate(String message, String[] parts, int[] indexes) {
+    this.message = message;
+    this.parts = parts;
+    this.indexes = indexes;
+  }
+
+  /**
+   * Parses a message.
+   *
+   * @param message the message, possibly with placeholders.
+   * @return the parsed message.
+   */
+  static MessageTemplate parse(String message) {
+    var parts = new ArrayList<String>();
+    var start = 0;
+    var open = message.indexOf('{');
+    while (open >= 0) {
+      var close = message.indexOf('}', open + 2);
+      if (close < 0) {
+        break;
+      }
+      parts.add(message.substring(start, open));
+      parts.add(message.substring(open + 1, close));
+      start = close + 1;
+      open = message.indexOf('{', start);
+    }
+    parts.add(message.substring(start));
+
+    var indexes = new int[parts.size() / 2];
+    for (int i = 0; i < indexes.length; i++) {
+      indexes[i] = indexOf(parts.get(i * 2 + 1));
+    }
+    return new MessageTemplate(message, parts.toArray(new String[0]), indexes);
+  }
+
+  /**
+   * Formats this message with positional arguments.
+   *
+   * @param arguments the arguments, {@code {0}} is replaced by the first one.
+   * @param messages resolves placeholders that are not arguments to other messages.
+   * @return the formatted message.
+   */
+  String format(Object[] arguments, Function<String, String> messages) {
+    if (indexes.length == 0) {
+      return message;
+    }
+    var builder = new StringBuilder(message.length() + 16 * indexes.length);
+    builder.append(parts[0]);
+    for (int i = 0; i < indexes.length; i++) {
+      var index = indexes[i];
+      var name = parts[i * 2 + 1];
+      if (index >= 0 && index < arguments.length && arguments[index] != null) {
+        builder.append(arguments[index]);
+      } else {
+        appendMessage(builder, name, messages);
+      }
+      builder.append(parts[i * 2 + 2]);
+    }
+    return builder.toString();
+  }
+
+  /**
+   * Formats this message with named variables.
+   *
+   * @param variables the variables, {@code {name}} is replaced by the value of {@code name}.
+   * @param messages resolves placeholders that are not variables to other messages.
+   * @return the formatted message.
+   */
+  String format(Map<String, Object> variables, Function<String, String> messages) {
+    if (indexes.length == 0) {
+      return message;
+    }
+    var builder = new StringBuilder(message.length() + 16 * indexes.length);
+    builder.append(parts[0]);
+    for (int i = 0; i < indexes.length; i++) {
+      var name = parts[i * 2 + 1];
+      var value = variables.get(name);
+      if (value != null) {
+        builder.append(value);
+      } else {
+        appendMessage(builder, name, messages);
+      }
+      builder.append(parts[i * 2 + 2]);
+    }
+    return builder.toString();
+  }
+
+  boolean isMissing() {
+    return this == MISSING;
+  }
+
+  private static void appendMessage(
+      StringBuilder builder, String name, Function<String, String> messages) {
+    var resolved = messages.apply(name);
+    if (resolved != null) {
+      builder.append(resolved);
+    } else {
+      builder.append('{').append(name).append('}');
+    }
+  }
+
+  private static int indexOf(String name) {
+    if (name.isEmpty() || name.length() > 9) {
+      return -1;
+    }
+    for (int i = 0; i < name.length(); i++) {
+      if (name.charAt(i) < '0' || name.charAt(i) > '9') {
+        return -1;
+      }
+    }
+    return Integer.parseInt(name);
+  }
+}
@@ -0,0 +1,190 @@
+/*
+ * Copyright 2023 juanmuscaria
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.juanmuscaria.microcord.locale;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.bsideup.jabel.Desugar;
+import com.juanmuscaria.microcord.configuration.JdaConfiguration;
+import com.juanmuscaria.microcord.metrics.MicrocordMetrics;
+import io.micronaut.context.MessageSource;
+import io.micronaut.context.event.ApplicationEventListener;
+import io.micronaut.core.annotation.NonNull;
+import io.micronaut.runtime.context.scope.refresh.RefreshEvent;
+import jakarta.inject.Singleton;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Bounded cache of the parsed messages of a {@link MessageSource}, by locale and key. A message is
+ * looked up and parsed once, formatting it again only fills in its variables. Keys without a
+ * message are cached as well.
+ *
+ * <p>The cache is cleared on {@link RefreshEvent}, as the messages may have been reloaded. Its
+ * statistics are exposed through {@link MicrocordMetrics} as the {@code messages} cache.
+ */
+@Singleton
+public final class MessageTemplateCache implements ApplicationEventListener<RefreshEvent> {
+  private static final Object[] NO_ARGUMENTS = new Object[0];
+  private final MessageSource messageSource;
+  private final Cache<TemplateKey, MessageTemplate> templates;
+
+  MessageTemplateCache(
+      MessageSource messageSource, JdaConfiguration configuration, MicrocordMetrics metrics) {
+    this(messageSource, configuration.getMessages().getCacheSize());
+    var stats = templates;
+    metrics.monitorCache(
+        "messages",
+        new MicrocordMetrics.CacheStatistics() {
+          @Override
+          public long hitCount() {
+            return stats.stats().hitCount();
+          }
+
+          @Override
+          public long missCount() {
+            return stats.stats().missCount();
+          }
+
+          @Override
+          public long evictionCount() {
+            return stats.stats().evictionCount();
+          }
+
+          @Override
+          public long size() {
+            return stats.estimatedSize();
+          }
+        });
+  }
+
+  private MessageTemplateCache(MessageSource messageSource, long maximumSize) {
+    this.messageSource = messageSource;
+    this.templates = Caffeine.newBuilder().maximumSize(maximumSize).recordStats().build();
+  }
+
+  /**
+   * Creates a cache not bound to the application context, its statistics are not exposed.
+   *
+   * @param messageSource the source of the messages.
+   * @param maximumSize the maximum amount of cached messages.
+   * @return the cache.
+   */
+  @NonNull public static MessageTemplateCache create(
+      @NonNull MessageSource messageSource, long maximumSize) {
+    return new MessageTemplateCache(messageSource, maximumSize);
+  }
+
+  /**
+   * Retrieves a message formatted with positional arguments.
+   *
+   * @param locale the locale of the message.
+   * @param code the message key.
+   * @param arguments the arguments, {@code {0}} is replaced by the first one.
+   * @return the formatted message, or empty if there's no message for the key.
+   */
+  @NonNull public Optional<String> getMessage(
+      @NonNull Locale locale, @NonNull String code, @NonNull Object... arguments) {
+    var template = get(locale, code);
+    if (template.isMissing()) {
+      return Optional.empty();
+    }
+    return Optional.of(template.format(arguments, name -> resolve(locale, name)));
+  }
+
+  /**
+   * Retrieves a message formatted with named variables.
+   *
+   * @param locale the locale of the message.
+   * @param code the message key.
+   * @param variables the variables, {@code {name}} is replaced by the value of {@code name}.
+   * @return the formatted message, or empty if there's no message for the key.
+   */
+  @NonNull public Optional<String> getMessage(
+      @NonNull Locale locale, @NonNull String code, @NonNull Map<String, Object> variables) {
+    var template = get(locale, code);
+    if (template.isMissing()) {
+      return Optional.empty();
+    }
+    return Optional.of(template.format(variables, name -> resolve(locale, name)));
+  }
+
+  /**
+   * Formats a message that does not come from the message source, such as a default message.
+   * These are parsed on every call.
+   *
+   * @param locale the locale placeholders naming other messages are resolved in.
+   * @param message the message to format.
+   * @param arguments the positional arguments.
+   * @return the formatted message.
+   */
+  @NonNull public String format(
+      @NonNull Locale locale, @NonNull String message, @NonNull Object... arguments) {
+    return MessageTemplate.parse(message).format(arguments, name -> resolve(locale, name));
+  }
+
+  /**
+   * Formats a message that does not come from the message source with named variables.
+   *
+   * @param locale the locale placeholders naming other messages are resolved in.
+   * @param message the message to format.
+   * @param variables the named variables.
+   * @return the formatted message.
+   */
+  @NonNull public String format(
+      @NonNull Locale locale, @NonNull String message, @NonNull Map<String, Object> variables) {
+    return MessageTemplate.parse(message).format(variables, name -> resolve(locale, name));
+  }
+
+  /**
+   * Retrieves the ratio of lookups that found their message already parsed.
+   *
+   * @return the hit rate, 1 if nothing was looked up yet.
+   */
+  public double hitRate() {
+    return templates.stats().hitRate();
+  }
+
+  /** Discards every cached message. */
+  public void invalidateAll() {
+    templates.invalidateAll();
+  }
+
+  @Override
+  public void onApplicationEvent(RefreshEvent event) {
+    invalidateAll();
+  }
+
+  private MessageTemplate get(Locale locale, String code) {
+    return templates.get(
+        new TemplateKey(locale, code),
+        key ->
+            messageSource
+                .getMessage(key.code(), key.locale())
+                .map(MessageTemplate::parse)
+                .orElse(MessageTemplate.MISSING));
+  }
+
+  // Placeholders naming another message are replaced by it, without its own placeholders
+  private String resolve(Locale locale, String code) {
+    var template = get(locale, code);
+    return template.isMissing() ? null : template.format(NO_ARGUMENTS, name -> null);
+  }
+
+  @Desugar
+  private record TemplateKey(Locale locale, String code) {}
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright 2023 juanmuscaria
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.juanmuscaria.microcord.metrics;
+
+import io.micronaut.core.annotation.NonNull;
+import io.micronaut.core.annotation.Nullable;
+
+/**
+ * Metrics recorded by microcord. Meters are resolved up front, per command route and per event
+ * type, so recording a measurement never builds tags.
+ *
+ * <p>The Micrometer implementation is only active when a {@code MeterRegistry} bean exists,
+ * otherwise a no-op implementation is used and {@link #isEnabled()} returns false.
+ */
+public interface MicrocordMetrics {
+
+  /**
+   * Checks if measurements are recorded, callers can skip timing anything when they are not.
+   *
+   * @return whether this implementation records anything.
+   */
+  boolean isEnabled();
+
+  /**
+   * Resolves the timer of a command executor.
+   *
+   * @param command the command name.
+   * @param group the sub-command group, or null.
+   * @param subCommand the sub-command, or null.
+   * @return the timer of the executor.
+   */
+  @NonNull CommandTimer commandTimer(
+      @NonNull String command, @Nullable String group, @Nullable String subCommand);
+
+  /**
+   * Counts an interaction for a command or sub-command that is not registered.
+   *
+   * @param shardId the shard that received the interaction.
+   */
+  void unknownCommand(int shardId);
+
+  /**
+   * Resolves the timer of an event type.
+   *
+   * @param eventType the event class.
+   * @return the timer of the event type.
+   */
+  @NonNull EventTimer eventTimer(@NonNull Class<?> eventType);
+
+  /**
+   * Exposes the statistics of a cache kept by microcord.
+   *
+   * @param name the cache name.
+   * @param statistics the statistics of the cache, read whenever the meters are published.
+   */
+  void monitorCache(@NonNull String name, @NonNull CacheStatistics statistics);
+
+  /** Result of a command invocation. */
+  enum Outcome {
+    /** The executor and its asynchronous result completed normally. */
+    SUCCESS,
+    /** The executor or its asynchronous result failed. */
+    EXCEPTION,
+    /** The invocation was rejected by a rate limit, recorded without a duration. */
+    RATE_LIMITED
+  }
+
+  /** Latency and throughput of a single command executor, by shard and outcome. */
+  interface CommandTimer {
+    void record(int shardId, @NonNull Outcome outcome, long nanos);
+  }
+
+  /** Live statistics of a cache. */
+  interface CacheStatistics {
+    long hitCount();
+
+    long missCount();
+
+    long evictionCount();
+
+    long size();
+  }
+
+  /** Dispatch time of a single event type. */
+  interface EventTimer {
+    /** Records the time spent in the Micronaut listeners. */
+    void recordPublish(long nanos);
+
+    /** Records the time spent in the JDA listeners. */
+    void recordListeners(long nanos);
+  }
+}
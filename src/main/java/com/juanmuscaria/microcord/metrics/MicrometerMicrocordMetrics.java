@@ -0,0 +1,198 @@
+/*
+ * Copyright 2023 juanmuscaria
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.juanmuscaria.microcord.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import io.micronaut.context.annotation.Requires;
+import io.micronaut.core.annotation.NonNull;
+import io.micronaut.core.annotation.Nullable;
+import jakarta.inject.Singleton;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntFunction;
+
+/**
+ * Micrometer backed metrics. Meters:
+ *
+ * <ul>
+ *   <li>{@code microcord.commands} timer, tagged by command, group, subcommand, shard and outcome.
+ *   <li>{@code microcord.commands.unknown} counter, tagged by shard.
+ *   <li>{@code microcord.events.publish} timer of the Micronaut listeners, tagged by event type.
+ *   <li>{@code microcord.events.listeners} timer of the JDA listeners, tagged by event type.
+ *   <li>{@code microcord.cache.gets} function counter, tagged by cache and result ({@code hit} or
+ *       {@code miss}), {@code microcord.cache.evictions} function counter and {@code
+ *       microcord.cache.size} gauge, tagged by cache.
+ * </ul>
+ *
+ * Shards are only known at runtime, meters of a shard are resolved the first time it records
+ * something and kept in arrays indexed by the shard id.
+ */
+@Singleton
+@Requires(classes = MeterRegistry.class)
+@Requires(beans = MeterRegistry.class)
+class MicrometerMicrocordMetrics implements MicrocordMetrics {
+  private static final String NONE = "none";
+  private static final Outcome[] OUTCOMES = Outcome.values();
+  private final MeterRegistry registry;
+  private final ShardMeters<Counter> unknownCommands;
+  private final ClassValue<EventTimer> eventTimers =
+      new ClassValue<EventTimer>() {
+        @Override
+        protected EventTimer computeValue(Class<?> type) {
+          return new MicrometerEventTimer(type);
+        }
+      };
+
+  MicrometerMicrocordMetrics(MeterRegistry registry) {
+    this.registry = registry;
+    this.unknownCommands =
+        new ShardMeters<>(
+            shardId ->
+                Counter.builder("microcord.commands.unknown")
+                    .description("Interactions for commands that are not registered")
+                    .tag("shard", Integer.toString(shardId))
+                    .register(registry));
+  }
+
+  @Override
+  public boolean isEnabled() {
+    return true;
+  }
+
+  @NonNull @Override
+  public CommandTimer commandTimer(
+      @NonNull String command, @Nullable String group, @Nullable String subCommand) {
+    var tags =
+        Tags.of(
+            "command", command,
+            "group", group == null || group.isEmpty() ? NONE : group,
+            "subcommand", subCommand == null || subCommand.isEmpty() ? NONE : subCommand);
+    var timers =
+        new ShardMeters<Timer[]>(
+            shardId -> {
+              var shardTimers = new Timer[OUTCOMES.length];
+              for (Outcome outcome : OUTCOMES) {
+                shardTimers[outcome.ordinal()] =
+                    Timer.builder("microcord.commands")
+                        .description("Command executor latency")
+                        .tags(tags)
+                        .tag("shard", Integer.toString(shardId))
+                        .tag("outcome", outcome.name().toLowerCase(Locale.ROOT))
+                        .register(registry);
+              }
+              return shardTimers;
+            });
+    return (shardId, outcome, nanos) ->
+        timers.get(shardId)[outcome.ordinal()].record(nanos, TimeUnit.NANOSECONDS);
+  }
+
+  @Override
+  public void unknownCommand(int shardId) {
+    unknownCommands.get(shardId).increment();
+  }
+
+  @NonNull @Override
+  public EventTimer eventTimer(@NonNull Class<?> eventType) {
+    return eventTimers.get(eventType);
+  }
+
+  @Override
+  public void monitorCache(@NonNull String name, @NonNull CacheStatistics statistics) {
+    FunctionCounter.builder("microcord.cache.gets", statistics, CacheStatistics::hitCount)
+        .description("Cache lookups")
+        .tags("cache", name, "result", "hit")
+        .register(registry);
+    FunctionCounter.builder("microcord.cache.gets", statistics, CacheStatistics::missCount)
+        .description("Cache lookups")
+        .tags("cache", name, "result", "miss")
+        .register(registry);
+    FunctionCounter.builder("microcord.cache.evictions", statistics, CacheStatistics::evictionCount)
+        .description("Entries evicted from the cache")
+        .tag("cache", name)
+        .register(registry);
+    Gauge.builder("microcord.cache.size", statistics, CacheStatistics::size)
+        .description("Entries in the cache")
+        .tag("cache", name)
+        .register(registry);
+  }
+
+  private final class MicrometerEventTimer implements EventTimer {
+    private final Timer publish;
+    private final Timer listeners;
+
+    private MicrometerEventTimer(Class<?> eventType) {
+      var type = eventType.getSimpleName();
+      this.publish =
+          Timer.builder("microcord.events.publish")
+              .description("Time spent in the Micronaut listeners of an event")
+              .tag("type", type)
+              .register(registry);
+      this.listeners =
+          Timer.builder("microcord.events.listeners")
+              .description("Time spent in the JDA listeners of an event")
+              .tag("type", type)
+              .register(registry);
+    }
+
+    @Override
+    public void recordPublish(long nanos) {
+      publish.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void recordListeners(long nanos) {
+      listeners.record(nanos, TimeUnit.NANOSECONDS);
+    }
+  }
+
+  /** Meters indexed by shard id, resolved on first use and replaced as a whole when growing. */
+  private static final class ShardMeters<T> {
+    private final IntFunction<T> factory;
+    private volatile Object[] meters = new Object[0];
+
+    private ShardMeters(IntFunction<T> factory) {
+      this.factory = factory;
+    }
+
+    @SuppressWarnings("unchecked")
+    private T get(int shardId) {
+      var current = meters;
+      if (shardId < current.length && current[shardId] != null) {
+        return (T) current[shardId];
+      }
+      synchronized (this) {
+        current = meters;
+        if (shardId >= current.length) {
+          current = Arrays.copyOf(current, shardId + 1);
+        } else if (current[shardId] != null) {
+          return (T) current[shardId];
+        } else {
+          current = current.clone();
+        }
+        var meter = factory.apply(shardId);
+        current[shardId] = meter;
+        meters = current;
+        return meter;
+      }
+    }
+  }
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright 2023 juanmuscaria
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.juanmuscaria.microcord.metrics;
+
+import io.micronaut.context.annotation.Secondary;
+import io.micronaut.core.annotation.NonNull;
+import io.micronaut.core.annotation.Nullable;
+import jakarta.inject.Singleton;
+
+/** Used when Micrometer is not available, records nothing. */
+@Singleton
+@Secondary
+class NoopMicrocordMetrics implements MicrocordMetrics {
+  private static final CommandTimer NOOP_COMMAND_TIMER = (shardId, outcome, nanos) -> {};
+  private static final EventTimer NOOP_EVENT_TIMER =
+      new EventTimer() {
+        @Override
+        public void recordPublish(long nanos) {}
+
+        @Override
+        public void recordListeners(long nanos) {}
+      };
+
+  @Override
+  public boolean isEnabled() {
+    return false;
+  }
+
+  @NonNull @Override
+  public CommandTimer commandTimer(
+      @NonNull String command, @Nullable String group, @Nullable String subCommand) {
+    return NOOP_COMMAND_TIMER;
+  }
+
+  @Override
+  public void unknownCommand(int shardId) {}
+
+  @NonNull @Override
+  public EventTimer eventTimer(@NonNull Class<?> eventType) {
+    return NOOP_EVENT_TIMER;
+  }
+
+  @Override
+  public void monitorCache(@NonNull String name, @NonNull CacheStatistics statistics) {}
+}
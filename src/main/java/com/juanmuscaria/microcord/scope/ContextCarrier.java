@@ -0,0 +1,71 @@
+/*
+ * Copyright 2023 juanmuscaria
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.juanmuscaria.microcord.scope;
+
+import io.micronaut.core.annotation.NonNull;
+import io.micronaut.core.annotation.Nullable;
+
+/**
+ * Stores the discord context of the running thread behind {@link DiscordContext}. The carrier is
+ * selected once, when {@link DiscordContext} is first used, see {@link ContextCarriers}.
+ */
+public interface ContextCarrier {
+  /**
+   * Retrieves the context of the current thread.
+   *
+   * @return the current context, or null if there is none.
+   */
+  @Nullable DiscordContextData get();
+
+  /**
+   * Sets or clears the context of the current thread.
+   *
+   * @param context the new context, null to clear it.
+   */
+  void set(@Nullable DiscordContextData context);
+
+  /**
+   * Runs a task with its own context, anything set while it runs is discarded when it returns even
+   * if it is never cleared. Workers run every task through this method.
+   *
+   * @param task the task to run.
+   */
+  default void runIsolated(@NonNull Runnable task) {
+    var previous = get();
+    try {
+      task.run();
+    } finally {
+      set(previous);
+    }
+  }
+
+  /**
+   * Runs a task with the given context, the previous context of the thread is restored when it
+   * returns. Events are dispatched through this method.
+   *
+   * @param context the context of the task, null to run it without one.
+   * @param task the task to run.
+   */
+  default void runWith(@Nullable DiscordContextData context, @NonNull Runnable task) {
+    var previous = get();
+    set(context);
+    try {
+      task.run();
+    } finally {
+      set(previous);
+    }
+  }
+}
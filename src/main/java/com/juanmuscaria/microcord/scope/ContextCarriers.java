@@ -0,0 +1,127 @@
+/*
+ * Copyright 2023 juanmuscaria
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.juanmuscaria.microcord.scope;
+
+import io.micronaut.core.annotation.NonNull;
+
+/**
+ * Creates the {@link ContextCarrier} implementations. The carrier used by {@link DiscordContext} is
+ * chosen by the {@value #PROPERTY} system property:
+ *
+ * <ul>
+ *   <li>{@code thread-local}: a plain thread local, the context must be cleared by whoever sets it.
+ *   <li>{@code inheritable}: an inheritable thread local, threads started within a context, such as
+ *       virtual threads forked by structured concurrency, start with the same context.
+ *   <li>{@code scoped-value}: a {@code ScopedValue} binding per dispatch, threads forked within it
+ *       see the same context, requires Java 25 or newer, the default when available.
+ *   <li>the name of a class implementing {@link ContextCarrier} with a no-args constructor.
+ * </ul>
+ *
+ * <p>The library is compiled against Java 8, the scoped value carrier is only packaged for Java 25
+ * in the multi-release part of the jar and looked up at runtime. Releases always include it, other
+ * jars only when built with {@code -Pjava25}, otherwise thread-local stays the default.
+ */
+public final class ContextCarriers {
+  public static final String PROPERTY = "microcord.context.carrier";
+  private static final String SCOPED_VALUE_CARRIER =
+      "com.juanmuscaria.microcord.scope.ScopedValueContextCarrier";
+  private static final boolean SCOPED_VALUES;
+
+  static {
+    var supported = false;
+    try {
+      Class.forName(SCOPED_VALUE_CARRIER);
+      supported = true;
+    } catch (ClassNotFoundException | LinkageError ignored) {
+      // Running on a java version without scoped values
+    }
+    SCOPED_VALUES = supported;
+  }
+
+  private ContextCarriers() {
+    // Sealed class
+  }
+
+  /**
+   * Checks if the current runtime supports the scoped value carrier.
+   *
+   * @return whether {@link #scopedValue()} can be used.
+   */
+  public static boolean supportsScopedValues() {
+    return SCOPED_VALUES;
+  }
+
+  @NonNull public static ContextCarrier threadLocal() {
+    return new ThreadLocalContextCarrier(false);
+  }
+
+  @NonNull public static ContextCarrier inheritable() {
+    return new ThreadLocalContextCarrier(true);
+  }
+
+  /**
+   * Creates a carrier binding a scoped value for every task run by {@link
+   * ContextCarrier#runWith(DiscordContextData, Runnable)}, contexts set outside of those are kept
+   * in a thread local.
+   *
+   * @return the scoped value carrier.
+   * @throws UnsupportedOperationException if the runtime does not support scoped values.
+   */
+  @NonNull public static ContextCarrier scopedValue() {
+    if (!supportsScopedValues()) {
+      throw new UnsupportedOperationException("Scoped values require Java 25 or newer");
+    }
+    return instantiate(SCOPED_VALUE_CARRIER);
+  }
+
+  /**
+   * Creates a carrier by its name, as accepted by the {@value #PROPERTY} system property.
+   *
+   * @param name the carrier name or class name.
+   * @return the carrier.
+   * @throws IllegalArgumentException if there's no carrier with the given name.
+   */
+  @NonNull public static ContextCarrier named(@NonNull String name) {
+    return switch (name) {
+      case "thread-local" -> threadLocal();
+      case "inheritable" -> inheritable();
+      case "scoped-value" -> scopedValue();
+      default -> instantiate(name);
+    };
+  }
+
+  static ContextCarrier fromSystemProperty() {
+    var name = System.getProperty(PROPERTY);
+    if (name == null) {
+      return supportsScopedValues() ? scopedValue() : threadLocal();
+    }
+    return named(name);
+  }
+
+  private static ContextCarrier instantiate(String className) {
+    try {
+      var type = Class.forName(className);
+      if (!ContextCarrier.class.isAssignableFrom(type)) {
+        throw new IllegalArgumentException(className + " is not a ContextCarrier");
+      }
+      var constructor = type.getDeclaredConstructor();
+      constructor.setAccessible(true);
+      return (ContextCarrier) constructor.newInstance();
+    } catch (ReflectiveOperationException e) {
+      throw new IllegalArgumentException("Unable to create the context carrier " + className, e);
+    }
+  }
+}
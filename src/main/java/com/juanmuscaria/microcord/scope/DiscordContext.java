@@ -15,25 +15,64 @@
  */
 package com.juanmuscaria.microcord.scope;
 
+import io.micronaut.core.annotation.NonNull;
 import io.micronaut.core.annotation.Nullable;
 import java.util.Optional;
 
+/**
+ * Access to the discord context of the running thread. Where the context is stored depends on the
+ * {@link ContextCarrier} selected through the {@value ContextCarriers#PROPERTY} system property.
+ */
 public final class DiscordContext {
-  private static final ThreadLocal<DiscordContextData> CONTEXT = new ThreadLocal<>();
+  private static final ContextCarrier CARRIER = ContextCarriers.fromSystemProperty();
 
   private DiscordContext() {
     // Sealed class
   }
 
   public static void set(@Nullable DiscordContextData ctx) {
-    if (ctx == null) {
-      CONTEXT.remove();
-    } else {
-      CONTEXT.set(ctx);
-    }
+    CARRIER.set(ctx);
+  }
+
+  /**
+   * Retrieves the context of the current thread without wrapping it in an {@link Optional}.
+   *
+   * @return the current context, or null if there is none.
+   */
+  @Nullable public static DiscordContextData current() {
+    return CARRIER.get();
   }
 
   public static Optional<DiscordContextData> currentContext() {
-    return Optional.ofNullable(CONTEXT.get());
+    return Optional.ofNullable(CARRIER.get());
+  }
+
+  /**
+   * Runs a task with its own context, see {@link ContextCarrier#runIsolated(Runnable)}.
+   *
+   * @param task the task to run.
+   */
+  public static void runIsolated(@NonNull Runnable task) {
+    CARRIER.runIsolated(task);
+  }
+
+  /**
+   * Runs a task with the given context, see {@link ContextCarrier#runWith(DiscordContextData,
+   * Runnable)}.
+   *
+   * @param ctx the context of the task, null to run it without one.
+   * @param task the task to run.
+   */
+  public static void runWith(@Nullable DiscordContextData ctx, @NonNull Runnable task) {
+    CARRIER.runWith(ctx, task);
+  }
+
+  /**
+   * Retrieves the carrier storing the contexts.
+   *
+   * @return the context carrier in use.
+   */
+  @NonNull public static ContextCarrier getCarrier() {
+    return CARRIER;
   }
 }
@@ -16,30 +16,69 @@
 package com.juanmuscaria.microcord.scope;
 
 import com.juanmuscaria.microcord.annotations.DiscordScope;
+import com.juanmuscaria.microcord.locale.DiscordLocaleResolver;
+import io.micronaut.context.BeanProvider;
 import io.micronaut.context.event.ApplicationEventListener;
 import io.micronaut.context.scope.AbstractConcurrentCustomScope;
 import io.micronaut.context.scope.BeanCreationContext;
 import io.micronaut.context.scope.CreatedBean;
 import io.micronaut.core.annotation.NonNull;
+import io.micronaut.core.util.LocaleResolver;
 import io.micronaut.inject.BeanIdentifier;
+import io.micronaut.runtime.context.scope.refresh.RefreshEvent;
+import io.micronaut.runtime.event.annotation.EventListener;
+import jakarta.inject.Inject;
 import jakarta.inject.Singleton;
+import java.util.AbstractMap;
+import java.util.Collections;
+import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
 
-/** Discord custom scope largely based on HttpRequest custom scope */
+/**
+ * Discord custom scope largely based on HttpRequest custom scope. Beans declared with {@link
+ * DiscordScope#shareBy()} are created once per key and handed to every matching context, their
+ * lifecycle is not bound to the contexts and they are never stored in them.
+ *
+ * <p>Beans shared by locale are keyed by the locale the {@code LocaleResolver<DiscordContextData>}
+ * bean resolves for the event, and are destroyed on {@link RefreshEvent}.
+ */
 @Singleton
 public class DiscordContextCustomScope extends AbstractConcurrentCustomScope<DiscordScope>
     implements ApplicationEventListener<DiscordContextTerminatedEvent> {
 
+  /**
+   * @deprecated scoped beans are no longer stored in the context attributes, see {@link
+   *     DiscordContextData#hasScopedBeans()}.
+   */
+  @Deprecated
   public static final String SCOPED_BEANS_ATTRIBUTE = "com.juanmuscaria.microcord.SCOPED_BEANS";
 
+  private static final Object NOT_SHARED = new Object();
+  private final Supplier<LocaleResolver<DiscordContextData>> localeResolver;
+  // Per bean either NOT_SHARED or the shared instances by resolved locale
+  private final ConcurrentHashMap<BeanIdentifier, Object> sharedBeans = new ConcurrentHashMap<>();
+
+  /** Creates a scope resolving the locale of shared beans with a {@link DiscordLocaleResolver}. */
   public DiscordContextCustomScope() {
     super(DiscordScope.class);
+    final LocaleResolver<DiscordContextData> resolver = new DiscordLocaleResolver();
+    this.localeResolver = () -> resolver;
+  }
+
+  @Inject
+  public DiscordContextCustomScope(
+      BeanProvider<LocaleResolver<DiscordContextData>> localeResolver) {
+    super(DiscordScope.class);
+    this.localeResolver = localeResolver::get;
   }
 
   @Override
   public void close() {
     DiscordContext.currentContext().ifPresent(this::destroyBeans);
+    destroySharedBeans();
   }
 
   @Override
@@ -52,49 +91,168 @@ public class DiscordContextCustomScope extends AbstractConcurrentCustomScope<Dis
     destroyBeans(event.getSource());
   }
 
+  /**
+   * Destroys the beans shared between contexts, they are created again the next time they are
+   * used. The configuration they were created from may have changed.
+   *
+   * @param event the refresh event.
+   */
+  @EventListener
+  public void onRefresh(RefreshEvent event) {
+    destroySharedBeans();
+  }
+
+  /**
+   * Destroys the beans created within a context without going through the event bus, used by
+   * {@link ScopedCallbacks} for its short-lived context views.
+   *
+   * @param context the context being terminated.
+   */
+  public void terminate(@NonNull DiscordContextData context) {
+    // Most callbacks never create scoped beans, nothing to look up for those
+    if (context.hasScopedBeans()) {
+      destroyBeans(context);
+    }
+  }
+
   @NonNull @Override
   protected Map<BeanIdentifier, CreatedBean<?>> getScopeMap(boolean forCreation) {
-    final DiscordContextData context = DiscordContext.currentContext().orElse(null);
-    if (context != null) {
-      //noinspection ConstantConditions
-      return getContextAttributeMap(context, forCreation);
-    } else {
-      throw new IllegalStateException("No context present");
-    }
+    return new ContextBeans(currentContext());
   }
 
   @NonNull @Override
   protected <T> CreatedBean<T> doCreate(@NonNull BeanCreationContext<T> creationContext) {
-    final DiscordContextData context = DiscordContext.currentContext().orElse(null);
+    final DiscordContextData context = currentContext();
+    final Object shared =
+        sharedBeans.computeIfAbsent(creationContext.id(), id -> sharingOf(creationContext));
+    if (shared != NOT_SHARED) {
+      //noinspection unchecked
+      return getShared(
+          (ConcurrentHashMap<Locale, CreatedBean<?>>) shared, creationContext, localeOf(context));
+    }
     final CreatedBean<T> createdBean = super.doCreate(creationContext);
     final T bean = createdBean.bean();
     if (bean instanceof DiscordAware discordAware) {
       discordAware.setDiscordContext(context);
     }
+    if (bean instanceof LocaleAware localeAware) {
+      localeAware.setLocale(localeOf(context));
+    }
     return createdBean;
   }
 
+  private <T> CreatedBean<T> getShared(
+      ConcurrentHashMap<Locale, CreatedBean<?>> instances,
+      BeanCreationContext<T> creationContext,
+      Locale locale) {
+    final CreatedBean<?> instance = instances.get(locale);
+    if (instance != null) {
+      //noinspection unchecked
+      return (CreatedBean<T>) instance;
+    }
+    // Shared beans never see the event context, only the locale they are shared by
+    final CreatedBean<T> created = super.doCreate(creationContext);
+    if (created.bean() instanceof LocaleAware localeAware) {
+      localeAware.setLocale(locale);
+    }
+    final CreatedBean<?> raced = instances.putIfAbsent(locale, created);
+    if (raced != null) {
+      // Lost the race with another event in the same locale
+      created.close();
+      //noinspection unchecked
+      return (CreatedBean<T>) raced;
+    }
+    return created;
+  }
+
+  private Locale localeOf(DiscordContextData context) {
+    Locale locale = context.getResolvedLocale();
+    if (locale == null) {
+      locale = localeResolver.get().resolveOrDefault(context);
+      context.setResolvedLocale(locale);
+    }
+    return locale;
+  }
+
+  private static DiscordContextData currentContext() {
+    return DiscordContext.currentContext()
+        .orElseThrow(() -> new IllegalStateException("No context present"));
+  }
+
+  private static Object sharingOf(BeanCreationContext<?> creationContext) {
+    final DiscordScope.ShareBy shareBy =
+        creationContext
+            .definition()
+            .enumValue(DiscordScope.class, "shareBy", DiscordScope.ShareBy.class)
+            .orElse(DiscordScope.ShareBy.NONE);
+    return shareBy == DiscordScope.ShareBy.LOCALE
+        ? new ConcurrentHashMap<Locale, CreatedBean<?>>()
+        : NOT_SHARED;
+  }
+
   private void destroyBeans(DiscordContextData context) {
-    ConcurrentHashMap<BeanIdentifier, CreatedBean<?>> requestScopedBeans =
-        getContextAttributeMap(context, false);
-    if (requestScopedBeans != null) {
-      destroyScope(requestScopedBeans);
+    ConcurrentHashMap<BeanIdentifier, CreatedBean<?>> scopedBeans = context.getScopedBeans(false);
+    if (scopedBeans != null) {
+      destroyScope(scopedBeans);
+    }
+  }
+
+  private void destroySharedBeans() {
+    for (Object shared : sharedBeans.values()) {
+      if (shared != NOT_SHARED) {
+        //noinspection unchecked
+        var instances = (ConcurrentHashMap<Locale, CreatedBean<?>>) shared;
+        for (Locale locale : instances.keySet()) {
+          final CreatedBean<?> instance = instances.remove(locale);
+          if (instance != null) {
+            instance.close();
+          }
+        }
+      }
     }
   }
 
-  @SuppressWarnings("unchecked")
-  private ConcurrentHashMap<BeanIdentifier, CreatedBean<?>> getContextAttributeMap(
-      DiscordContextData context, boolean create) {
-    Map<String, Object> attrs = context.getAttributes();
-    Object o = attrs.get(SCOPED_BEANS_ATTRIBUTE);
-    if (o instanceof ConcurrentHashMap) {
-      return (ConcurrentHashMap<BeanIdentifier, CreatedBean<?>>) o;
+  /**
+   * Scope map of a context. Beans shared by locale are read from the shared instances and never
+   * written to the context, which only allocates its own map once a per event bean is created.
+   */
+  private final class ContextBeans extends AbstractMap<BeanIdentifier, CreatedBean<?>> {
+    private final DiscordContextData context;
+
+    private ContextBeans(DiscordContextData context) {
+      this.context = context;
     }
-    if (create) {
-      ConcurrentHashMap<BeanIdentifier, CreatedBean<?>> scopedBeans = new ConcurrentHashMap<>();
-      attrs.put(SCOPED_BEANS_ATTRIBUTE, scopedBeans);
-      return scopedBeans;
+
+    @Override
+    public CreatedBean<?> get(Object key) {
+      final Object shared = sharedBeans.get(key);
+      if (shared != null && shared != NOT_SHARED) {
+        return (CreatedBean<?>) ((ConcurrentHashMap<?, ?>) shared).get(localeOf(context));
+      }
+      final Map<BeanIdentifier, CreatedBean<?>> beans = context.getScopedBeans(false);
+      return beans == null ? null : beans.get(key);
+    }
+
+    @Override
+    public CreatedBean<?> put(BeanIdentifier key, CreatedBean<?> value) {
+      final Object shared = sharedBeans.get(key);
+      if (shared != null && shared != NOT_SHARED) {
+        // Already kept by doCreate with the other shared instances
+        return null;
+      }
+      return context.getScopedBeans(true).put(key, value);
+    }
+
+    @Override
+    public CreatedBean<?> remove(Object key) {
+      final Map<BeanIdentifier, CreatedBean<?>> beans = context.getScopedBeans(false);
+      return beans == null ? null : beans.remove(key);
+    }
+
+    @NonNull @Override
+    public Set<Entry<BeanIdentifier, CreatedBean<?>>> entrySet() {
+      final Map<BeanIdentifier, CreatedBean<?>> beans = context.getScopedBeans(false);
+      return beans == null ? Collections.emptySet() : beans.entrySet();
     }
-    return null;
   }
 }
@@ -15,32 +15,350 @@
  */
 package com.juanmuscaria.microcord.scope;
 
+import io.micronaut.context.scope.CreatedBean;
 import io.micronaut.core.annotation.NonNull;
 import io.micronaut.core.annotation.Nullable;
+import io.micronaut.inject.BeanIdentifier;
+import java.util.Collections;
+import java.util.Locale;
 import java.util.Map;
+import java.util.Objects;
 import java.util.concurrent.ConcurrentHashMap;
-import lombok.AllArgsConstructor;
-import lombok.EqualsAndHashCode;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
 import lombok.Getter;
-import lombok.ToString;
 import net.dv8tion.jda.api.JDA;
 import net.dv8tion.jda.api.entities.User;
+import net.dv8tion.jda.api.events.GenericEvent;
+import net.dv8tion.jda.api.events.guild.GenericGuildEvent;
+import net.dv8tion.jda.api.events.guild.member.GenericGuildMemberEvent;
+import net.dv8tion.jda.api.events.interaction.GenericInteractionCreateEvent;
+import net.dv8tion.jda.api.events.user.GenericUserEvent;
 import net.dv8tion.jda.api.interactions.DiscordLocale;
 
-/** Holds some useful data about the context a discord event is currently being executed. */
-@AllArgsConstructor
-@Getter
-@ToString
-@EqualsAndHashCode
+/**
+ * Holds some useful data about the context a discord event is currently being executed.
+ *
+ * <p>Contexts created for an event are lazy, the user and locales are only resolved from the event
+ * when first accessed and the attributes map is only created when something is written to it.
+ *
+ * <p>A {@link #view()} of a context shares its data read-only, the attributes of the parent are
+ * only copied when the view writes to them, and it holds its own scoped beans.
+ *
+ * <p>Contexts are equal when they have the same user, locales, shard and attributes, comparing or
+ * printing a lazy context resolves its data from the event.
+ */
 public final class DiscordContextData {
-  @Nullable private final User user;
-  @Nullable private final DiscordLocale userLocale;
-  @Nullable private final DiscordLocale guildLocale;
-  @NonNull private final JDA shardInstance;
-  private final int shardId;
-  private final Map<String, Object> attributes = new ConcurrentHashMap<>();
+  private static final AtomicIntegerFieldUpdater<DiscordContextData> REFERENCES =
+      AtomicIntegerFieldUpdater.newUpdater(DiscordContextData.class, "references");
+  @Nullable private final GenericEvent event;
+  @Nullable private final DiscordContextData parent;
+  // Set on views restoring a snapshot, capturing within them shares the same snapshot
+  @Nullable private final DiscordContextSnapshot snapshot;
+  @Getter @NonNull private final JDA shardInstance;
+  @Getter private final int shardId;
+
+  @Nullable private User user;
+  @Nullable private DiscordLocale userLocale;
+  @Nullable private DiscordLocale guildLocale;
+  private volatile boolean resolved;
+  // Resolved by DiscordContextCustomScope when a bean shared by locale is first used
+  @Nullable private volatile Locale resolvedLocale;
+
+  @Nullable private volatile Map<String, Object> attributes;
+  // Beans created by DiscordContextCustomScope within this context
+  @Nullable private volatile ConcurrentHashMap<BeanIdentifier, CreatedBean<?>> scopedBeans;
+  // Holders of this context, the context is terminated when the last one releases it
+  private volatile int references = 1;
+
+  public DiscordContextData(
+      @Nullable User user,
+      @Nullable DiscordLocale userLocale,
+      @Nullable DiscordLocale guildLocale,
+      @NonNull JDA shardInstance,
+      int shardId) {
+    this.event = null;
+    this.parent = null;
+    this.snapshot = null;
+    this.shardInstance = shardInstance;
+    this.shardId = shardId;
+    this.user = user;
+    this.userLocale = userLocale;
+    this.guildLocale = guildLocale;
+    this.resolved = true;
+  }
+
+  private DiscordContextData(@NonNull GenericEvent event, int shardId) {
+    this.event = event;
+    this.parent = null;
+    this.snapshot = null;
+    this.shardInstance = event.getJDA();
+    this.shardId = shardId;
+  }
+
+  private DiscordContextData(
+      @NonNull DiscordContextData parent, @Nullable DiscordContextSnapshot snapshot) {
+    this.event = null;
+    this.parent = parent;
+    this.snapshot = snapshot;
+    this.shardInstance = parent.shardInstance;
+    this.shardId = parent.shardId;
+  }
+
+  /**
+   * Creates the context for a discord event, the data is only extracted from the event when first
+   * accessed.
+   *
+   * @param event the event being executed.
+   * @param shardId the id of the shard that received the event.
+   * @return the context of the event.
+   */
+  public static DiscordContextData of(@NonNull GenericEvent event, int shardId) {
+    return new DiscordContextData(event, shardId);
+  }
+
+  @Nullable public User getUser() {
+    resolve();
+    return user;
+  }
+
+  @Nullable public DiscordLocale getUserLocale() {
+    resolve();
+    return userLocale;
+  }
+
+  @Nullable public DiscordLocale getGuildLocale() {
+    resolve();
+    return guildLocale;
+  }
+
+  /**
+   * Retrieves the locale this context should be answered in, the user locale falling back to the
+   * guild locale.
+   *
+   * @return the locale of this context, or null if neither is known.
+   */
+  @Nullable public DiscordLocale getLocale() {
+    resolve();
+    return userLocale != null ? userLocale : guildLocale;
+  }
+
+  /**
+   * Retrieves the attributes of this context, creating the backing map if this is the first time
+   * it is needed. For a view this forks the attributes of the parent. Prefer {@link
+   * #getAttribute(String)} for reads.
+   *
+   * @return the mutable attribute map of this context.
+   */
+  @NonNull public Map<String, Object> getAttributes() {
+    var attrs = attributes;
+    if (attrs == null) {
+      synchronized (this) {
+        attrs = attributes;
+        if (attrs == null) {
+          attrs = parent == null ? new ConcurrentHashMap<>() : parent.forkAttributes();
+          attributes = attrs;
+        }
+      }
+    }
+    return attrs;
+  }
+
+  /**
+   * Retrieves an attribute without allocating the attribute map.
+   *
+   * @param name the attribute name.
+   * @return the attribute value, or null if not present.
+   */
+  @Nullable public Object getAttribute(@NonNull String name) {
+    var attrs = attributes;
+    if (attrs != null) {
+      return attrs.get(name);
+    }
+    return parent == null ? null : parent.getAttribute(name);
+  }
+
+  /**
+   * Sets an attribute of this context.
+   *
+   * @param name the attribute name.
+   * @param value the attribute value.
+   */
+  public void setAttribute(@NonNull String name, @NonNull Object value) {
+    getAttributes().put(name, value);
+  }
+
+  /**
+   * Checks if any attribute was ever written to this context.
+   *
+   * @return whether this context has an attribute map.
+   */
+  public boolean hasAttributes() {
+    return attributes != null || (parent != null && parent.hasAttributes());
+  }
+
+  /**
+   * Checks if any {@link com.juanmuscaria.microcord.annotations.DiscordScope} bean was created
+   * within this context.
+   *
+   * @return whether this context holds scoped beans that must be destroyed.
+   */
+  public boolean hasScopedBeans() {
+    return scopedBeans != null;
+  }
+
+  /**
+   * Keeps this context alive after the event handling returns, such as for work that completes
+   * asynchronously. Every call must be followed by a {@link #release()}.
+   */
+  public void retain() {
+    REFERENCES.incrementAndGet(this);
+  }
+
+  /**
+   * Releases a reference to this context, the event dispatcher holds the first reference.
+   *
+   * @return whether this was the last reference and the context must be terminated.
+   */
+  public boolean release() {
+    return REFERENCES.decrementAndGet(this) == 0;
+  }
+
+  /**
+   * Creates a child of this context that shares its data without copying it, used to carry the
+   * context to work that outlives the current one. Attributes written to the view do not affect
+   * this context and beans created within the view are destroyed with it.
+   *
+   * @return a view of this context.
+   */
+  @NonNull public DiscordContextData view() {
+    return new DiscordContextData(this, null);
+  }
 
   public DiscordContextData copy() {
-    return new DiscordContextData(user, userLocale, guildLocale, shardInstance, shardId);
+    return new DiscordContextData(
+        getUser(), getUserLocale(), getGuildLocale(), shardInstance, shardId);
+  }
+
+  @NonNull DiscordContextData view(@NonNull DiscordContextSnapshot snapshot) {
+    return new DiscordContextData(this, snapshot);
+  }
+
+  @Nullable DiscordContextSnapshot getSnapshot() {
+    return snapshot;
+  }
+
+  @Nullable Locale getResolvedLocale() {
+    return resolvedLocale;
+  }
+
+  void setResolvedLocale(@NonNull Locale locale) {
+    this.resolvedLocale = locale;
+  }
+
+  @Nullable ConcurrentHashMap<BeanIdentifier, CreatedBean<?>> getScopedBeans(boolean create) {
+    var beans = scopedBeans;
+    if (beans == null && create) {
+      synchronized (this) {
+        beans = scopedBeans;
+        if (beans == null) {
+          beans = new ConcurrentHashMap<>();
+          scopedBeans = beans;
+        }
+      }
+    }
+    return beans;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (!(o instanceof DiscordContextData other)) {
+      return false;
+    }
+    return shardId == other.shardId
+        && Objects.equals(shardInstance, other.shardInstance)
+        && Objects.equals(getUser(), other.getUser())
+        && getUserLocale() == other.getUserLocale()
+        && getGuildLocale() == other.getGuildLocale()
+        && effectiveAttributes().equals(other.effectiveAttributes());
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(
+        getUser(),
+        getUserLocale(),
+        getGuildLocale(),
+        shardInstance,
+        shardId,
+        effectiveAttributes());
+  }
+
+  @Override
+  public String toString() {
+    return "DiscordContextData(shardId="
+        + shardId
+        + ", user="
+        + getUser()
+        + ", userLocale="
+        + getUserLocale()
+        + ", guildLocale="
+        + getGuildLocale()
+        + ")";
+  }
+
+  // The attributes visible from this context, without forking them
+  private Map<String, Object> effectiveAttributes() {
+    var attrs = attributes;
+    if (attrs != null) {
+      return attrs;
+    }
+    return parent == null ? Collections.emptyMap() : parent.effectiveAttributes();
+  }
+
+  private ConcurrentHashMap<String, Object> forkAttributes() {
+    var attrs = attributes;
+    if (attrs != null) {
+      return new ConcurrentHashMap<>(attrs);
+    }
+    return parent == null ? new ConcurrentHashMap<>() : parent.forkAttributes();
+  }
+
+  private void resolve() {
+    if (!resolved) {
+      synchronized (this) {
+        if (!resolved) {
+          if (parent != null) {
+            user = parent.getUser();
+            userLocale = parent.getUserLocale();
+            guildLocale = parent.getGuildLocale();
+          } else {
+            resolveFrom(event);
+          }
+          resolved = true;
+        }
+      }
+    }
+  }
+
+  private void resolveFrom(GenericEvent genericEvent) {
+    if (genericEvent instanceof GenericUserEvent event) {
+      user = event.getUser();
+    }
+    if (genericEvent instanceof GenericGuildEvent event) {
+      guildLocale = event.getGuild().getLocale();
+    }
+    if (genericEvent instanceof GenericGuildMemberEvent event) {
+      user = event.getUser();
+    }
+    if (genericEvent instanceof GenericInteractionCreateEvent event) {
+      user = event.getUser();
+      userLocale = event.getUserLocale();
+      if (event.getGuild() != null) {
+        guildLocale = event.getGuildLocale();
+      }
+    }
   }
 }
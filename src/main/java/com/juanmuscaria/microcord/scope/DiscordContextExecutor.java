@@ -0,0 +1,82 @@
+/*
+ * Copyright 2023 juanmuscaria
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.juanmuscaria.microcord.scope;
+
+import io.micronaut.core.annotation.NonNull;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Executor service running every task in the discord context it was submitted from. The context
+ * is captured once per task as a {@link DiscordContextSnapshot}, tasks submitted from a thread
+ * without a context run as they are.
+ *
+ * <p>Can be given to {@link java.util.concurrent.CompletableFuture} async stages so chained
+ * callbacks keep the context of the work that started them. It is of no use as a JDA callback
+ * pool, JDA submits callbacks from its requester threads, which have no context. Wrap the callbacks
+ * with {@link ScopedCallbacks#wrap(java.util.function.Consumer)} or use {@link
+ * ScopedCallbacks#submit(net.dv8tion.jda.api.requests.RestAction)} instead, both capture the
+ * context where the action is queued.
+ */
+public final class DiscordContextExecutor extends AbstractExecutorService {
+  private final ExecutorService delegate;
+  private final DiscordContextCustomScope scope;
+
+  public DiscordContextExecutor(
+      @NonNull ExecutorService delegate, @NonNull DiscordContextCustomScope scope) {
+    this.delegate = delegate;
+    this.scope = scope;
+  }
+
+  @Override
+  public void execute(@NonNull Runnable command) {
+    var snapshot = DiscordContextSnapshot.capture(scope);
+    delegate.execute(snapshot == null ? command : snapshot.wrap(command));
+  }
+
+  @Override
+  public void shutdown() {
+    delegate.shutdown();
+  }
+
+  @NonNull @Override
+  public List<Runnable> shutdownNow() {
+    return delegate.shutdownNow();
+  }
+
+  @Override
+  public boolean isShutdown() {
+    return delegate.isShutdown();
+  }
+
+  @Override
+  public boolean isTerminated() {
+    return delegate.isTerminated();
+  }
+
+  @Override
+  public boolean awaitTermination(long timeout, @NonNull TimeUnit unit)
+      throws InterruptedException {
+    return delegate.awaitTermination(timeout, unit);
+  }
+
+  @Override
+  public String toString() {
+    return "DiscordContextExecutor(" + delegate + ")";
+  }
+}
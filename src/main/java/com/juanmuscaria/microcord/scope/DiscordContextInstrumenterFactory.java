@@ -0,0 +1,46 @@
+/*
+ * Copyright 2023 juanmuscaria
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.juanmuscaria.microcord.scope;
+
+import io.micronaut.core.annotation.Nullable;
+import io.micronaut.scheduling.instrument.InvocationInstrumenter;
+import io.micronaut.scheduling.instrument.InvocationInstrumenterFactory;
+import jakarta.inject.Singleton;
+
+/**
+ * Propagates the discord context to the executors managed by Micronaut, such as the ones running
+ * {@link io.micronaut.scheduling.annotation.Async} methods.
+ */
+@Singleton
+class DiscordContextInstrumenterFactory implements InvocationInstrumenterFactory {
+  private final DiscordContextCustomScope scope;
+
+  DiscordContextInstrumenterFactory(DiscordContextCustomScope scope) {
+    this.scope = scope;
+  }
+
+  @Nullable @Override
+  public InvocationInstrumenter newInvocationInstrumenter() {
+    var snapshot = DiscordContextSnapshot.capture(scope);
+    if (snapshot == null) {
+      return null;
+    }
+    return () -> {
+      var restoration = snapshot.restore();
+      return cleanup -> restoration.close();
+    };
+  }
+}
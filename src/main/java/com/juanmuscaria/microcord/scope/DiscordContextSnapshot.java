@@ -0,0 +1,147 @@
+/*
+ * Copyright 2023 juanmuscaria
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.juanmuscaria.microcord.scope;
+
+import io.micronaut.core.annotation.NonNull;
+import io.micronaut.core.annotation.Nullable;
+import java.util.concurrent.Callable;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * An immutable capture of the discord context of a thread that can be restored on any other thread.
+ * Every restoration runs in its own {@link DiscordContextData#view() view} of the captured context,
+ * beans created within it are destroyed when it is closed.
+ *
+ * <p>Capturing from within a restored context returns the snapshot being restored instead of
+ * creating a new one, so a whole chain of callbacks shares a single capture. Attributes written by
+ * one step of the chain are not seen by the following ones.
+ */
+public final class DiscordContextSnapshot {
+  private static final Logger logger = LoggerFactory.getLogger(DiscordContextSnapshot.class);
+  private final DiscordContextData context;
+  private final DiscordContextCustomScope scope;
+
+  private DiscordContextSnapshot(DiscordContextData context, DiscordContextCustomScope scope) {
+    this.context = context;
+    this.scope = scope;
+  }
+
+  /**
+   * Captures the context of the current thread.
+   *
+   * @param scope the scope destroying the beans created within restorations of the snapshot.
+   * @return the snapshot, or null if there is no context in the current thread.
+   */
+  @Nullable public static DiscordContextSnapshot capture(@NonNull DiscordContextCustomScope scope) {
+    var current = DiscordContext.current();
+    if (current == null) {
+      return null;
+    }
+    var snapshot = current.getSnapshot();
+    return snapshot != null ? snapshot : new DiscordContextSnapshot(current, scope);
+  }
+
+  /**
+   * Retrieves the captured context, it must not be modified.
+   *
+   * @return the captured context.
+   */
+  @NonNull public DiscordContextData getContext() {
+    return context;
+  }
+
+  /**
+   * Restores this snapshot in the current thread until the returned restoration is closed.
+   *
+   * @return the restoration, closing it brings back the previous context of the thread.
+   */
+  @NonNull public Restoration restore() {
+    var previous = DiscordContext.current();
+    var view = context.view(this);
+    DiscordContext.set(view);
+    return new Restoration(view, previous);
+  }
+
+  public Runnable wrap(@NonNull Runnable original) {
+    return () -> {
+      try (var ignored = restore()) {
+        original.run();
+      }
+    };
+  }
+
+  public <T> Callable<T> wrap(@NonNull Callable<T> original) {
+    return () -> {
+      try (var ignored = restore()) {
+        return original.call();
+      }
+    };
+  }
+
+  public <T> Supplier<T> wrap(@NonNull Supplier<T> original) {
+    return () -> {
+      try (var ignored = restore()) {
+        return original.get();
+      }
+    };
+  }
+
+  public <T> Consumer<T> wrap(@NonNull Consumer<T> original) {
+    return (t) -> {
+      try (var ignored = restore()) {
+        original.accept(t);
+      }
+    };
+  }
+
+  @Override
+  public String toString() {
+    return "DiscordContextSnapshot(" + context + ")";
+  }
+
+  /** A snapshot restored in a thread. */
+  public final class Restoration implements AutoCloseable {
+    private final DiscordContextData view;
+    @Nullable private final DiscordContextData previous;
+
+    private Restoration(DiscordContextData view, @Nullable DiscordContextData previous) {
+      this.view = view;
+      this.previous = previous;
+    }
+
+    /**
+     * Retrieves the context the current thread is running in.
+     *
+     * @return the view of the snapshot set in the thread.
+     */
+    @NonNull public DiscordContextData getContext() {
+      return view;
+    }
+
+    @Override
+    public void close() {
+      try {
+        scope.terminate(view);
+      } catch (Throwable e) {
+        logger.error("An error occurred while terminating event context", e);
+      }
+      DiscordContext.set(previous);
+    }
+  }
+}
@@ -17,7 +17,10 @@ package com.juanmuscaria.microcord.scope;
 
 import io.micronaut.context.event.ApplicationEvent;
 
-/** An event fired when a discord context execution is finalized */
+/**
+ * An event fired when a discord context execution is finalized. Contexts that never had attributes
+ * or scoped beans created have nothing to tear down, no event is fired for those.
+ */
 public class DiscordContextTerminatedEvent extends ApplicationEvent {
   /**
    * Constructs a prototypical Event.
@@ -0,0 +1,27 @@
+/*
+ * Copyright 2023 juanmuscaria
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.juanmuscaria.microcord.scope;
+
+import java.util.Locale;
+
+/**
+ * A {@link com.juanmuscaria.microcord.annotations.DiscordScope} bean that receives the locale the
+ * {@code LocaleResolver<DiscordContextData>} resolved for the event it was created for. Unlike
+ * {@link DiscordAware}, this is also called for beans shared by locale.
+ */
+public interface LocaleAware {
+  void setLocale(Locale locale);
+}
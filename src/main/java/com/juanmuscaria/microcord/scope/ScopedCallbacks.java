@@ -15,18 +15,24 @@
  */
 package com.juanmuscaria.microcord.scope;
 
-import io.micronaut.context.event.ApplicationEventPublisher;
 import jakarta.inject.Singleton;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
 import java.util.function.Consumer;
 import java.util.function.Supplier;
 import lombok.AllArgsConstructor;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
+import net.dv8tion.jda.api.requests.RestAction;
 
 /**
  * Work around the current discord scope being lost in JDA callbacks, wrap callbacks that requires
  * the current scope.
+ *
+ * <p>Callbacks capture the current context as a {@link DiscordContextSnapshot} and run within a
+ * {@link DiscordContextData#view() view} of it, beans created by a callback are destroyed directly
+ * through {@link DiscordContextCustomScope} once it returns, no {@link
+ * DiscordContextTerminatedEvent} is published for those views. Executors managed by Micronaut, such
+ * as the ones running {@code @Async} methods, propagate the context without wrapping.
  */
 // TODO: Create a custom JDA implementation and hook into callbacks directly to make a seamless
 // context transitions
@@ -34,8 +40,7 @@ import org.slf4j.LoggerFactory;
 @AllArgsConstructor
 @Singleton
 public class ScopedCallbacks {
-  private static final Logger logger = LoggerFactory.getLogger(ScopedCallbacks.class);
-  private final ApplicationEventPublisher<DiscordContextTerminatedEvent> publisher;
+  private final DiscordContextCustomScope scope;
 
   /**
    * Wraps a callable in the current DiscordContext
@@ -45,25 +50,8 @@ public class ScopedCallbacks {
    *     will be returned
    */
   public <T> Callable<T> wrap(Callable<T> original) {
-    if (DiscordContext.currentContext().isPresent()) {
-      var context = DiscordContext.currentContext().get().copy();
-      return () -> {
-        var prev = DiscordContext.currentContext().orElse(null);
-        DiscordContext.set(context);
-        try {
-          return original.call();
-        } finally {
-          try {
-            publisher.publishEvent(new DiscordContextTerminatedEvent(context));
-          } catch (Throwable e) {
-            logger.error("An error occurred while terminating event context", e);
-          }
-          DiscordContext.set(prev);
-        }
-      };
-    } else {
-      return original;
-    }
+    var snapshot = DiscordContextSnapshot.capture(scope);
+    return snapshot == null ? original : snapshot.wrap(original);
   }
 
   /**
@@ -74,25 +62,8 @@ public class ScopedCallbacks {
    *     will be returned
    */
   public <T> Supplier<T> wrap(Supplier<T> original) {
-    if (DiscordContext.currentContext().isPresent()) {
-      var context = DiscordContext.currentContext().get().copy();
-      return () -> {
-        var prev = DiscordContext.currentContext().orElse(null);
-        DiscordContext.set(context);
-        try {
-          return original.get();
-        } finally {
-          try {
-            publisher.publishEvent(new DiscordContextTerminatedEvent(context));
-          } catch (Throwable e) {
-            logger.error("An error occurred while terminating event context", e);
-          }
-          DiscordContext.set(prev);
-        }
-      };
-    } else {
-      return original;
-    }
+    var snapshot = DiscordContextSnapshot.capture(scope);
+    return snapshot == null ? original : snapshot.wrap(original);
   }
 
   /**
@@ -103,25 +74,8 @@ public class ScopedCallbacks {
    *     will be returned
    */
   public Runnable wrap(Runnable original) {
-    if (DiscordContext.currentContext().isPresent()) {
-      var context = DiscordContext.currentContext().get().copy();
-      return () -> {
-        var prev = DiscordContext.currentContext().orElse(null);
-        DiscordContext.set(context);
-        try {
-          original.run();
-        } finally {
-          try {
-            publisher.publishEvent(new DiscordContextTerminatedEvent(context));
-          } catch (Throwable e) {
-            logger.error("An error occurred while terminating event context", e);
-          }
-          DiscordContext.set(prev);
-        }
-      };
-    } else {
-      return original;
-    }
+    var snapshot = DiscordContextSnapshot.capture(scope);
+    return snapshot == null ? original : snapshot.wrap(original);
   }
 
   /**
@@ -132,24 +86,51 @@ public class ScopedCallbacks {
    *     will be returned
    */
   public <T> Consumer<T> wrap(Consumer<T> original) {
-    if (DiscordContext.currentContext().isPresent()) {
-      var context = DiscordContext.currentContext().get().copy();
-      return (t) -> {
-        var prev = DiscordContext.currentContext().orElse(null);
-        DiscordContext.set(context);
-        try {
-          original.accept(t);
-        } finally {
-          try {
-            publisher.publishEvent(new DiscordContextTerminatedEvent(context));
-          } catch (Throwable e) {
-            logger.error("An error occurred while terminating event context", e);
-          }
-          DiscordContext.set(prev);
-        }
-      };
-    } else {
-      return original;
+    var snapshot = DiscordContextSnapshot.capture(scope);
+    return snapshot == null ? original : snapshot.wrap(original);
+  }
+
+  /**
+   * Wraps an executor service so every task runs in the context it was submitted from
+   *
+   * @param original - original executor service
+   * @return an executor service propagating the discord context
+   */
+  public ExecutorService wrap(ExecutorService original) {
+    return new DiscordContextExecutor(original, scope);
+  }
+
+  /**
+   * Submits a rest action and completes the returned future in the current DiscordContext, stages
+   * chained to it that are not async run in the context. Async stages must be given an executor
+   * from {@link #wrap(ExecutorService)} to keep it.
+   *
+   * @param action - the rest action to submit
+   * @return a future of the rest action result, cancelling it cancels the request
+   */
+  public <T> CompletableFuture<T> submit(RestAction<T> action) {
+    var snapshot = DiscordContextSnapshot.capture(scope);
+    if (snapshot == null) {
+      return action.submit();
     }
+    var request = action.submit();
+    var result = new CompletableFuture<T>();
+    request.whenComplete(
+        (value, error) -> {
+          try (var ignored = snapshot.restore()) {
+            if (error != null) {
+              result.completeExceptionally(error);
+            } else {
+              result.complete(value);
+            }
+          }
+        });
+    result.whenComplete(
+        (value, error) -> {
+          if (result.isCancelled()) {
+            request.cancel(true);
+          }
+        });
+    return result;
   }
 }
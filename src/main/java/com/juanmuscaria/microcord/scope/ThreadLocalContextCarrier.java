@@ -0,0 +1,51 @@
+/*
+ * Copyright 2023 juanmuscaria
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.juanmuscaria.microcord.scope;
+
+import io.micronaut.core.annotation.Nullable;
+
+/**
+ * Keeps the context in a thread local. The inheritable variant copies the context of a thread to
+ * the threads it starts, such as the forks of a structured task scope.
+ */
+final class ThreadLocalContextCarrier implements ContextCarrier {
+  private final ThreadLocal<DiscordContextData> context;
+  private final boolean inheritable;
+
+  ThreadLocalContextCarrier(boolean inheritable) {
+    this.context = inheritable ? new InheritableThreadLocal<>() : new ThreadLocal<>();
+    this.inheritable = inheritable;
+  }
+
+  @Nullable @Override
+  public DiscordContextData get() {
+    return context.get();
+  }
+
+  @Override
+  public void set(@Nullable DiscordContextData ctx) {
+    if (ctx == null) {
+      context.remove();
+    } else {
+      context.set(ctx);
+    }
+  }
+
+  @Override
+  public String toString() {
+    return inheritable ? "InheritableContextCarrier" : "ThreadLocalContextCarrier";
+  }
+}
@@ -18,24 +18,37 @@ package com.juanmuscaria.microcord.slash;
 import static com.juanmuscaria.microcord.utils.OptionalConveniences.ifPresentOrElse;
 import static com.juanmuscaria.microcord.utils.OptionalConveniences.orElseThrow;
 
+import com.juanmuscaria.microcord.annotations.ApplicationCommand;
+import com.juanmuscaria.microcord.annotations.Cooldown;
+import com.juanmuscaria.microcord.annotations.MessageCommand;
+import com.juanmuscaria.microcord.annotations.RateLimit;
 import com.juanmuscaria.microcord.annotations.SlashCommand;
+import com.juanmuscaria.microcord.annotations.SlashCommand.OnAutocomplete;
 import com.juanmuscaria.microcord.annotations.SlashCommand.OnCommand;
 import com.juanmuscaria.microcord.annotations.SlashCommand.Option;
+import com.juanmuscaria.microcord.annotations.UserCommand;
+import com.juanmuscaria.microcord.configuration.JdaConfiguration;
+import com.juanmuscaria.microcord.metrics.MicrocordMetrics;
+import com.juanmuscaria.microcord.utils.MethodBinder;
+import com.juanmuscaria.microcord.utils.MethodBinder.ArgumentBinder;
 import com.juanmuscaria.microcord.utils.Triple;
 import io.micronaut.context.BeanContext;
 import io.micronaut.context.ExecutionHandleLocator;
-import io.micronaut.context.MessageSource;
+import io.micronaut.context.event.StartupEvent;
 import io.micronaut.context.processor.ExecutableMethodProcessor;
+import io.micronaut.core.annotation.AnnotationMetadata;
+import io.micronaut.core.annotation.AnnotationValue;
 import io.micronaut.core.annotation.NonNull;
 import io.micronaut.core.type.Argument;
 import io.micronaut.inject.BeanDefinition;
 import io.micronaut.inject.ExecutableMethod;
-import io.micronaut.inject.MethodExecutionHandle;
+import io.micronaut.runtime.event.annotation.EventListener;
 import jakarta.annotation.Nonnull;
 import jakarta.annotation.Nullable;
 import jakarta.inject.Singleton;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
 import java.util.regex.Pattern;
 
@@ -44,11 +57,19 @@ import lombok.Getter;
 import lombok.ToString;
 import net.dv8tion.jda.api.entities.IMentionable;
 import net.dv8tion.jda.api.entities.Member;
+import net.dv8tion.jda.api.entities.Message;
 import net.dv8tion.jda.api.entities.Message.Attachment;
 import net.dv8tion.jda.api.entities.Role;
 import net.dv8tion.jda.api.entities.User;
 import net.dv8tion.jda.api.entities.channel.unions.GuildChannelUnion;
-import net.dv8tion.jda.api.interactions.DiscordLocale;
+import net.dv8tion.jda.api.events.interaction.command.CommandAutoCompleteInteractionEvent;
+import net.dv8tion.jda.api.events.interaction.command.GenericCommandInteractionEvent;
+import net.dv8tion.jda.api.events.interaction.command.MessageContextInteractionEvent;
+import net.dv8tion.jda.api.events.interaction.command.SlashCommandInteractionEvent;
+import net.dv8tion.jda.api.events.interaction.command.UserContextInteractionEvent;
+import net.dv8tion.jda.api.interactions.AutoCompleteQuery;
+import net.dv8tion.jda.api.interactions.commands.Command;
+import net.dv8tion.jda.api.interactions.commands.CommandInteractionPayload;
 import net.dv8tion.jda.api.interactions.commands.OptionMapping;
 import net.dv8tion.jda.api.interactions.commands.OptionType;
 import net.dv8tion.jda.api.interactions.commands.build.*;
@@ -58,10 +79,13 @@ import org.slf4j.LoggerFactory;
 /**
  * Method processor for classes annotated with {@link SlashCommand}. It will automatically construct
  * a slash command tree from data extracted from the annotations.
+ *
+ * <p>Methods annotated with {@link UserCommand} or {@link MessageCommand} are processed along, each
+ * one defining a context menu command with the same synchronization and routing as slash commands.
  */
 @Singleton
 @AllArgsConstructor
-public class AnnotatedSlashBuilder implements ExecutableMethodProcessor<SlashCommand> {
+public class AnnotatedSlashBuilder implements ExecutableMethodProcessor<ApplicationCommand> {
   private static final Pattern command = Pattern.compile("^[-_\\p{L}\\p{N}\\p{sc=Deva}\\p{sc=Thai}]{1,32}$");
   private static final String PLACEHOLDER =
       "__PLACEHOLDER__"; // Default placeholder for localized strings.
@@ -95,10 +119,15 @@ public class AnnotatedSlashBuilder implements ExecutableMethodProcessor<SlashCom
   private final Map<BeanDefinition<?>, CommandDefinition> commands =
       new ConcurrentHashMap<>(); // All registered commands goes here.
 
+  // Same commands as above indexed by their type and name, used to route incoming interactions
+  private final Map<Command.Type, Map<String, CommandDefinition>> commandsByType = typeIndex();
+
   // Injected micronaut stuff necessary for building the commands
   private final ExecutionHandleLocator executionHandleLocator;
-  private final MessageSource messageSource;
+  private final LocalizationTable localizationTable;
   private final BeanContext ctx;
+  private final JdaConfiguration configuration;
+  private final MicrocordMetrics metrics;
 
   // Process all "executable" methods within the target bean (class annotated with SlashCommand)
   @SuppressWarnings("unchecked")
@@ -109,37 +138,7 @@ public class AnnotatedSlashBuilder implements ExecutableMethodProcessor<SlashCom
         .getAnnotationTypeByStereotype(OnCommand.class)
         .ifPresent(
             exec -> {
-              var commandName = orElseThrow(beanDefinition.stringValue(SlashCommand.class));
-              var translationPrefix =
-                  beanDefinition
-                      .stringValue(SlashCommand.class, "translationKeyPrefix")
-                      .orElse("interaction.slash.");
-
-              // Initialize the command data if it's the first time encountering this bean
-              var data = commands.get(beanDefinition);
-              if (data == null) {
-                data =
-                    new CommandDefinition(
-                        Commands.slash(commandName, PLACEHOLDER)
-                            .setLocalizationFunction((key -> this.localize(translationPrefix, key)))
-                            .setGuildOnly(
-                                beanDefinition
-                                    .booleanValue(SlashCommand.class, "guildOnly")
-                                    .orElse(false))
-                            .setNSFW(
-                                beanDefinition
-                                    .booleanValue(SlashCommand.class, "nsfw")
-                                    .orElse(false)));
-
-                // Work around the fact there's no "longValues"
-                var guilds =
-                    beanDefinition.getValue(SlashCommand.class, "guilds").orElse(new long[0]);
-                if (guilds instanceof long[]) {
-                  data.guilds = (long[]) guilds;
-                }
-                data.bean = ctx.getBean(beanDefinition);
-                commands.put(beanDefinition, data);
-              }
+              var data = definitionOf(beanDefinition);
 
               var subCommand = method.stringValue(OnCommand.class).orElse("");
               if (subCommand.isEmpty()) {
@@ -151,10 +150,12 @@ public class AnnotatedSlashBuilder implements ExecutableMethodProcessor<SlashCom
                 validate(data.directExecution != null, "Command already has a default executor");
 
                 // Register this as a single command
-                data.slashCommand.addOptions(generateOptionsData(method));
+                var options = generateOptionsData(method);
+                data.slashData().addOptions(options);
+                registerSuggestions(data, "", "", method, options);
                 data.directExecution =
-                    executionHandleLocator.createExecutionHandle(
-                        beanDefinition, (ExecutableMethod<Object, ?>) method);
+                    compileRoute(
+                        data, "", "", beanDefinition, (ExecutableMethod<Object, ?>) method);
                 logger.debug("Created single executor {} for {}", method, data);
 
               } else {
@@ -168,39 +169,240 @@ public class AnnotatedSlashBuilder implements ExecutableMethodProcessor<SlashCom
                 }
 
                 // Register this as a command with multiple sub-commands
+                var options = generateOptionsData(method);
                 var subcommandData =
-                    new SubcommandData(subCommand, PLACEHOLDER)
-                        .addOptions(generateOptionsData(method));
+                    new SubcommandData(subCommand, PLACEHOLDER).addOptions(options);
                 var commandGroup = method.stringValue(OnCommand.class, "group").orElse("");
+                registerSuggestions(data, commandGroup, subCommand, method, options);
 
                 if (commandGroup.isEmpty()) {
                   // Single command without a command group, add it directly
-                  data.slashCommand.addSubcommands(subcommandData);
-                  data.subCommandDefinitions.subCommandExecution.put(
-                      subCommand,
-                      executionHandleLocator.createExecutionHandle(
-                          beanDefinition, (ExecutableMethod<Object, ?>) method));
+                  data.slashData().addSubcommands(subcommandData);
+                  validate(
+                      data.subCommandDefinitions.subCommandExecution.put(
+                              subCommand,
+                              compileRoute(
+                                  data,
+                                  "",
+                                  subCommand,
+                                  beanDefinition,
+                                  (ExecutableMethod<Object, ?>) method))
+                          != null,
+                      "Sub-command " + subCommand + " is already registered");
                 } else {
                   // Initialize command group data
                   var commandGroupData = data.subCommandDefinitions.groupData.get(commandGroup);
                   if (commandGroupData == null) {
                     commandGroupData = new SubcommandGroupData(commandGroup, PLACEHOLDER);
                     data.subCommandDefinitions.groupData.put(commandGroup, commandGroupData);
-                    data.slashCommand.addSubcommandGroups(commandGroupData);
+                    data.slashData().addSubcommandGroups(commandGroupData);
                   }
 
                   commandGroupData.addSubcommands(subcommandData);
-                  data.subCommandDefinitions.subCommandExecution.put(
-                      commandGroup + subCommand,
-                      executionHandleLocator.createExecutionHandle(
-                          beanDefinition, (ExecutableMethod<Object, ?>) method));
+                  validate(
+                      data.subCommandDefinitions
+                              .groupExecution
+                              .computeIfAbsent(commandGroup, group -> new HashMap<>())
+                              .put(
+                                  subCommand,
+                                  compileRoute(
+                                      data,
+                                      commandGroup,
+                                      subCommand,
+                                      beanDefinition,
+                                      (ExecutableMethod<Object, ?>) method))
+                          != null,
+                      "Sub-command " + commandGroup + " " + subCommand + " is already registered");
                 }
               }
             });
+
+    // Autocomplete handlers are registered on the command, the option may be declared later
+    method
+        .getAnnotationTypeByStereotype(OnAutocomplete.class)
+        .ifPresent(
+            exec -> {
+              var data = definitionOf(beanDefinition);
+              var option = orElseThrow(method.stringValue(OnAutocomplete.class));
+              // Options not filled in yet are bound as null, which a primitive cannot hold
+              for (Argument<?> argument : method.getArguments()) {
+                validate(
+                    argument.isAnnotationPresent(Option.class) && argument.getType().isPrimitive(),
+                    "Option "
+                        + argument.getName()
+                        + " of autocomplete method "
+                        + method.getName()
+                        + " must use a wrapper type instead of "
+                        + argument.getType().getName());
+              }
+              var handler =
+                  AutocompleteHandler.ofMethod(
+                      compileBinder(
+                          beanDefinition,
+                          (ExecutableMethod<Object, ?>) method,
+                          CommandAutoCompleteInteractionEvent.class,
+                          argument ->
+                              AutoCompleteQuery.class.isAssignableFrom(argument.getType())
+                                  ? CommandAutoCompleteInteractionEvent::getFocusedOption
+                                  : null),
+                      method.longValue(OnAutocomplete.class, "cacheTtl").orElse(0),
+                      method.longValue(OnAutocomplete.class, "cacheSize").orElse(1000));
+              registerAutocomplete(
+                  data,
+                  method.stringValue(OnAutocomplete.class, "group").orElse(""),
+                  method.stringValue(OnAutocomplete.class, "subCommand").orElse(""),
+                  option,
+                  handler);
+            });
+
+    // Context menu commands are defined by a single method, they have no options or sub-commands
+    method
+        .findAnnotation(UserCommand.class)
+        .ifPresent(
+            annotation ->
+                registerContextCommand(Command.Type.USER, annotation, beanDefinition, method));
+    method
+        .findAnnotation(MessageCommand.class)
+        .ifPresent(
+            annotation ->
+                registerContextCommand(Command.Type.MESSAGE, annotation, beanDefinition, method));
+  }
+
+  @SuppressWarnings("unchecked")
+  private void registerContextCommand(
+      Command.Type type,
+      AnnotationValue<?> annotation,
+      BeanDefinition<?> beanDefinition,
+      ExecutableMethod<?, ?> method) {
+    var commandName = orElseThrow(annotation.stringValue());
+    var translationPrefix =
+        annotation
+            .stringValue("translationKeyPrefix")
+            .orElse("interaction." + type.name().toLowerCase(Locale.ROOT) + ".");
+    var data =
+        new CommandDefinition(
+            Commands.context(type, commandName)
+                .setLocalizationFunction((key -> localizationTable.get(translationPrefix + key)))
+                .setGuildOnly(annotation.booleanValue("guildOnly").orElse(false))
+                .setNSFW(annotation.booleanValue("nsfw").orElse(false)));
+    data.guilds = annotation.get("guilds", long[].class).orElse(new long[0]);
+    data.bean = ctx.getBean(beanDefinition);
+    data.rateLimits = rateLimitsOf(beanDefinition).toArray(new CommandRateLimit[0]);
+    data.directExecution =
+        compileRoute(data, "", "", beanDefinition, (ExecutableMethod<Object, ?>) method);
+    validate(
+        !index(data),
+        "Another " + type + " command is already registered with the name " + commandName);
+    logger.debug("Created {} command executor {} for {}", type, method, data);
+  }
+
+  // Retrieves the command data of a bean, initializing it if it's the first time the bean is seen
+  private CommandDefinition definitionOf(BeanDefinition<?> beanDefinition) {
+    var commandName = orElseThrow(beanDefinition.stringValue(SlashCommand.class));
+    var translationPrefix =
+        beanDefinition
+            .stringValue(SlashCommand.class, "translationKeyPrefix")
+            .orElse("interaction.slash.");
+
+    // Initialize the command data if it's the first time encountering this bean
+    var data = commands.get(beanDefinition);
+    if (data == null) {
+      data =
+          new CommandDefinition(
+              Commands.slash(commandName, PLACEHOLDER)
+                  .setLocalizationFunction((key -> localizationTable.get(translationPrefix + key)))
+                  .setGuildOnly(
+                      beanDefinition.booleanValue(SlashCommand.class, "guildOnly").orElse(false))
+                  .setNSFW(beanDefinition.booleanValue(SlashCommand.class, "nsfw").orElse(false)));
+
+      // Work around the fact there's no "longValues"
+      var guilds = beanDefinition.getValue(SlashCommand.class, "guilds").orElse(new long[0]);
+      if (guilds instanceof long[]) {
+        data.guilds = (long[]) guilds;
+      }
+      data.bean = ctx.getBean(beanDefinition);
+      data.rateLimits = rateLimitsOf(beanDefinition).toArray(new CommandRateLimit[0]);
+      validate(!index(data), "Another command is already registered with the name " + commandName);
+      commands.put(beanDefinition, data);
+    }
+    return data;
+  }
+
+  // Registers the static suggestions of the options of a command method
+  private void registerSuggestions(
+      CommandDefinition data,
+      String group,
+      String subCommand,
+      ExecutableMethod<?, ?> method,
+      List<OptionData> options) {
+    for (Argument<?> argument : method.getArguments()) {
+      argument
+          .findAnnotation(Option.class)
+          .ifPresent(
+              option -> {
+                var suggestions = option.stringValues("suggestions");
+                if (suggestions.length > 0) {
+                  var optionName = orElseThrow(option.stringValue());
+                  for (OptionData optionData : options) {
+                    if (optionData.getName().equals(optionName)) {
+                      registerAutocomplete(
+                          data,
+                          group,
+                          subCommand,
+                          optionName,
+                          AutocompleteHandler.ofSuggestions(optionData.getType(), suggestions));
+                    }
+                  }
+                }
+              });
+    }
+  }
+
+  // Adds a command to the routing index, returns false if its type and name are already taken
+  private boolean index(CommandDefinition data) {
+    var commandData = data.getCommandData();
+    return commandsByType.get(commandData.getType()).putIfAbsent(commandData.getName(), data)
+        == null;
+  }
+
+  private void registerAutocomplete(
+      CommandDefinition data,
+      String group,
+      String subCommand,
+      String option,
+      AutocompleteHandler handler) {
+    validate(
+        data.autocompleteHandlers
+                .computeIfAbsent(group, key -> new HashMap<>())
+                .computeIfAbsent(subCommand, key -> new HashMap<>())
+                .put(option, handler)
+            != null,
+        "Option " + option + " already has an autocomplete handler");
+  }
+
+  /**
+   * Finds a registered command by its type and name.
+   *
+   * @param type the command type.
+   * @param name the command name.
+   * @return the command definition, or null if no command is registered with the name.
+   */
+  @Nullable CommandDefinition getCommand(Command.Type type, String name) {
+    return commandsByType.get(type).get(name);
+  }
+
+  /**
+   * Retrieves every registered application command, slash and context menu commands.
+   *
+   * @return an unmodifiable list of the command definitions.
+   */
+  Collection<CommandDefinition> getDefinitions() {
+    var definitions = new ArrayList<CommandDefinition>();
+    commandsByType.values().forEach(commands -> definitions.addAll(commands.values()));
+    return Collections.unmodifiableList(definitions);
   }
 
   // Creates all option data for given executable method
-  @SuppressWarnings("rawtypes")
   private List<OptionData> generateOptionsData(ExecutableMethod<?, ?> method) {
     var options = new ArrayList<OptionData>();
     for (Argument<?> argument : method.getArguments()) {
@@ -220,17 +422,17 @@ public class AnnotatedSlashBuilder implements ExecutableMethodProcessor<SlashCom
                     && CommandChoices.class.isAssignableFrom(actualType.getType())) {
                   // TODO: Maybe there's a better way to implement this whole choice system, but for
                   // now let's use enum + interface.
-                  CommandChoices[] choices =
-                      (CommandChoices[]) actualType.getType().getEnumConstants();
-                  validate(choices.length == 0, "Command choices must have at least one element");
+                  // First time this choice enum is seen, its value lookup is built here
+                  var lookup = CommandChoiceRegistry.lookup(actualType.getType());
+                  var choices = lookup.getConstants();
 
-                  var choiceType = optionTypeOf(choices[0].value().getClass());
+                  var choiceType = optionTypeOf(lookup.getValueType());
                   validate(
                       choiceType == OptionType.UNKNOWN || !choiceType.canSupportChoices(),
                       "Command choice value type is not supported");
                   data = new OptionData(choiceType, optionName, PLACEHOLDER);
 
-                  for (CommandChoices choice : choices) {
+                  for (CommandChoices<?> choice : choices) {
                     data.addChoices(choice.choiceData());
                   }
 
@@ -241,32 +443,170 @@ public class AnnotatedSlashBuilder implements ExecutableMethodProcessor<SlashCom
                 }
 
                 data.setRequired(!argument.isOptional());
-                data.setAutoComplete(option.booleanValue("autocomplete").orElse(false));
+                var autocomplete =
+                    option.booleanValue("autocomplete").orElse(false)
+                        || option.stringValues("suggestions").length > 0;
+                validate(
+                    autocomplete && !data.getChoices().isEmpty(),
+                    "Options with choices cannot have autocomplete");
+                data.setAutoComplete(autocomplete);
                 options.add(data);
               });
     }
     return options;
   }
 
-  private Map<DiscordLocale, String> localize(String prefix, String localizationKey) {
-    var map = new HashMap<DiscordLocale, String>();
-    var key = prefix + localizationKey;
-    for (DiscordLocale locale : DiscordLocale.values()) {
-      if (locale == DiscordLocale.UNKNOWN) {
-        continue;
-      }
+  // Creates the route of a command executor, along the limits of the command and of the executor
+  // and its timer, resolved here so invocations never build meter tags
+  private CommandRoute compileRoute(
+      CommandDefinition data,
+      String group,
+      String subCommand,
+      BeanDefinition<?> beanDefinition,
+      ExecutableMethod<Object, ?> method) {
+    var rateLimits = new ArrayList<>(Arrays.asList(data.rateLimits));
+    rateLimits.addAll(rateLimitsOf(method.getDeclaredMetadata()));
+    var timer =
+        metrics.isEnabled()
+            ? metrics.commandTimer(data.getCommandData().getName(), group, subCommand)
+            : null;
+    return new CommandRoute(
+        compileExecutor(data.getCommandData().getType(), beanDefinition, method),
+        rateLimits.toArray(new CommandRateLimit[0]),
+        timer);
+  }
+
+  // Reads the rate limit annotations present directly on a class or method
+  private List<CommandRateLimit> rateLimitsOf(AnnotationMetadata metadata) {
+    var rateLimits = new ArrayList<CommandRateLimit>();
+    var capacity = configuration.getCommands().getRateLimitCapacity();
+    var rateLimit = metadata.getDeclaredAnnotation(RateLimit.class);
+    if (rateLimit != null) {
+      rateLimits.add(
+          new CommandRateLimit(
+              rateLimit.enumValue("scope", RateLimit.Scope.class).orElse(RateLimit.Scope.USER),
+              rateLimit.intValue().orElse(1),
+              rateLimit.longValue("period").orElse(1),
+              rateLimit.enumValue("unit", TimeUnit.class).orElse(TimeUnit.SECONDS),
+              capacity));
+    }
+    var cooldown = metadata.getDeclaredAnnotation(Cooldown.class);
+    if (cooldown != null) {
+      rateLimits.add(
+          new CommandRateLimit(
+              cooldown.enumValue("scope", RateLimit.Scope.class).orElse(RateLimit.Scope.USER),
+              1,
+              cooldown.longValue().orElse(1),
+              cooldown.enumValue("unit", TimeUnit.class).orElse(TimeUnit.SECONDS),
+              capacity));
+    }
+    return rateLimits;
+  }
+
+  // Routes are only invoked with events of their command type, the binder is widened to fit them
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  private MethodBinder<GenericCommandInteractionEvent> compileExecutor(
+      Command.Type type, BeanDefinition<?> beanDefinition, ExecutableMethod<Object, ?> method) {
+    MethodBinder<?> binder =
+        switch (type) {
+          case USER -> compileBinder(
+              beanDefinition,
+              method,
+              UserContextInteractionEvent.class,
+              argument -> {
+                if (argument.getType() == User.class) {
+                  return UserContextInteractionEvent::getTarget;
+                } else if (argument.getType() == Member.class) {
+                  return UserContextInteractionEvent::getTargetMember;
+                }
+                return null;
+              });
+          case MESSAGE -> compileBinder(
+              beanDefinition,
+              method,
+              MessageContextInteractionEvent.class,
+              argument ->
+                  argument.getType() == Message.class
+                      ? MessageContextInteractionEvent::getTarget
+                      : null);
+          default -> compileBinder(
+              beanDefinition, method, SlashCommandInteractionEvent.class, argument -> null);
+        };
+    return (MethodBinder) binder;
+  }
+
+  // Compiles an interaction method into a binder, resolving how every argument is obtained up front
+  private <E extends CommandInteractionPayload> MethodBinder<E> compileBinder(
+      BeanDefinition<?> beanDefinition,
+      ExecutableMethod<Object, ?> method,
+      Class<E> eventType,
+      Function<Argument<?>, ArgumentBinder<E>> extraBinders) {
+    var binders = new ArrayList<ArgumentBinder<E>>();
+    for (Argument<?> argument : method.getArguments()) {
       ifPresentOrElse(
-          messageSource.getMessage(key, Locale.forLanguageTag(locale.getLocale())),
-          s -> map.put(locale, s),
+          argument.findAnnotation(Option.class),
+          option -> binders.add(optionBinder(argument, orElseThrow(option.stringValue()))),
           () -> {
-            // TODO: Configurable default bot locale, don't assume it's english
-            if (locale == DiscordLocale.ENGLISH_US) {
-              logger.warn("Unlocalized command key found: {}", key);
-              map.put(locale, trim(key.replace('.', '_').toLowerCase(Locale.ENGLISH)));
+            ArgumentBinder<E> binder = extraBinders.apply(argument);
+            if (binder == null) {
+              validate(
+                  !eventType.isAssignableFrom(argument.getType()),
+                  "Unknown argument type " + argument + " in " + method);
+              binder = event -> event;
             }
+            binders.add(binder);
           });
     }
-    return map;
+    return new MethodBinder<>(
+        executionHandleLocator.createExecutionHandle(beanDefinition, method), binders);
+  }
+
+  // Options may be missing in autocomplete interactions, missing options are bound as null
+  private <E extends CommandInteractionPayload> ArgumentBinder<E> optionBinder(
+      Argument<?> argument, String optionName) {
+    var optional = argument.isOptional();
+    var actualType = optional ? argument.getWrappedType() : argument;
+
+    Function<OptionMapping, Object> converter;
+    if (Enum.class.isAssignableFrom(actualType.getType())
+        && CommandChoices.class.isAssignableFrom(actualType.getType())) {
+      converter = CommandChoiceRegistry.lookup(actualType.getType())::fromOption;
+    } else {
+      converter = converterOf(actualType.getType());
+    }
+
+    if (optional) {
+      return event -> {
+        var mapping = event.getOption(optionName);
+        return mapping == null ? Optional.empty() : Optional.ofNullable(converter.apply(mapping));
+      };
+    }
+    return event -> {
+      var mapping = event.getOption(optionName);
+      return mapping == null ? null : converter.apply(mapping);
+    };
+  }
+
+  /**
+   * Loads the translations of every command in parallel, so serializing the commands does not look
+   * up the message source. Keys are collected by serializing all commands once.
+   */
+  @EventListener
+  void precomputeLocalizations(StartupEvent event) {
+    var keys =
+        localizationTable.collectKeys(
+            () -> getDefinitions().forEach(command -> command.getCommandData().toData()));
+    localizationTable.precompute(keys);
+    logger.debug("Precomputed {} command translation keys", localizationTable.size());
+  }
+
+  // One name index per command type, names are only unique within a type
+  private static Map<Command.Type, Map<String, CommandDefinition>> typeIndex() {
+    var index = new EnumMap<Command.Type, Map<String, CommandDefinition>>(Command.Type.class);
+    for (Command.Type type : Command.Type.values()) {
+      index.put(type, new ConcurrentHashMap<>());
+    }
+    return index;
   }
 
   // TODO: Replace tis horrible thing
@@ -276,11 +616,6 @@ public class AnnotatedSlashBuilder implements ExecutableMethodProcessor<SlashCom
     }
   }
 
-  // Trim a string to fit the 32 character limits discord requires
-  private String trim(String s) {
-    return s.substring(Math.max(0, s.length() - 32));
-  }
-
   // TODO: Decouple this method
   OptionType optionTypeOf(Class<?> clazz) {
     for (Triple<Class<?>, OptionType, Function<OptionMapping, Object>> typeMap : TYPE_MAPPING) {
@@ -293,13 +628,13 @@ public class AnnotatedSlashBuilder implements ExecutableMethodProcessor<SlashCom
   }
 
   // TODO: Decouple this method
-  Object convertType(Class<?> clazz, OptionMapping optionMapping) {
+  Function<OptionMapping, Object> converterOf(Class<?> clazz) {
     for (Triple<Class<?>, OptionType, Function<OptionMapping, Object>> typeMap : TYPE_MAPPING) {
       if (typeMap.left().isAssignableFrom(clazz)) {
-        return typeMap.right().apply(optionMapping);
+        return typeMap.right();
       }
     }
-    throw new UnsupportedOperationException();
+    throw new UnsupportedOperationException("Unsupported option type " + clazz);
   }
 }
 
@@ -308,13 +643,63 @@ public class AnnotatedSlashBuilder implements ExecutableMethodProcessor<SlashCom
 @ToString
 class CommandDefinition {
   long[] guilds = new long[0];
-  @Nonnull SlashCommandData slashCommand;
-  @Nullable MethodExecutionHandle<?, Object> directExecution;
+  @Nonnull CommandData commandData;
+  @Nullable CommandRoute directExecution;
   @Nullable SubCommandDefinitions subCommandDefinitions;
+  // Group -> sub-command -> option -> handler, empty names if the option is not in a sub-command
+  Map<String, Map<String, Map<String, AutocompleteHandler>>> autocompleteHandlers =
+      new HashMap<>();
+  // Limits shared by every executor of the command
+  CommandRateLimit[] rateLimits = new CommandRateLimit[0];
   Object bean;
 
-  CommandDefinition(@NonNull SlashCommandData slashCommand) {
-    this.slashCommand = slashCommand;
+  CommandDefinition(@NonNull CommandData commandData) {
+    this.commandData = commandData;
+  }
+
+  /**
+   * Retrieves the key identifying this command among every application command, see {@link
+   * #keyOf(Command.Type, String)}.
+   *
+   * @return the key of this command.
+   */
+  String getKey() {
+    return keyOf(commandData.getType(), commandData.getName());
+  }
+
+  /**
+   * Retrieves the command key of a type and name. Slash commands are keyed by their bare name,
+   * other command types can share names with slash commands and are prefixed by their type.
+   *
+   * @param type the command type.
+   * @param name the command name.
+   * @return the command key.
+   */
+  static String keyOf(Command.Type type, String name) {
+    return type == Command.Type.SLASH ? name : type.name() + ":" + name;
+  }
+
+  // Only slash commands have options and sub-commands
+  SlashCommandData slashData() {
+    return (SlashCommandData) commandData;
+  }
+
+  /**
+   * Finds the autocomplete handler of an option.
+   *
+   * @param group the sub-command group, or null if the option is not in a group.
+   * @param subCommand the sub-command, or null if the option is not in a sub-command.
+   * @param option the option name.
+   * @return the handler, or null if the option has no handler.
+   */
+  @Nullable AutocompleteHandler findAutocomplete(
+      @Nullable String group, @Nullable String subCommand, String option) {
+    var subCommands = autocompleteHandlers.get(group == null ? "" : group);
+    if (subCommands == null) {
+      return null;
+    }
+    var options = subCommands.get(subCommand == null ? "" : subCommand);
+    return options == null ? null : options.get(option);
   }
 }
 
@@ -322,6 +707,44 @@ class CommandDefinition {
 @Getter
 @ToString
 class SubCommandDefinitions {
-  Map<String, MethodExecutionHandle<?, Object>> subCommandExecution = new HashMap<>();
+  // Sub-commands without a group
+  Map<String, CommandRoute> subCommandExecution = new HashMap<>();
+  // Group name -> sub-command name -> executor
+  Map<String, Map<String, CommandRoute>> groupExecution = new HashMap<>();
   Map<String, SubcommandGroupData> groupData = new HashMap<>();
+
+  /**
+   * Finds the executor of a sub-command.
+   *
+   * @param group the sub-command group, or null if the sub-command is not part of a group.
+   * @param subCommand the sub-command name.
+   * @return the executor, or null if there's no such sub-command.
+   */
+  @Nullable CommandRoute find(@Nullable String group, @Nullable String subCommand) {
+    if (group == null) {
+      return subCommandExecution.get(subCommand);
+    }
+    var groupExecutors = groupExecution.get(group);
+    return groupExecutors == null ? null : groupExecutors.get(subCommand);
+  }
+}
+
+/** An executor of a command or sub-command, along everything checked before invoking it. */
+@Getter
+@ToString
+class CommandRoute {
+  final MethodBinder<GenericCommandInteractionEvent> executor;
+  // Command limits first, then the executor limits
+  final CommandRateLimit[] rateLimits;
+  // Null when metrics are disabled
+  @Nullable final MicrocordMetrics.CommandTimer timer;
+
+  CommandRoute(
+      MethodBinder<GenericCommandInteractionEvent> executor,
+      CommandRateLimit[] rateLimits,
+      @Nullable MicrocordMetrics.CommandTimer timer) {
+    this.executor = executor;
+    this.rateLimits = rateLimits;
+    this.timer = timer;
+  }
 }
@@ -0,0 +1,134 @@
+/*
+ * Copyright 2023 juanmuscaria
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.juanmuscaria.microcord.slash;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.bsideup.jabel.Desugar;
+import com.juanmuscaria.microcord.utils.MethodBinder;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import net.dv8tion.jda.api.events.interaction.command.CommandAutoCompleteInteractionEvent;
+import net.dv8tion.jda.api.interactions.commands.Command;
+import net.dv8tion.jda.api.interactions.commands.OptionData;
+import net.dv8tion.jda.api.interactions.commands.OptionType;
+
+/** Answers the autocomplete requests of a single command option. */
+interface AutocompleteHandler {
+
+  /**
+   * Computes the suggestions for the value currently typed by the user.
+   *
+   * @param event the autocomplete event.
+   * @return the suggestions, at most {@link OptionData#MAX_CHOICES}.
+   */
+  List<Command.Choice> suggest(CommandAutoCompleteInteractionEvent event);
+
+  /**
+   * Creates a handler answering from a static list of suggestions.
+   *
+   * @param type the type of the option.
+   * @param suggestions the suggestions, converted to the option type.
+   * @return the handler.
+   */
+  static AutocompleteHandler ofSuggestions(OptionType type, String[] suggestions) {
+    var choices = new ArrayList<Command.Choice>(suggestions.length);
+    for (String suggestion : suggestions) {
+      switch (type) {
+        case STRING -> choices.add(new Command.Choice(suggestion, suggestion));
+        case INTEGER -> choices.add(new Command.Choice(suggestion, Long.parseLong(suggestion)));
+        case NUMBER -> choices.add(new Command.Choice(suggestion, Double.parseDouble(suggestion)));
+        default -> throw new IllegalArgumentException(
+            "Option type " + type + " does not support suggestions");
+      }
+    }
+    var trie = new SuggestionTrie(choices);
+    return event -> trie.complete(event.getFocusedOption().getValue());
+  }
+
+  /**
+   * Creates a handler calling a method, optionally caching its result by guild and typed value.
+   *
+   * @param binder the method binder.
+   * @param cacheTtl time in seconds the results are cached, 0 to disable caching.
+   * @param cacheSize maximum amount of cached results.
+   * @return the handler.
+   */
+  static AutocompleteHandler ofMethod(
+      MethodBinder<CommandAutoCompleteInteractionEvent> binder, long cacheTtl, long cacheSize) {
+    AutocompleteHandler handler = event -> toChoices(binder.invoke(event));
+    if (cacheTtl <= 0) {
+      return handler;
+    }
+    Cache<CacheKey, List<Command.Choice>> cache =
+        Caffeine.newBuilder()
+            .expireAfterWrite(Duration.ofSeconds(cacheTtl))
+            .maximumSize(cacheSize)
+            .build();
+    return event -> {
+      var guild = event.getGuild();
+      var key =
+          new CacheKey(guild == null ? 0 : guild.getIdLong(), event.getFocusedOption().getValue());
+      var choices = cache.getIfPresent(key);
+      if (choices == null) {
+        choices = handler.suggest(event);
+        cache.put(key, choices);
+      }
+      return choices;
+    };
+  }
+
+  /**
+   * Converts the result of an autocomplete method into choices.
+   *
+   * @param result the value returned by the method.
+   * @return an immutable list of at most {@link OptionData#MAX_CHOICES} choices.
+   */
+  static List<Command.Choice> toChoices(Object result) {
+    if (!(result instanceof Collection<?> values)) {
+      if (result != null) {
+        throw new IllegalArgumentException(
+            "Autocomplete methods must return a collection, got " + result.getClass());
+      }
+      return Collections.emptyList();
+    }
+    var choices = new ArrayList<Command.Choice>(Math.min(values.size(), OptionData.MAX_CHOICES));
+    for (Object value : values) {
+      if (choices.size() == OptionData.MAX_CHOICES) {
+        break;
+      }
+      if (value instanceof Command.Choice choice) {
+        choices.add(choice);
+      } else if (value instanceof String string) {
+        choices.add(new Command.Choice(string, string));
+      } else if (value instanceof Long || value instanceof Integer) {
+        choices.add(new Command.Choice(value.toString(), ((Number) value).longValue()));
+      } else if (value instanceof Double number) {
+        choices.add(new Command.Choice(number.toString(), number));
+      } else {
+        throw new IllegalArgumentException("Unsupported autocomplete suggestion " + value);
+      }
+    }
+    return Collections.unmodifiableList(choices);
+  }
+
+  /** Key of the cached suggestions of an option. */
+  @Desugar
+  record CacheKey(long guildId, String prefix) {}
+}
@@ -0,0 +1,152 @@
+/*
+ * Copyright 2023 juanmuscaria
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.juanmuscaria.microcord.slash;
+
+import com.juanmuscaria.microcord.utils.LongObjectMap;
+import io.micronaut.core.annotation.NonNull;
+import java.util.HashMap;
+import java.util.Map;
+import net.dv8tion.jda.api.interactions.commands.OptionMapping;
+
+/**
+ * Registry of value to constant lookups for {@link CommandChoices} enums. A lookup is built once
+ * per enum, the first time the enum is seen while building the command options, every following
+ * resolution is a single hash lookup.
+ */
+final class CommandChoiceRegistry {
+  private static final ClassValue<Lookup> LOOKUPS =
+      new ClassValue<Lookup>() {
+        @Override
+        protected Lookup computeValue(Class<?> type) {
+          return new Lookup(type);
+        }
+      };
+
+  private CommandChoiceRegistry() {
+    // Sealed class
+  }
+
+  /**
+   * Retrieves the lookup for a choice enum, building it if this is the first time it is requested.
+   *
+   * @param choiceType the enum class implementing {@link CommandChoices}.
+   * @return the lookup for the enum.
+   * @throws IllegalArgumentException if the enum is not a compliant implementation.
+   */
+  @NonNull static Lookup lookup(@NonNull Class<?> choiceType) {
+    return LOOKUPS.get(choiceType);
+  }
+
+  /** Value to constant lookup of a single choice enum. */
+  static final class Lookup {
+    private final Class<?> valueType;
+    private final CommandChoices<?>[] constants;
+    // Long values are kept unboxed, String and Double values in a regular hash map
+    private final LongObjectMap<CommandChoices<?>> byLong;
+    private final Map<Object, CommandChoices<?>> byValue;
+
+    private Lookup(Class<?> choiceType) {
+      if (!Enum.class.isAssignableFrom(choiceType)
+          || !CommandChoices.class.isAssignableFrom(choiceType)) {
+        throw new IllegalArgumentException(
+            "Invalid command choice implementation, it must be an Enum.");
+      }
+      this.constants = (CommandChoices<?>[]) choiceType.getEnumConstants();
+      if (constants.length == 0) {
+        throw new IllegalArgumentException("Command choices must have at least one element");
+      }
+      this.valueType = constants[0].value().getClass();
+      if (valueType != String.class && valueType != Long.class && valueType != Double.class) {
+        throw new IllegalArgumentException(
+            "Invalid command choice implementation, the choice value must be a string, long or double.");
+      }
+
+      this.byLong = valueType == Long.class ? new LongObjectMap<>(constants.length) : null;
+      this.byValue = valueType == Long.class ? null : new HashMap<>(constants.length * 2);
+      for (CommandChoices<?> constant : constants) {
+        var value = constant.value();
+        if (value.getClass() != valueType) {
+          throw new IllegalArgumentException(
+              "All constants of " + choiceType.getName() + " must have the same value type");
+        }
+        var previous =
+            byLong != null
+                ? byLong.put((Long) value, constant)
+                : byValue.put(value, constant);
+        if (previous != null) {
+          throw new IllegalArgumentException(
+              "Duplicated choice value " + value + " in " + choiceType.getName());
+        }
+      }
+    }
+
+    /**
+     * Retrieves the type of the values of this choice enum.
+     *
+     * @return {@link String}, {@link Long} or {@link Double}.
+     */
+    @NonNull Class<?> getValueType() {
+      return valueType;
+    }
+
+    /**
+     * Retrieves all constants of this choice enum, the returned array must not be modified.
+     *
+     * @return the choice constants.
+     */
+    @NonNull CommandChoices<?>[] getConstants() {
+      return constants;
+    }
+
+    /**
+     * Retrieves the constant represented by a value.
+     *
+     * @param value the value representing a constant.
+     * @return the constant represented by the value.
+     * @throws IllegalArgumentException if there's no constant represented by the value.
+     */
+    @NonNull CommandChoices<?> fromValue(Object value) {
+      var constant =
+          byLong != null
+              ? (value instanceof Long longValue ? byLong.get(longValue) : null)
+              : byValue.get(value);
+      return found(constant);
+    }
+
+    /**
+     * Retrieves the constant selected in a command option.
+     *
+     * @param mapping the option mapping.
+     * @return the constant represented by the option value.
+     * @throws IllegalArgumentException if there's no constant represented by the value.
+     */
+    @NonNull CommandChoices<?> fromOption(OptionMapping mapping) {
+      if (byLong != null) {
+        return found(byLong.get(mapping.getAsLong()));
+      } else if (valueType == String.class) {
+        return found(byValue.get(mapping.getAsString()));
+      }
+      return found(byValue.get(mapping.getAsDouble()));
+    }
+
+    private static CommandChoices<?> found(CommandChoices<?> constant) {
+      if (constant == null) {
+        throw new IllegalArgumentException("Value not found in the choice constants.");
+      }
+      return constant;
+    }
+  }
+}
@@ -67,13 +67,9 @@ public interface CommandChoices<T> {
    */
   @SuppressWarnings("unchecked")
   default CommandChoices<T> fromValue(T value) {
-    if (this instanceof Enum) {
-      for (CommandChoices<?> constant : this.getClass().getEnumConstants()) {
-        if (constant.value().equals(value)) {
-          return (CommandChoices<T>) constant;
-        }
-      }
-      throw new IllegalArgumentException("Value not found in the choice constants.");
+    if (this instanceof Enum<?> enumValue) {
+      return (CommandChoices<T>)
+          CommandChoiceRegistry.lookup(enumValue.getDeclaringClass()).fromValue(value);
     } else {
       throw new IllegalArgumentException(
           "Invalid command choice implementation, it must be an Enum.");
@@ -0,0 +1,243 @@
+/*
+ * Copyright 2023 juanmuscaria
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.juanmuscaria.microcord.slash;
+
+import com.github.bsideup.jabel.Desugar;
+import io.micronaut.core.annotation.Nullable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Local store of the fingerprint and id of synchronized commands, grouped by scope (global or a
+ * guild, prefixed by the application id). A scope whose stored fingerprints match the current
+ * command definitions was not changed since the last synchronization and does not need to be
+ * fetched from discord.
+ *
+ * <p>The store assumes commands are only managed by this application, changes made to the commands
+ * by other means are not detected while the fingerprints match.
+ */
+final class CommandFingerprintStore {
+  private static final Logger logger = LoggerFactory.getLogger(CommandFingerprintStore.class);
+  @Nullable private final Path file;
+  // Scope -> command name -> entry
+  private final Map<String, Map<String, Entry>> scopes = new HashMap<>();
+
+  /**
+   * Creates a store backed by a file, loading any entry already stored in it.
+   *
+   * @param file the backing file, or null to disable the store.
+   */
+  CommandFingerprintStore(@Nullable Path file) {
+    this.file = file;
+    if (file != null && Files.isRegularFile(file)) {
+      load(file);
+    }
+  }
+
+  /**
+   * Computes a stable fingerprint of the normalized data of a command. Object keys are sorted so
+   * the fingerprint does not depend on the serialization order.
+   *
+   * @param data the normalized command data.
+   * @return the hex encoded SHA-256 of the canonical form of the data.
+   */
+  static String fingerprint(Map<String, Object> data) {
+    var canonical = new StringBuilder();
+    appendCanonical(canonical, data);
+    try {
+      var digest =
+          MessageDigest.getInstance("SHA-256")
+              .digest(canonical.toString().getBytes(StandardCharsets.UTF_8));
+      var hex = new StringBuilder(digest.length * 2);
+      for (byte b : digest) {
+        hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+      }
+      return hex.toString();
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256 is not available", e);
+    }
+  }
+
+  /**
+   * Retrieves the stored command ids of a scope if it did not change since it was stored.
+   *
+   * @param scope the scope.
+   * @param fingerprints the current fingerprint of each command of the scope, by command name.
+   * @return the stored ids by command name, or null if the scope is unknown or changed.
+   */
+  @Nullable synchronized Map<String, Long> lookup(String scope, Map<String, String> fingerprints) {
+    var entries = scopes.get(scope);
+    if (entries == null || entries.size() != fingerprints.size()) {
+      return null;
+    }
+    var ids = new HashMap<String, Long>();
+    for (Map.Entry<String, String> fingerprint : fingerprints.entrySet()) {
+      var entry = entries.get(fingerprint.getKey());
+      if (entry == null || !entry.fingerprint().equals(fingerprint.getValue())) {
+        return null;
+      }
+      ids.put(fingerprint.getKey(), entry.id());
+    }
+    return ids;
+  }
+
+  /**
+   * Replaces the stored commands of a scope and writes the store to its file.
+   *
+   * @param scope the scope.
+   * @param fingerprints the fingerprint of each command of the scope, by command name.
+   * @param ids the id of each command of the scope, by command name.
+   */
+  synchronized void store(String scope, Map<String, String> fingerprints, Map<String, Long> ids) {
+    if (file == null) {
+      return;
+    }
+    var entries = new HashMap<String, Entry>();
+    for (Map.Entry<String, String> fingerprint : fingerprints.entrySet()) {
+      var id = ids.get(fingerprint.getKey());
+      if (id == null) {
+        // Not all commands were registered, do not trust this scope on the next start
+        scopes.remove(scope);
+        save(file);
+        return;
+      }
+      entries.put(fingerprint.getKey(), new Entry(fingerprint.getValue(), id));
+    }
+    if (!entries.equals(scopes.put(scope, entries))) {
+      save(file);
+    }
+  }
+
+  private void load(Path file) {
+    var properties = new Properties();
+    try (InputStream in = Files.newInputStream(file)) {
+      properties.load(in);
+    } catch (IOException e) {
+      logger.warn("Unable to read the command cache {}, commands will be synchronized", file, e);
+      return;
+    }
+    for (String key : properties.stringPropertyNames()) {
+      // <scope>.<name>=<fingerprint>:<id>
+      var value = properties.getProperty(key);
+      var keySeparator = key.indexOf('.');
+      var valueSeparator = value.indexOf(':');
+      if (keySeparator <= 0 || valueSeparator <= 0) {
+        logger.warn("Ignoring malformed command cache entry {}", key);
+        continue;
+      }
+      try {
+        scopes
+            .computeIfAbsent(key.substring(0, keySeparator), scope -> new HashMap<>())
+            .put(
+                key.substring(keySeparator + 1),
+                new Entry(
+                    value.substring(0, valueSeparator),
+                    Long.parseLong(value.substring(valueSeparator + 1))));
+      } catch (NumberFormatException e) {
+        logger.warn("Ignoring malformed command cache entry {}", key);
+      }
+    }
+  }
+
+  private void save(Path file) {
+    var properties = new Properties();
+    scopes.forEach(
+        (scope, entries) ->
+            entries.forEach(
+                (name, entry) ->
+                    properties.setProperty(
+                        scope + '.' + name, entry.fingerprint() + ':' + entry.id())));
+    try {
+      var parent = file.toAbsolutePath().getParent();
+      if (parent != null) {
+        Files.createDirectories(parent);
+      }
+      // Write to a temporary file first so a crash never leaves a partially written cache
+      var temporary = Files.createTempFile(parent, file.getFileName().toString(), ".tmp");
+      try (OutputStream out = Files.newOutputStream(temporary)) {
+        properties.store(out, "Microcord command cache, delete to force a synchronization");
+      }
+      Files.move(
+          temporary,
+          file,
+          StandardCopyOption.REPLACE_EXISTING,
+          StandardCopyOption.ATOMIC_MOVE);
+    } catch (IOException e) {
+      logger.warn("Unable to write the command cache {}", file, e);
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private static void appendCanonical(StringBuilder builder, Object value) {
+    if (value instanceof Map<?, ?> map) {
+      builder.append('{');
+      var first = true;
+      for (Map.Entry<String, Object> entry :
+          new TreeMap<>((Map<String, Object>) map).entrySet()) {
+        if (!first) {
+          builder.append(',');
+        }
+        first = false;
+        appendString(builder, entry.getKey());
+        builder.append(':');
+        appendCanonical(builder, entry.getValue());
+      }
+      builder.append('}');
+    } else if (value instanceof List<?> list) {
+      builder.append('[');
+      for (int i = 0; i < list.size(); i++) {
+        if (i > 0) {
+          builder.append(',');
+        }
+        appendCanonical(builder, list.get(i));
+      }
+      builder.append(']');
+    } else if (value instanceof String string) {
+      appendString(builder, string);
+    } else {
+      builder.append(value);
+    }
+  }
+
+  private static void appendString(StringBuilder builder, String string) {
+    builder.append('"');
+    for (int i = 0; i < string.length(); i++) {
+      var c = string.charAt(i);
+      if (c == '"' || c == '\\') {
+        builder.append('\\');
+      }
+      builder.append(c);
+    }
+    builder.append('"');
+  }
+
+  @Desugar
+  private record Entry(String fingerprint, long id) {}
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright 2023 juanmuscaria
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.juanmuscaria.microcord.slash;
+
+import com.juanmuscaria.microcord.annotations.RateLimit;
+import com.juanmuscaria.microcord.utils.RateLimitTable;
+import java.util.concurrent.TimeUnit;
+import net.dv8tion.jda.api.events.interaction.command.GenericCommandInteractionEvent;
+
+/** A {@link RateLimit} or {@link com.juanmuscaria.microcord.annotations.Cooldown} of a command. */
+final class CommandRateLimit {
+  private static final long GLOBAL_KEY = 1;
+  private final RateLimit.Scope scope;
+  private final RateLimitTable table;
+
+  CommandRateLimit(RateLimit.Scope scope, int permits, long period, TimeUnit unit, int capacity) {
+    this.scope = scope;
+    this.table = new RateLimitTable(permits, period, unit, capacity);
+  }
+
+  /**
+   * Tries to take a permit for the scope of the interaction.
+   *
+   * @param event the command interaction.
+   * @return 0 if the command can be used, otherwise the nanoseconds until it can be used again.
+   */
+  long tryAcquire(GenericCommandInteractionEvent event) {
+    return table.tryAcquire(keyOf(event));
+  }
+
+  /**
+   * Gives back the permit taken for the scope of the interaction.
+   *
+   * @param event the command interaction.
+   */
+  void release(GenericCommandInteractionEvent event) {
+    table.release(keyOf(event));
+  }
+
+  private long keyOf(GenericCommandInteractionEvent event) {
+    return switch (scope) {
+      case USER -> event.getUser().getIdLong();
+      case GUILD -> {
+        var guild = event.getGuild();
+        yield guild != null ? guild.getIdLong() : event.getChannel().getIdLong();
+      }
+      case CHANNEL -> event.getChannel().getIdLong();
+      case GLOBAL -> GLOBAL_KEY;
+    };
+  }
+}
@@ -0,0 +1,479 @@
+/*
+ * Copyright 2023 juanmuscaria
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.juanmuscaria.microcord.slash;
+
+import com.juanmuscaria.microcord.configuration.JdaConfiguration;
+import com.juanmuscaria.microcord.configuration.JdaConfiguration.WorkerType;
+import com.juanmuscaria.microcord.locale.DiscordLocales;
+import com.juanmuscaria.microcord.metrics.MicrocordMetrics.CommandTimer;
+import com.juanmuscaria.microcord.metrics.MicrocordMetrics.Outcome;
+import com.juanmuscaria.microcord.scope.DiscordContext;
+import com.juanmuscaria.microcord.scope.DiscordContextData;
+import com.juanmuscaria.microcord.scope.DiscordContextTerminatedEvent;
+import com.juanmuscaria.microcord.utils.ThreadFactories;
+import io.micronaut.context.MessageSource;
+import io.micronaut.context.event.ApplicationEventPublisher;
+import io.micronaut.core.annotation.Nullable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import net.dv8tion.jda.api.events.interaction.command.GenericCommandInteractionEvent;
+import net.dv8tion.jda.api.interactions.DiscordLocale;
+import net.dv8tion.jda.api.utils.messages.MessageCreateData;
+import net.dv8tion.jda.api.utils.messages.MessageEditData;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Invokes command executors and sends their result as the interaction reply.
+ *
+ * <p>Executors returning a {@link CompletionStage}, a {@link Publisher} or a {@link
+ * MessageCreateData} run in a dedicated worker pool. If their result is not ready within the defer
+ * threshold the reply is deferred, and the result later edits the deferred reply. The first message
+ * is the reply, any other message emitted by a publisher is sent as a follow-up. If the reply was
+ * deferred by the responder and the command completed without sending anything, the deferred
+ * reply is deleted unless the executor edited it through the interaction hook. If the command
+ * failed before sending anything, the user is told so in the reply.
+ *
+ * <p>The discord context of the event is propagated to the worker and kept alive until the result
+ * completes. Asynchronous executors answering through the interaction hook must edit the original
+ * reply rather than reply the event themselves.
+ *
+ * <p>Executors with any other return type run in the event thread. Their result is handled the
+ * same way if it turns out to be asynchronous, otherwise it is ignored.
+ */
+final class CommandResponder {
+  private static final Logger logger = LoggerFactory.getLogger(CommandResponder.class);
+  private static final int PENDING = 0;
+  private static final int DEFERRED = 1;
+  private static final int REPLIED = 2;
+  private static final int CLOSED = 3;
+  private static final String FAILED_KEY = "microcord.command-failed";
+  private static final String FAILED_DEFAULT = "Something went wrong while running this command.";
+  private final ApplicationEventPublisher<DiscordContextTerminatedEvent> publisher;
+  private final MessageSource messageSource;
+  private final ExecutorService executor;
+  private final ScheduledThreadPoolExecutor scheduler;
+  private final long deferThreshold;
+
+  CommandResponder(
+      JdaConfiguration.Commands configuration,
+      ApplicationEventPublisher<DiscordContextTerminatedEvent> publisher,
+      MessageSource messageSource) {
+    this.deferThreshold = configuration.getDeferThreshold().toMillis();
+    if (deferThreshold <= 0 || deferThreshold >= 3000) {
+      throw new IllegalArgumentException(
+          "The command defer threshold must be between 0 and 3 seconds, got "
+              + configuration.getDeferThreshold());
+    }
+    this.publisher = publisher;
+    this.messageSource = messageSource;
+    this.executor = createExecutor(configuration);
+    this.scheduler =
+        new ScheduledThreadPoolExecutor(1, ThreadFactories.platform("microcord-defer-", true));
+    scheduler.setRemoveOnCancelPolicy(true);
+  }
+
+  /**
+   * Invokes the executor of a command route, asynchronously if it returns an asynchronous result.
+   * The route timer, if any, records the invocation once its result completes.
+   *
+   * @param event the command event.
+   * @param route the command route.
+   */
+  void invoke(GenericCommandInteractionEvent event, CommandRoute route) {
+    var executor = route.getExecutor();
+    invoke(
+        new EventReply(event),
+        () -> executor.invoke(event),
+        isAsynchronous(executor.getExecutionHandle().getReturnType().getType()),
+        route.getTimer());
+  }
+
+  /**
+   * Invokes a command, asynchronously if it is declared to return an asynchronous result.
+   *
+   * @param reply the interaction the command answers.
+   * @param command invokes the command executor.
+   * @param asynchronous whether the executor is declared to return an asynchronous result.
+   * @param timer the timer recording the invocation, if any.
+   */
+  void invoke(
+      Reply reply, Supplier<Object> command, boolean asynchronous, @Nullable CommandTimer timer) {
+    var start = timer != null ? System.nanoTime() : 0L;
+    if (!asynchronous) {
+      Object result;
+      try {
+        result = command.get();
+      } catch (Throwable e) {
+        if (timer != null) {
+          timer.record(reply.shardId(), Outcome.EXCEPTION, System.nanoTime() - start);
+        }
+        throw e;
+      }
+      if (isAsynchronousResult(result)) {
+        // Declared with a broader return type, such as Object
+        respond(reply, timer, start).handle(result);
+      } else if (timer != null) {
+        timer.record(reply.shardId(), Outcome.SUCCESS, System.nanoTime() - start);
+      }
+      return;
+    }
+
+    var response = respond(reply, timer, start);
+    try {
+      executor.execute(() -> DiscordContext.runIsolated(() -> response.run(command)));
+    } catch (RuntimeException e) {
+      // Rejected, most likely shutting down
+      response.complete(null, e);
+    }
+  }
+
+  /** Stops the workers, pending results are not awaited. */
+  void shutdown() {
+    executor.shutdown();
+    scheduler.shutdownNow();
+  }
+
+  // Keeps the context alive and schedules the deferral until the result completes
+  private PendingResponse respond(Reply reply, @Nullable CommandTimer timer, long start) {
+    var context = DiscordContext.currentContext().orElse(null);
+    if (context != null) {
+      context.retain();
+    }
+    var response = new PendingResponse(reply, context, timer, start);
+    response.deferral =
+        scheduler.schedule(response::defer, deferThreshold, TimeUnit.MILLISECONDS);
+    return response;
+  }
+
+  private String failureMessage(Reply reply) {
+    var locale = DiscordLocales.toLocale(reply.userLocale());
+    return messageSource.getMessage(FAILED_KEY, locale).orElse(FAILED_DEFAULT);
+  }
+
+  private static boolean isAsynchronousResult(@Nullable Object result) {
+    return result instanceof CompletionStage
+        || result instanceof Publisher
+        || result instanceof MessageCreateData;
+  }
+
+  private static boolean isAsynchronous(Class<?> returnType) {
+    return CompletionStage.class.isAssignableFrom(returnType)
+        || Publisher.class.isAssignableFrom(returnType)
+        || MessageCreateData.class.isAssignableFrom(returnType);
+  }
+
+  private static ExecutorService createExecutor(JdaConfiguration.Commands configuration) {
+    if (configuration.getWorkers() == WorkerType.VIRTUAL) {
+      if (ThreadFactories.supportsVirtualThreads()) {
+        return ThreadFactories.virtualThreadPerTask("microcord-commands-");
+      }
+      logger.warn("Virtual threads are not supported by this runtime, using platform threads.");
+    }
+    return Executors.newFixedThreadPool(
+        configuration.getThreads(), ThreadFactories.platform("microcord-commands-", true));
+  }
+
+  /** The interaction a command answers, what the responder needs from a command event. */
+  interface Reply {
+    String commandName();
+
+    int shardId();
+
+    DiscordLocale userLocale();
+
+    boolean isAcknowledged();
+
+    /**
+     * Defers the reply.
+     *
+     * @return completes once discord acknowledged the interaction, or fails if it was not deferred.
+     */
+    CompletableFuture<?> defer();
+
+    void reply(MessageCreateData message);
+
+    void replyEphemeral(String message);
+
+    void editOriginal(MessageEditData message);
+
+    void sendFollowup(MessageCreateData message);
+
+    /** Deletes the original reply, unless it was edited since it was deferred. */
+    void deletePlaceholder();
+  }
+
+  /** Reply of a command event. */
+  private static final class EventReply implements Reply {
+    private final GenericCommandInteractionEvent event;
+
+    private EventReply(GenericCommandInteractionEvent event) {
+      this.event = event;
+    }
+
+    @Override
+    public String commandName() {
+      return event.getFullCommandName();
+    }
+
+    @Override
+    public int shardId() {
+      return event.getJDA().getShardInfo().getShardId();
+    }
+
+    @Override
+    public DiscordLocale userLocale() {
+      return event.getUserLocale();
+    }
+
+    @Override
+    public boolean isAcknowledged() {
+      return event.isAcknowledged();
+    }
+
+    @Override
+    public CompletableFuture<?> defer() {
+      return event.deferReply().submit();
+    }
+
+    @Override
+    public void reply(MessageCreateData message) {
+      event.reply(message).queue();
+    }
+
+    @Override
+    public void replyEphemeral(String message) {
+      event.reply(message).setEphemeral(true).queue();
+    }
+
+    @Override
+    public void editOriginal(MessageEditData message) {
+      event.getHook().editOriginal(message).queue();
+    }
+
+    @Override
+    public void sendFollowup(MessageCreateData message) {
+      event.getHook().sendMessage(message).queue();
+    }
+
+    @Override
+    public void deletePlaceholder() {
+      var hook = event.getHook();
+      hook.retrieveOriginal()
+          .queue(
+              original -> {
+                // The executor may have edited the deferred reply through the hook itself
+                if (original.getContentRaw().isEmpty()
+                    && original.getEmbeds().isEmpty()
+                    && original.getAttachments().isEmpty()) {
+                  hook.deleteOriginal().queue();
+                }
+              },
+              failure -> logger.debug("Unable to retrieve the deferred command reply", failure));
+    }
+  }
+
+  /** Reply state of a single asynchronous command invocation. */
+  private final class PendingResponse implements Subscriber<Object> {
+    private final Reply reply;
+    @Nullable private final DiscordContextData context;
+    @Nullable private final CommandTimer timer;
+    private final long start;
+    private final AtomicInteger state = new AtomicInteger(PENDING);
+    // Completes once the reply deferred by this responder was acknowledged
+    private final CompletableFuture<Void> deferred = new CompletableFuture<>();
+    private volatile ScheduledFuture<?> deferral;
+
+    private PendingResponse(
+        Reply reply,
+        @Nullable DiscordContextData context,
+        @Nullable CommandTimer timer,
+        long start) {
+      this.reply = reply;
+      this.context = context;
+      this.timer = timer;
+      this.start = start;
+    }
+
+    // Runs the executor in a worker thread
+    private void run(Supplier<Object> command) {
+      withContext(
+          () -> {
+            Object result;
+            try {
+              result = command.get();
+            } catch (Throwable e) {
+              complete(null, e);
+              return;
+            }
+            handle(result);
+          });
+    }
+
+    private void handle(@Nullable Object result) {
+      if (result instanceof CompletionStage<?> stage) {
+        stage.whenComplete(this::complete);
+      } else if (result instanceof Publisher<?> resultPublisher) {
+        resultPublisher.subscribe(this);
+      } else {
+        complete(result, null);
+      }
+    }
+
+    // Callbacks may run in any thread, including the event thread if the executor is rejected
+    private void withContext(Runnable action) {
+      DiscordContext.runWith(context, action);
+    }
+
+    private void defer() {
+      if (reply.isAcknowledged() || !state.compareAndSet(PENDING, DEFERRED)) {
+        return;
+      }
+      CompletableFuture<?> acknowledged;
+      try {
+        acknowledged = reply.defer();
+      } catch (RuntimeException e) {
+        acknowledged = new CompletableFuture<>();
+        acknowledged.completeExceptionally(e);
+      }
+      acknowledged.whenComplete(
+          (ignored, failure) -> {
+            if (failure == null) {
+              deferred.complete(null);
+              return;
+            }
+            // Most likely the executor replied between the check and the deferral, its reply
+            // must not be edited or deleted as if it was the placeholder
+            logger.debug("Unable to defer the command reply", failure);
+            state.compareAndSet(DEFERRED, PENDING);
+            deferred.completeExceptionally(failure);
+          });
+    }
+
+    private void send(Object result) {
+      if (!(result instanceof MessageCreateData message)) {
+        if (result != null) {
+          logger.warn("Ignoring unsupported command result {}", result);
+        }
+        return;
+      }
+      if (!reply.isAcknowledged() && state.compareAndSet(PENDING, REPLIED)) {
+        cancelDeferral();
+        reply.reply(message);
+      } else if (state.compareAndSet(DEFERRED, REPLIED)) {
+        // If the deferral failed the executor replied itself, its reply is not edited
+        deferred.whenComplete(
+            (ignored, failure) -> {
+              if (failure == null) {
+                reply.editOriginal(MessageEditData.fromCreateData(message));
+              } else {
+                reply.sendFollowup(message);
+              }
+            });
+      } else {
+        // Already replied by a previous message or by the executor itself
+        state.compareAndSet(PENDING, REPLIED);
+        reply.sendFollowup(message);
+      }
+    }
+
+    // Tells the user the command failed, unless a message was already sent
+    private void sendFailure() {
+      if (!reply.isAcknowledged() && state.compareAndSet(PENDING, REPLIED)) {
+        cancelDeferral();
+        reply.replyEphemeral(failureMessage(reply));
+      } else if (state.compareAndSet(DEFERRED, REPLIED)) {
+        deferred.thenRun(
+            () -> reply.editOriginal(MessageEditData.fromContent(failureMessage(reply))));
+      }
+    }
+
+    private void complete(@Nullable Object result, @Nullable Throwable error) {
+      if (timer != null) {
+        var outcome = error != null ? Outcome.EXCEPTION : Outcome.SUCCESS;
+        timer.record(reply.shardId(), outcome, System.nanoTime() - start);
+      }
+      withContext(
+          () -> {
+            try {
+              if (error != null) {
+                logger.error("Command {} failed", reply.commandName(), error);
+                sendFailure();
+              } else {
+                send(result);
+              }
+            } finally {
+              close();
+            }
+          });
+    }
+
+    private void close() {
+      cancelDeferral();
+      if (state.getAndSet(CLOSED) == DEFERRED) {
+        // Deferred by this responder and nothing sent by it, the placeholder is only deleted
+        // once the deferral went through and if the executor did not edit it
+        deferred.thenRun(reply::deletePlaceholder);
+      }
+      if (context != null
+          && context.release()
+          && (context.hasScopedBeans() || context.hasAttributes())) {
+        try {
+          publisher.publishEvent(new DiscordContextTerminatedEvent(context));
+        } catch (Throwable e) {
+          logger.error("An error occurred while terminating event context", e);
+        }
+      }
+    }
+
+    private void cancelDeferral() {
+      var future = deferral;
+      if (future != null) {
+        future.cancel(false);
+      }
+    }
+
+    @Override
+    public void onSubscribe(Subscription subscription) {
+      subscription.request(Long.MAX_VALUE);
+    }
+
+    @Override
+    public void onNext(Object message) {
+      withContext(() -> send(message));
+    }
+
+    @Override
+    public void onError(Throwable error) {
+      complete(null, error);
+    }
+
+    @Override
+    public void onComplete() {
+      complete(null, null);
+    }
+  }
+}
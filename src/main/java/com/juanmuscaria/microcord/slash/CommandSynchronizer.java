@@ -0,0 +1,253 @@
+/*
+ * Copyright 2023 juanmuscaria
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.juanmuscaria.microcord.slash;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.function.ObjLongConsumer;
+import java.util.function.Supplier;
+import net.dv8tion.jda.api.JDA;
+import net.dv8tion.jda.api.entities.Guild;
+import net.dv8tion.jda.api.interactions.commands.Command;
+import net.dv8tion.jda.api.interactions.commands.build.CommandData;
+import net.dv8tion.jda.api.requests.RestAction;
+import net.dv8tion.jda.api.requests.restaction.CommandListUpdateAction;
+import net.dv8tion.jda.api.utils.data.DataObject;
+import net.dv8tion.jda.api.utils.data.SerializableData;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Synchronizes the slash and context menu commands built by {@link AnnotatedSlashBuilder} with
+ * discord. Global commands are synchronized once per process and guild commands once per guild,
+ * regardless of the amount of shards. The registered commands are fetched and compared with the
+ * built ones, and a single bulk overwrite is sent only if they differ.
+ *
+ * <p>Bulk overwrites replace every command of the scope, commands not built by this application
+ * are removed.
+ *
+ * <p>The fingerprint of every synchronized scope is kept in a {@link CommandFingerprintStore}, a
+ * scope that did not change since the last synchronization is not fetched at all.
+ */
+final class CommandSynchronizer {
+  private static final Logger logger = LoggerFactory.getLogger(CommandSynchronizer.class);
+  private final AnnotatedSlashBuilder annotatedSlashBuilder;
+  private final CommandFingerprintStore fingerprintStore;
+  private final ObjLongConsumer<CommandDefinition> idConsumer;
+  private final AtomicBoolean globalSynchronized = new AtomicBoolean();
+  private final Set<Long> synchronizedGuilds = ConcurrentHashMap.newKeySet();
+  private volatile Plan plan;
+
+  /**
+   * Creates a new synchronizer.
+   *
+   * @param annotatedSlashBuilder the builder holding all command definitions.
+   * @param fingerprintStore the store of previously synchronized commands.
+   * @param idConsumer receives the id discord assigned to each synchronized command.
+   */
+  CommandSynchronizer(
+      AnnotatedSlashBuilder annotatedSlashBuilder,
+      CommandFingerprintStore fingerprintStore,
+      ObjLongConsumer<CommandDefinition> idConsumer) {
+    this.annotatedSlashBuilder = annotatedSlashBuilder;
+    this.fingerprintStore = fingerprintStore;
+    this.idConsumer = idConsumer;
+  }
+
+  /**
+   * Synchronizes the global commands, only the first call of this process has any effect unless it
+   * fails.
+   *
+   * @param jda any shard of the application.
+   */
+  void synchronizeGlobal(JDA jda) {
+    if (globalSynchronized.compareAndSet(false, true)) {
+      synchronize(
+          "global scope",
+          scopeKey(jda, "global"),
+          jda.retrieveCommands(true),
+          jda::updateCommands,
+          plan().global,
+          failure -> globalSynchronized.set(false));
+    }
+  }
+
+  /**
+   * Synchronizes the commands of a guild, only the first call for each guild has any effect unless
+   * it fails. Guilds without commands are ignored.
+   *
+   * @param guild the guild.
+   */
+  void synchronizeGuild(Guild guild) {
+    var guildId = guild.getIdLong();
+    var commands = plan().guilds.get(guildId);
+    if (commands != null && synchronizedGuilds.add(guildId)) {
+      synchronize(
+          "guild " + guild.getId(),
+          scopeKey(guild.getJDA(), guild.getId()),
+          guild.retrieveCommands(true),
+          guild::updateCommands,
+          commands,
+          failure -> synchronizedGuilds.remove(guildId));
+    }
+  }
+
+  private void synchronize(
+      String scope,
+      String scopeKey,
+      RestAction<List<Command>> retrieveAction,
+      Supplier<CommandListUpdateAction> updateAction,
+      List<CommandDefinition> definitions,
+      Consumer<Throwable> onFailure) {
+    var fingerprints = new HashMap<String, String>();
+    var fingerprintByDefinition = plan().fingerprints;
+    for (CommandDefinition definition : definitions) {
+      fingerprints.put(definition.getKey(), fingerprintByDefinition.get(definition));
+    }
+    var storedIds = fingerprintStore.lookup(scopeKey, fingerprints);
+    if (storedIds != null) {
+      logger.debug("Commands of the {} did not change since the last synchronization", scope);
+      for (CommandDefinition definition : definitions) {
+        idConsumer.accept(definition, storedIds.get(definition.getKey()));
+      }
+      return;
+    }
+
+    Consumer<Throwable> failureHandler =
+        failure -> {
+          logger.error("Unable to synchronize the commands of the {}", scope, failure);
+          onFailure.accept(failure);
+        };
+    retrieveAction.queue(
+        registered -> {
+          if (isUpToDate(registered, definitions)) {
+            logger.debug("Commands of the {} are up to date", scope);
+            cacheIds(scopeKey, registered, definitions, fingerprints);
+          } else {
+            logger.info("Updating {} commands of the {}", definitions.size(), scope);
+            var commandData = new ArrayList<CommandData>(definitions.size());
+            for (CommandDefinition definition : definitions) {
+              commandData.add(definition.getCommandData());
+            }
+            updateAction
+                .get()
+                .addCommands(commandData)
+                .queue(
+                    updated -> cacheIds(scopeKey, updated, definitions, fingerprints),
+                    failureHandler);
+          }
+        },
+        failureHandler);
+  }
+
+  // Structurally compares the registered commands with the definitions
+  private boolean isUpToDate(List<Command> registered, List<CommandDefinition> definitions) {
+    if (registered.size() != definitions.size()) {
+      return false;
+    }
+    var registeredByName = new HashMap<String, Command>();
+    for (Command command : registered) {
+      registeredByName.put(CommandDefinition.keyOf(command.getType(), command.getName()), command);
+    }
+    var data = plan().data;
+    for (CommandDefinition definition : definitions) {
+      var command = registeredByName.get(definition.getKey());
+      if (command == null
+          || !data.get(definition).equals(normalize(CommandData.fromCommand(command)))) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private void cacheIds(
+      String scopeKey,
+      Collection<Command> commands,
+      List<CommandDefinition> definitions,
+      Map<String, String> fingerprints) {
+    var ids = new HashMap<String, Long>();
+    var definitionsByName = new HashMap<String, CommandDefinition>();
+    for (CommandDefinition definition : definitions) {
+      definitionsByName.put(definition.getKey(), definition);
+    }
+    for (Command command : commands) {
+      var key = CommandDefinition.keyOf(command.getType(), command.getName());
+      var definition = definitionsByName.get(key);
+      if (definition != null) {
+        logger.debug("Registered command {}", key);
+        idConsumer.accept(definition, command.getIdLong());
+        ids.put(key, command.getIdLong());
+      }
+    }
+    fingerprintStore.store(scopeKey, fingerprints, ids);
+  }
+
+  // Commands are only built at startup, the plan is computed once when first needed
+  private Plan plan() {
+    var current = plan;
+    if (current == null) {
+      synchronized (this) {
+        current = plan;
+        if (current == null) {
+          current = new Plan(annotatedSlashBuilder.getDefinitions());
+          plan = current;
+        }
+      }
+    }
+    return current;
+  }
+
+  // Stores of different applications may share a file, scopes are kept apart by application id
+  private static String scopeKey(JDA jda, String scope) {
+    return jda.getSelfUser().getApplicationId() + '-' + scope;
+  }
+
+  // Serializes and parses back the data so both sides have the same representation
+  static Map<String, Object> normalize(SerializableData data) {
+    return DataObject.fromJson(data.toData().toJson()).toMap();
+  }
+
+  /** Commands split by scope along their normalized data and fingerprint. */
+  private static final class Plan {
+    private final List<CommandDefinition> global = new ArrayList<>();
+    private final Map<Long, List<CommandDefinition>> guilds = new HashMap<>();
+    private final Map<CommandDefinition, Map<String, Object>> data = new IdentityHashMap<>();
+    private final Map<CommandDefinition, String> fingerprints = new IdentityHashMap<>();
+
+    private Plan(Collection<CommandDefinition> definitions) {
+      for (CommandDefinition definition : definitions) {
+        if (definition.getGuilds().length == 0) {
+          global.add(definition);
+        } else {
+          for (long guildId : definition.getGuilds()) {
+            guilds.computeIfAbsent(guildId, id -> new ArrayList<>()).add(definition);
+          }
+        }
+        var normalized = normalize(definition.getCommandData());
+        data.put(definition, normalized);
+        fingerprints.put(definition, CommandFingerprintStore.fingerprint(normalized));
+      }
+    }
+  }
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright 2023 juanmuscaria
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.juanmuscaria.microcord.slash;
+
+import com.juanmuscaria.microcord.locale.DiscordLocales;
+import io.micronaut.context.MessageSource;
+import jakarta.inject.Singleton;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import net.dv8tion.jda.api.interactions.DiscordLocale;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Table of the command localizations, mapping each translation key to its translation in every
+ * discord locale. Each key is only looked up in the {@link MessageSource} once, no matter how many
+ * commands use it or how many times the command data is serialized.
+ *
+ * <p>The table lives as long as the application context, it is kept when the context is refreshed.
+ */
+@Singleton
+final class LocalizationTable {
+  private static final Logger logger = LoggerFactory.getLogger(LocalizationTable.class);
+  private static final Map<DiscordLocale, String> NO_TRANSLATIONS = Collections.emptyMap();
+  private final ConcurrentHashMap<String, Map<DiscordLocale, String>> translations =
+      new ConcurrentHashMap<>();
+  // Keys requested while collecting them, see collectKeys
+  private final ThreadLocal<Set<String>> collectedKeys = new ThreadLocal<>();
+  private final MessageSource messageSource;
+
+  LocalizationTable(MessageSource messageSource) {
+    this.messageSource = messageSource;
+  }
+
+  /**
+   * Retrieves the translations of a key, loading them if the key was not precomputed.
+   *
+   * @param key the translation key.
+   * @return an immutable map of the translation of the key in each locale.
+   */
+  Map<DiscordLocale, String> get(String key) {
+    var collecting = collectedKeys.get();
+    if (collecting != null) {
+      collecting.add(key);
+      return NO_TRANSLATIONS;
+    }
+    var localized = translations.get(key);
+    return localized != null ? localized : translations.computeIfAbsent(key, this::load);
+  }
+
+  /**
+   * Runs an action collecting the keys it requests instead of translating them. This allows
+   * serializing the commands once to figure out which keys are needed.
+   *
+   * @param action the action requesting translations.
+   * @return the requested keys.
+   */
+  Set<String> collectKeys(Runnable action) {
+    var keys = new HashSet<String>();
+    collectedKeys.set(keys);
+    try {
+      action.run();
+    } finally {
+      collectedKeys.remove();
+    }
+    return keys;
+  }
+
+  /**
+   * Loads the translations of all keys not yet in the table, in parallel.
+   *
+   * @param keys the keys to load.
+   */
+  void precompute(Collection<String> keys) {
+    keys.parallelStream()
+        .filter(key -> !translations.containsKey(key))
+        .forEach(key -> translations.computeIfAbsent(key, this::load));
+  }
+
+  /**
+   * Retrieves the amount of keys in the table.
+   *
+   * @return the size of the table.
+   */
+  int size() {
+    return translations.size();
+  }
+
+  // Looks up the key in every discord locale
+  Map<DiscordLocale, String> load(String key) {
+    var localized = new EnumMap<DiscordLocale, String>(DiscordLocale.class);
+    for (DiscordLocale locale : DiscordLocales.supported()) {
+      messageSource
+          .getMessage(key, DiscordLocales.toLocale(locale))
+          .ifPresent(message -> localized.put(locale, message));
+    }
+    // TODO: Configurable default bot locale, don't assume it's english
+    if (!localized.containsKey(DiscordLocale.ENGLISH_US)) {
+      logger.warn("Unlocalized command key found: {}", key);
+      localized.put(
+          DiscordLocale.ENGLISH_US, trim(key.replace('.', '_').toLowerCase(Locale.ENGLISH)));
+    }
+    return Collections.unmodifiableMap(localized);
+  }
+
+  // Trim a string to fit the 32 character limits discord requires
+  private static String trim(String s) {
+    return s.substring(Math.max(0, s.length() - 32));
+  }
+}
@@ -15,137 +15,209 @@
  */
 package com.juanmuscaria.microcord.slash;
 
-import static com.juanmuscaria.microcord.utils.OptionalConveniences.ifPresentOrElse;
-import static com.juanmuscaria.microcord.utils.OptionalConveniences.orElseThrow;
-
-import com.juanmuscaria.microcord.annotations.SlashCommand.Option;
-import io.micronaut.core.type.Argument;
-import io.micronaut.inject.MethodExecutionHandle;
+import com.juanmuscaria.microcord.configuration.JdaConfiguration;
+import com.juanmuscaria.microcord.locale.DiscordLocales;
+import com.juanmuscaria.microcord.metrics.MicrocordMetrics;
+import com.juanmuscaria.microcord.metrics.MicrocordMetrics.Outcome;
+import com.juanmuscaria.microcord.scope.DiscordContextTerminatedEvent;
+import com.juanmuscaria.microcord.utils.LongObjectMap;
+import io.micronaut.context.MessageSource;
+import io.micronaut.context.event.ApplicationEventPublisher;
+import io.micronaut.core.annotation.Nullable;
 import io.micronaut.runtime.event.annotation.EventListener;
+import jakarta.annotation.PreDestroy;
 import jakarta.inject.Singleton;
-import java.util.ArrayList;
-import java.util.Optional;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentMap;
-import lombok.AllArgsConstructor;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import net.dv8tion.jda.api.events.guild.GuildJoinEvent;
+import net.dv8tion.jda.api.events.guild.GuildReadyEvent;
+import net.dv8tion.jda.api.events.interaction.command.CommandAutoCompleteInteractionEvent;
+import net.dv8tion.jda.api.events.interaction.command.GenericCommandInteractionEvent;
+import net.dv8tion.jda.api.events.interaction.command.MessageContextInteractionEvent;
 import net.dv8tion.jda.api.events.interaction.command.SlashCommandInteractionEvent;
+import net.dv8tion.jda.api.events.interaction.command.UserContextInteractionEvent;
 import net.dv8tion.jda.api.events.session.ReadyEvent;
-import net.dv8tion.jda.api.interactions.commands.Command;
-import net.dv8tion.jda.internal.utils.tuple.Pair;
+import net.dv8tion.jda.api.interactions.commands.CommandInteractionPayload;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
- * Service to handle incoming {@link SlashCommandInteractionEvent} and appropriately call the method
- * executors linked to it
+ * Service to handle incoming {@link SlashCommandInteractionEvent}, {@link
+ * UserContextInteractionEvent} and {@link MessageContextInteractionEvent} and appropriately call
+ * the method executors linked to them.
+ *
+ * <p>Interactions are routed by the command type, name, group and sub-command name, so commands
+ * are usable as soon as the bot starts, even before they are registered in this session. Command
+ * ids are cached once resolved to skip the name lookup on the next invocations.
+ *
+ * <p>Commands are synchronized with discord by a {@link CommandSynchronizer}, once per process for
+ * global commands and once per guild for guild commands. Executors are invoked by a {@link
+ * CommandResponder}, which runs executors with asynchronous results in a worker pool.
  */
 @Singleton
-@AllArgsConstructor
 public class SlashCommandService {
   private static final boolean REMOVE_INVALID_CMD = false;
   private static final Logger logger = LoggerFactory.getLogger(SlashCommandService.class);
-  private final ConcurrentMap<Long, Pair<Command, CommandDefinition>> commands =
-      new ConcurrentHashMap<>();
+  private static final String RATE_LIMITED_KEY = "microcord.rate-limited";
+  private static final String RATE_LIMITED_DEFAULT =
+      "You are using this command too fast, try again in {seconds} seconds.";
   private final AnnotatedSlashBuilder annotatedSlashBuilder;
+  // Command id -> definition, replaced as a whole on updates
+  private volatile LongObjectMap<CommandDefinition> commandIds = new LongObjectMap<>();
+
+  private final CommandSynchronizer commandSynchronizer;
+  private final CommandResponder commandResponder;
+  private final MessageSource messageSource;
+  private final MicrocordMetrics metrics;
+
+  public SlashCommandService(
+      AnnotatedSlashBuilder annotatedSlashBuilder,
+      JdaConfiguration configuration,
+      ApplicationEventPublisher<DiscordContextTerminatedEvent> publisher,
+      MessageSource messageSource,
+      MicrocordMetrics metrics) {
+    this.annotatedSlashBuilder = annotatedSlashBuilder;
+    this.messageSource = messageSource;
+    this.metrics = metrics;
+    this.commandResponder =
+        new CommandResponder(configuration.getCommands(), publisher, messageSource);
+    var cacheFile = configuration.getCommands().getCacheFile();
+    this.commandSynchronizer =
+        new CommandSynchronizer(
+            annotatedSlashBuilder,
+            new CommandFingerprintStore(cacheFile == null ? null : Paths.get(cacheFile)),
+            (command, commandId) -> cacheCommandId(commandId, command));
+  }
 
   @EventListener
   public void registerCommands(ReadyEvent event) {
-    var jda = event.getJDA();
-    for (CommandDefinition commandDefinition : annotatedSlashBuilder.getCommands().values()) {
-      if (commandDefinition.getGuilds().length > 0) {
-        for (long guildId : commandDefinition.getGuilds()) {
-          var guild = jda.getGuildById(guildId);
-          if (guild != null) {
-            guild
-                .upsertCommand(commandDefinition.getSlashCommand())
-                .onSuccess(
-                    (command) -> {
-                      logger.debug("Registered command {}", command.getName());
-                      commands.put(command.getIdLong(), Pair.of(command, commandDefinition));
-                    })
-                .queue();
-          }
+    commandSynchronizer.synchronizeGlobal(event.getJDA());
+  }
+
+  @EventListener
+  public void registerGuildCommands(GuildReadyEvent event) {
+    commandSynchronizer.synchronizeGuild(event.getGuild());
+  }
+
+  @EventListener
+  public void registerJoinedGuildCommands(GuildJoinEvent event) {
+    commandSynchronizer.synchronizeGuild(event.getGuild());
+  }
+
+  @EventListener
+  public void processSlashEvent(SlashCommandInteractionEvent event) {
+    processCommandEvent(event);
+  }
+
+  @EventListener
+  public void processUserCommandEvent(UserContextInteractionEvent event) {
+    processCommandEvent(event);
+  }
+
+  @EventListener
+  public void processMessageCommandEvent(MessageContextInteractionEvent event) {
+    processCommandEvent(event);
+  }
+
+  // Context menu commands have no sub-commands, they always resolve to the direct execution
+  private void processCommandEvent(GenericCommandInteractionEvent event) {
+    var command = resolveCommand(event);
+    if (command == null) {
+      metrics.unknownCommand(event.getJDA().getShardInfo().getShardId());
+      return;
+    }
+
+    var route = command.getDirectExecution();
+    if (route == null && command.subCommandDefinitions != null) {
+      route =
+          command.subCommandDefinitions.find(event.getSubcommandGroup(), event.getSubcommandName());
+    }
+    if (route == null) {
+      logger.warn(
+          "Unknown sub-command {} in command with ID:{}",
+          event.getFullCommandName(),
+          event.getCommandIdLong());
+      metrics.unknownCommand(event.getJDA().getShardInfo().getShardId());
+      return;
+    }
+    var rateLimits = route.getRateLimits();
+    for (int i = 0; i < rateLimits.length; i++) {
+      var wait = rateLimits[i].tryAcquire(event);
+      if (wait > 0) {
+        // The command is not used, the permits of the previous limits are given back
+        for (int j = 0; j < i; j++) {
+          rateLimits[j].release(event);
+        }
+        if (route.getTimer() != null) {
+          route
+              .getTimer()
+              .record(event.getJDA().getShardInfo().getShardId(), Outcome.RATE_LIMITED, 0);
         }
-      } else {
-        jda.upsertCommand(commandDefinition.getSlashCommand())
-            .onSuccess(
-                (command) -> {
-                  logger.debug("Registered command {}", command.getName());
-                  commands.put(command.getIdLong(), Pair.of(command, commandDefinition));
-                })
-            .queue();
+        replyRateLimited(event, wait);
+        return;
       }
     }
+    commandResponder.invoke(event, route);
   }
 
   @EventListener
-  public void processSlashEvent(SlashCommandInteractionEvent event) {
-    if (commands.containsKey(event.getCommandIdLong())) {
-      var command = commands.get(event.getCommandIdLong()).getRight();
-      if (command.getDirectExecution() != null) {
-        invokeCommand(event, command.getDirectExecution());
-      } else {
-        var key =
-            event.getSubcommandGroup() != null
-                ? event.getSubcommandGroup() + event.getSubcommandName()
-                : event.getSubcommandName();
-        assert command.subCommandDefinitions != null;
-        invokeCommand(event, command.subCommandDefinitions.subCommandExecution.get(key));
-      }
-    } else {
-      logger.warn("Invalid command with ID:{}", event.getCommandIdLong());
-      if (REMOVE_INVALID_CMD) {
-        event.getJDA().deleteCommandById(event.getCommandIdLong()).queue();
-      }
+  public void processAutocompleteEvent(CommandAutoCompleteInteractionEvent event) {
+    var command = resolveCommand(event);
+    if (command == null) {
+      return;
+    }
+
+    var option = event.getFocusedOption().getName();
+    var handler =
+        command.findAutocomplete(event.getSubcommandGroup(), event.getSubcommandName(), option);
+    if (handler == null) {
+      logger.warn("No autocomplete handler for {} in {}", option, event.getFullCommandName());
+      event.replyChoices(Collections.emptyList()).queue();
+      return;
     }
+    event.replyChoices(handler.suggest(event)).queue();
   }
 
-  @SuppressWarnings({"rawtypes", "unchecked"})
-  private void invokeCommand(
-      SlashCommandInteractionEvent event, MethodExecutionHandle<?, Object> method) {
-    // DiscordUserContext.set(new DiscordUser(event.getUser(), event.getUserLocale()));
-    var arguments = method.getArguments();
-    if (arguments.length == 0) {
-      method.invoke();
-    } else {
-      var argumentList = new ArrayList<>(arguments.length);
-      for (Argument<?> argument : arguments) {
-        ifPresentOrElse(
-            argument.findAnnotation(Option.class),
-            (option -> {
-              var optionName = orElseThrow(option.stringValue());
-              var actualType = argument;
-              if (argument.isOptional()) {
-                actualType = argument.getWrappedType();
-              }
-              if (argument.isOptional() && event.getOption(optionName) == null) {
-                argumentList.add(Optional.empty());
-              } else if (Enum.class.isAssignableFrom(actualType.getType())
-                  && CommandChoices.class.isAssignableFrom(actualType.getType())) {
-                CommandChoices[] choices =
-                    (CommandChoices[]) actualType.getType().getEnumConstants();
-                var value =
-                    choices[0].fromValue(
-                        annotatedSlashBuilder.convertType(
-                            choices[0].value().getClass(), event.getOption(optionName)));
-                argumentList.add(argument.isOptional() ? Optional.of(value) : value);
-              } else {
-                var value =
-                    annotatedSlashBuilder.convertType(
-                        actualType.getType(), event.getOption(optionName));
-                argumentList.add(argument.isOptional() ? Optional.of(value) : value);
-              }
-            }),
-            () -> {
-              if (SlashCommandInteractionEvent.class.isAssignableFrom(argument.getType())) {
-                argumentList.add(event);
-              } else {
-                throw new IllegalArgumentException("Unknown argument type");
-              }
-            });
+  // Finds the command of an interaction by its id, or by its name if the id is not known yet
+  @Nullable private CommandDefinition resolveCommand(CommandInteractionPayload event) {
+    var commandId = event.getCommandIdLong();
+    var command = commandIds.get(commandId);
+    if (command == null) {
+      command = annotatedSlashBuilder.getCommand(event.getCommandType(), event.getName());
+      if (command == null) {
+        logger.warn("Invalid command {} with ID:{}", event.getName(), commandId);
+        if (REMOVE_INVALID_CMD) {
+          event.getJDA().deleteCommandById(commandId).queue();
+        }
+        return null;
       }
+      cacheCommandId(commandId, command);
+    }
+    return command;
+  }
 
-      method.invoke(argumentList.toArray());
+  private synchronized void cacheCommandId(long commandId, CommandDefinition command) {
+    if (commandIds.get(commandId) != command) {
+      var updated = commandIds.copy();
+      updated.put(commandId, command);
+      commandIds = updated;
     }
   }
+
+  private void replyRateLimited(GenericCommandInteractionEvent event, long waitNanos) {
+    var locale = DiscordLocales.toLocale(event.getUserLocale());
+    var seconds = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos + 999_999_999L));
+    var message =
+        messageSource.interpolate(
+            messageSource.getMessage(RATE_LIMITED_KEY, locale).orElse(RATE_LIMITED_DEFAULT),
+            MessageSource.MessageContext.of(
+                locale, Collections.<String, Object>singletonMap("seconds", seconds)));
+    event.reply(message).setEphemeral(true).queue();
+  }
+
+  @PreDestroy
+  void shutdown() {
+    commandResponder.shutdown();
+  }
 }
@@ -0,0 +1,104 @@
+/*
+ * Copyright 2023 juanmuscaria
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.juanmuscaria.microcord.slash;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import net.dv8tion.jda.api.interactions.commands.Command;
+import net.dv8tion.jda.api.interactions.commands.OptionData;
+
+/**
+ * Case-insensitive prefix index of static autocomplete suggestions. Every node keeps the choices
+ * of its subtree, so completing a prefix is a walk of its characters with no allocation.
+ */
+final class SuggestionTrie {
+  private final Node root = new Node();
+
+  /**
+   * Builds the index, suggestions keep their declaration order.
+   *
+   * @param suggestions the suggestion names with their choices.
+   */
+  SuggestionTrie(List<Command.Choice> suggestions) {
+    for (Command.Choice choice : suggestions) {
+      var node = root;
+      node.add(choice);
+      var name = choice.getName();
+      for (int i = 0; i < name.length(); i++) {
+        node = node.childOrCreate(Character.toLowerCase(name.charAt(i)));
+        node.add(choice);
+      }
+    }
+    root.freeze();
+  }
+
+  /**
+   * Finds the suggestions starting with a prefix, ignoring the case.
+   *
+   * @param prefix the typed value.
+   * @return an immutable list of at most {@link OptionData#MAX_CHOICES} suggestions.
+   */
+  List<Command.Choice> complete(String prefix) {
+    var node = root;
+    for (int i = 0; i < prefix.length() && node != null; i++) {
+      node = node.child(Character.toLowerCase(prefix.charAt(i)));
+    }
+    return node == null ? Collections.emptyList() : node.choices;
+  }
+
+  private static final class Node {
+    private char[] keys = new char[0];
+    private Node[] children = new Node[0];
+    private List<Command.Choice> choices = new ArrayList<>();
+
+    private Node child(char key) {
+      // Nodes have few children, a linear scan beats hashing boxed characters
+      for (int i = 0; i < keys.length; i++) {
+        if (keys[i] == key) {
+          return children[i];
+        }
+      }
+      return null;
+    }
+
+    private Node childOrCreate(char key) {
+      var child = child(key);
+      if (child == null) {
+        child = new Node();
+        keys = Arrays.copyOf(keys, keys.length + 1);
+        children = Arrays.copyOf(children, children.length + 1);
+        keys[keys.length - 1] = key;
+        children[children.length - 1] = child;
+      }
+      return child;
+    }
+
+    private void add(Command.Choice choice) {
+      if (choices.size() < OptionData.MAX_CHOICES) {
+        choices.add(choice);
+      }
+    }
+
+    private void freeze() {
+      choices = Collections.unmodifiableList(choices);
+      for (Node child : children) {
+        child.freeze();
+      }
+    }
+  }
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright 2023 juanmuscaria
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.juanmuscaria.microcord.utils;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock free histogram of durations in nanoseconds. Values are counted in log-linear buckets, 16 per
+ * power of two, so percentiles are accurate within 6.25% of the real value regardless of the
+ * magnitude while recording never allocates.
+ */
+public final class LatencyHistogram {
+  private static final int SUB_BUCKETS = 16;
+  private static final int SUB_BITS = 4;
+  private static final int BUCKETS = (64 - SUB_BITS) * SUB_BUCKETS;
+  private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+  /**
+   * Records a duration, negative durations are counted as zero.
+   *
+   * @param nanos the duration in nanoseconds.
+   */
+  public void record(long nanos) {
+    counts.incrementAndGet(indexOf(Math.max(0, nanos)));
+  }
+
+  /**
+   * Retrieves how many durations were recorded.
+   *
+   * @return the amount of recorded durations.
+   */
+  public long count() {
+    var total = 0L;
+    for (int i = 0; i < BUCKETS; i++) {
+      total += counts.get(i);
+    }
+    return total;
+  }
+
+  /**
+   * Retrieves the duration below which the given fraction of the recorded durations fall.
+   *
+   * @param quantile the fraction, between 0 and 1.
+   * @return the lower bound of the bucket holding the quantile, or 0 if nothing was recorded.
+   */
+  public long percentile(double quantile) {
+    if (quantile < 0 || quantile > 1) {
+      throw new IllegalArgumentException("The quantile must be between 0 and 1, got " + quantile);
+    }
+    var snapshot = new long[BUCKETS];
+    var total = 0L;
+    for (int i = 0; i < BUCKETS; i++) {
+      snapshot[i] = counts.get(i);
+      total += snapshot[i];
+    }
+    var rank = Math.max(1, (long) Math.ceil(quantile * total));
+    var seen = 0L;
+    for (int i = 0; i < BUCKETS; i++) {
+      seen += snapshot[i];
+      if (seen >= rank) {
+        return lowerBoundOf(i);
+      }
+    }
+    return 0;
+  }
+
+  /** Discards every recorded duration. */
+  public void reset() {
+    for (int i = 0; i < BUCKETS; i++) {
+      counts.set(i, 0);
+    }
+  }
+
+  private static int indexOf(long value) {
+    if (value < SUB_BUCKETS) {
+      return (int) value;
+    }
+    var exponent = 63 - Long.numberOfLeadingZeros(value);
+    var subBucket = (int) (value >>> (exponent - SUB_BITS)) & (SUB_BUCKETS - 1);
+    return (exponent - SUB_BITS + 1) * SUB_BUCKETS + subBucket;
+  }
+
+  private static long lowerBoundOf(int index) {
+    if (index < SUB_BUCKETS) {
+      return index;
+    }
+    var exponent = index / SUB_BUCKETS + SUB_BITS - 1;
+    var subBucket = index % SUB_BUCKETS;
+    return (long) (SUB_BUCKETS + subBucket) << (exponent - SUB_BITS);
+  }
+}
@@ -0,0 +1,156 @@
+/*
+ * Copyright 2023 juanmuscaria
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.juanmuscaria.microcord.utils;
+
+import io.micronaut.core.annotation.NonNull;
+import io.micronaut.core.annotation.Nullable;
+import java.util.Arrays;
+
+/**
+ * Open addressing hash map with primitive long keys, lookups do not box the key. Null values are
+ * not supported.
+ *
+ * <p>This map is not thread safe, it is meant to be filled once and then only read, or to be
+ * replaced as a whole (copy-on-write) when shared between threads.
+ *
+ * @param <V> the value type.
+ */
+public final class LongObjectMap<V> {
+  private static final float LOAD_FACTOR = 0.5f;
+  private long[] keys;
+  private Object[] values;
+  private int mask;
+  private int size;
+
+  public LongObjectMap() {
+    this(8);
+  }
+
+  public LongObjectMap(int expectedSize) {
+    var capacity = Integer.highestOneBit(Math.max(4, (int) (expectedSize / LOAD_FACTOR)) - 1) << 1;
+    this.keys = new long[capacity];
+    this.values = new Object[capacity];
+    this.mask = capacity - 1;
+  }
+
+  private LongObjectMap(LongObjectMap<V> other) {
+    this.keys = Arrays.copyOf(other.keys, other.keys.length);
+    this.values = Arrays.copyOf(other.values, other.values.length);
+    this.mask = other.mask;
+    this.size = other.size;
+  }
+
+  /**
+   * Retrieves the value mapped to a key.
+   *
+   * @param key the key.
+   * @return the value, or null if the key is not mapped.
+   */
+  @Nullable @SuppressWarnings("unchecked")
+  public V get(long key) {
+    var index = indexOf(key);
+    return index < 0 ? null : (V) values[index];
+  }
+
+  /**
+   * Checks if a key is mapped.
+   *
+   * @param key the key.
+   * @return whether the key is mapped.
+   */
+  public boolean containsKey(long key) {
+    return indexOf(key) >= 0;
+  }
+
+  /**
+   * Maps a key to a value, replacing any previous mapping.
+   *
+   * @param key the key.
+   * @param value the value.
+   * @return the previous value, or null if the key was not mapped.
+   */
+  @Nullable @SuppressWarnings("unchecked")
+  public V put(long key, @NonNull V value) {
+    if (value == null) {
+      throw new IllegalArgumentException("Null values are not supported");
+    }
+    for (int i = hash(key) & mask; ; i = (i + 1) & mask) {
+      if (values[i] == null) {
+        keys[i] = key;
+        values[i] = value;
+        if (++size > keys.length * LOAD_FACTOR) {
+          rehash(keys.length << 1);
+        }
+        return null;
+      } else if (keys[i] == key) {
+        var previous = (V) values[i];
+        values[i] = value;
+        return previous;
+      }
+    }
+  }
+
+  /**
+   * Retrieves the amount of mapped keys.
+   *
+   * @return the size of this map.
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Creates an independent copy of this map, used to update a map shared between threads.
+   *
+   * @return a copy of this map.
+   */
+  @NonNull public LongObjectMap<V> copy() {
+    return new LongObjectMap<>(this);
+  }
+
+  private int indexOf(long key) {
+    for (int i = hash(key) & mask; ; i = (i + 1) & mask) {
+      if (values[i] == null) {
+        return -1;
+      } else if (keys[i] == key) {
+        return i;
+      }
+    }
+  }
+
+  private void rehash(int capacity) {
+    var oldKeys = keys;
+    var oldValues = values;
+    keys = new long[capacity];
+    values = new Object[capacity];
+    mask = capacity - 1;
+    for (int i = 0; i < oldKeys.length; i++) {
+      if (oldValues[i] != null) {
+        var j = hash(oldKeys[i]) & mask;
+        while (values[j] != null) {
+          j = (j + 1) & mask;
+        }
+        keys[j] = oldKeys[i];
+        values[j] = oldValues[i];
+      }
+    }
+  }
+
+  private static int hash(long key) {
+    var hash = key * 0x9E3779B97F4A7C15L;
+    return (int) (hash ^ (hash >>> 32));
+  }
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright 2023 juanmuscaria
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.juanmuscaria.microcord.utils;
+
+import io.micronaut.core.annotation.NonNull;
+import io.micronaut.inject.MethodExecutionHandle;
+import java.util.List;
+
+/**
+ * An immutable, precompiled invoker for an executable method. All the work of figuring out how each
+ * argument is obtained is done once when the binder is created, invoking it only runs the argument
+ * binders in order and calls the method.
+ *
+ * @param <C> the type of the invocation context arguments are extracted from, such as an event.
+ */
+public final class MethodBinder<C> {
+  private final MethodExecutionHandle<?, Object> executionHandle;
+  private final ArgumentBinder<C>[] argumentBinders;
+
+  @SuppressWarnings("unchecked")
+  public MethodBinder(
+      @NonNull MethodExecutionHandle<?, Object> executionHandle,
+      @NonNull List<ArgumentBinder<C>> argumentBinders) {
+    if (argumentBinders.size() != executionHandle.getArguments().length) {
+      throw new IllegalArgumentException(
+          "Every argument of " + executionHandle + " must have a binder");
+    }
+    this.executionHandle = executionHandle;
+    this.argumentBinders = argumentBinders.toArray(new ArgumentBinder[0]);
+  }
+
+  /**
+   * Binds all arguments from the given context and invokes the method.
+   *
+   * @param context the invocation context.
+   * @return the value returned by the method.
+   */
+  public Object invoke(@NonNull C context) {
+    var binders = argumentBinders;
+    if (binders.length == 0) {
+      return executionHandle.invoke();
+    }
+    var arguments = new Object[binders.length];
+    for (int i = 0; i < binders.length; i++) {
+      arguments[i] = binders[i].bind(context);
+    }
+    return executionHandle.invoke(arguments);
+  }
+
+  /**
+   * Retrieves the execution handle this binder invokes.
+   *
+   * @return the execution handle.
+   */
+  @NonNull public MethodExecutionHandle<?, Object> getExecutionHandle() {
+    return executionHandle;
+  }
+
+  @Override
+  public String toString() {
+    return "MethodBinder(" + executionHandle + ")";
+  }
+
+  /**
+   * Extracts the value of a single method argument from the invocation context.
+   *
+   * @param <C> the type of the invocation context.
+   */
+  @FunctionalInterface
+  public interface ArgumentBinder<C> {
+    Object bind(C context);
+  }
+}
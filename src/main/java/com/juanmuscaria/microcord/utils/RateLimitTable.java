@@ -0,0 +1,168 @@
+/*
+ * Copyright 2023 juanmuscaria
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.juanmuscaria.microcord.utils;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free rate limit table with primitive long keys, such as discord ids. Each key has a token
+ * bucket stored as a single timestamp (the generic cell rate algorithm): acquiring is a hash, a
+ * short probe and a compare-and-set, with no allocation.
+ *
+ * <p>The table has a fixed capacity split in stripes of a few slots, a key only lives in the stripe
+ * its hash points to. A slot whose bucket is full again is considered expired and is reused by
+ * other keys, forgetting a full bucket loses no information. If a stripe has no free slot the key
+ * takes over the slot nearest to expiry along with its bucket, so a key is never limited less than
+ * a new one, even when more keys are used at once than the stripe holds. Concurrent first requests
+ * of the same key may briefly create two buckets, so limits are exact only after a key's first use.
+ */
+public final class RateLimitTable {
+  private static final long EMPTY = 0;
+  // Stored in place of the key 0, which marks a free slot
+  private static final long ZERO_KEY = Long.MIN_VALUE;
+  private static final int STRIPE_SLOTS = 8;
+  // Times are relative to this origin so they are always positive, a zero timestamp is expired
+  private static final long ORIGIN = System.nanoTime() - 1;
+  // Slot i holds its key at 2i and the theoretical arrival time of its next request at 2i + 1
+  private final AtomicLongArray slots;
+  private final int stripeMask;
+  private final long interval;
+  private final long period;
+
+  /**
+   * Creates a new table.
+   *
+   * @param permits amount of requests allowed within the period.
+   * @param period the period length.
+   * @param unit the period unit.
+   * @param capacity amount of keys the table holds at once, rounded up to a power of two.
+   */
+  public RateLimitTable(int permits, long period, TimeUnit unit, int capacity) {
+    if (permits < 1 || period < 1 || capacity < 1) {
+      throw new IllegalArgumentException("Permits, period and capacity must be positive");
+    }
+    var stripes = Integer.highestOneBit(Math.max(1, (capacity - 1) / STRIPE_SLOTS)) << 1;
+    this.slots = new AtomicLongArray(stripes * STRIPE_SLOTS * 2);
+    this.stripeMask = stripes - 1;
+    this.period = unit.toNanos(period);
+    this.interval = Math.max(1, this.period / permits);
+  }
+
+  /**
+   * Tries to take a permit for a key.
+   *
+   * @param key the key.
+   * @return 0 if the permit was taken, otherwise the nanoseconds until a permit is available.
+   */
+  public long tryAcquire(long key) {
+    return tryAcquire(key, System.nanoTime());
+  }
+
+  /**
+   * Tries to take a permit for a key at a given time.
+   *
+   * @param key the key.
+   * @param nanoTime the current {@link System#nanoTime()}.
+   * @return 0 if the permit was taken, otherwise the nanoseconds until a permit is available.
+   */
+  public long tryAcquire(long key, long nanoTime) {
+    key = key == EMPTY ? ZERO_KEY : key;
+    var now = nanoTime - ORIGIN;
+    var base = (hash(key) & stripeMask) * STRIPE_SLOTS * 2;
+    scan:
+    for (; ; ) {
+      var reusable = -1;
+      var nearestExpiry = base;
+      for (int i = 0; i < STRIPE_SLOTS * 2; i += 2) {
+        var slot = base + i;
+        var slotKey = slots.get(slot);
+        if (slotKey == key) {
+          var wait = consume(slot, key, now);
+          if (wait >= 0) {
+            return wait;
+          }
+          continue scan; // The slot was reused by another key meanwhile, look again
+        } else if (reusable < 0 && (slotKey == EMPTY || slots.get(slot + 1) <= now)) {
+          reusable = slot;
+        } else if (slots.get(slot + 1) < slots.get(nearestExpiry + 1)) {
+          nearestExpiry = slot;
+        }
+      }
+      // Every slot of the stripe is in use, evicting keeps the bucket so the key is still limited
+      var evict = reusable < 0;
+      if (evict) {
+        reusable = nearestExpiry;
+      }
+      var previous = slots.get(reusable);
+      if ((evict || previous == EMPTY || slots.get(reusable + 1) <= now)
+          && slots.compareAndSet(reusable, previous, key)) {
+        // The bucket of an expired slot is full, which is also the state of a new key
+        var wait = consume(reusable, key, now);
+        if (wait >= 0) {
+          return wait;
+        }
+      }
+    }
+  }
+
+  /**
+   * Gives back a permit taken by {@link #tryAcquire(long)}, such as when a request is denied by
+   * another limit after taking this one. Nothing is given back if the key's bucket was forgotten.
+   *
+   * @param key the key.
+   */
+  public void release(long key) {
+    key = key == EMPTY ? ZERO_KEY : key;
+    var base = (hash(key) & stripeMask) * STRIPE_SLOTS * 2;
+    for (int i = 0; i < STRIPE_SLOTS * 2; i += 2) {
+      var slot = base + i;
+      if (slots.get(slot) != key) {
+        continue;
+      }
+      for (; ; ) {
+        var arrival = slots.get(slot + 1);
+        // Never below the origin, a zero timestamp marks an expired slot
+        var refunded = Math.max(1, arrival - interval);
+        if (slots.get(slot) != key || slots.compareAndSet(slot + 1, arrival, refunded)) {
+          return;
+        }
+      }
+    }
+  }
+
+  // Returns 0 if a permit was taken, the time to wait, or -1 if the slot no longer holds the key
+  private long consume(int slot, long key, long now) {
+    for (; ; ) {
+      var arrival = slots.get(slot + 1);
+      if (slots.get(slot) != key) {
+        return -1;
+      }
+      var next = Math.max(arrival, now) + interval;
+      if (next - now > period) {
+        return next - period - now;
+      }
+      if (slots.compareAndSet(slot + 1, arrival, next)) {
+        return 0;
+      }
+    }
+  }
+
+  private static int hash(long key) {
+    var hash = key * 0x9E3779B97F4A7C15L;
+    return (int) (hash ^ (hash >>> 32));
+  }
+}
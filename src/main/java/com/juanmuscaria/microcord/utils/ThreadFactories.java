@@ -0,0 +1,129 @@
+/*
+ * Copyright 2023 juanmuscaria
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.juanmuscaria.microcord.utils;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Utility class to create the threads used by microcord. The library is compiled against Java 8,
+ * virtual threads are looked up at runtime and only available when running on Java 21 or newer.
+ */
+public final class ThreadFactories {
+  private static final MethodHandle OF_VIRTUAL;
+  private static final MethodHandle NAME;
+  private static final MethodHandle FACTORY;
+  private static final MethodHandle THREAD_PER_TASK;
+
+  static {
+    MethodHandle ofVirtual = null;
+    MethodHandle name = null;
+    MethodHandle factory = null;
+    MethodHandle threadPerTask = null;
+    try {
+      var lookup = MethodHandles.publicLookup();
+      var builder = Class.forName("java.lang.Thread$Builder");
+      var virtualBuilder = Class.forName("java.lang.Thread$Builder$OfVirtual");
+      ofVirtual =
+          lookup.findStatic(Thread.class, "ofVirtual", MethodType.methodType(virtualBuilder));
+      name =
+          lookup.findVirtual(
+              virtualBuilder,
+              "name",
+              MethodType.methodType(virtualBuilder, String.class, long.class));
+      factory = lookup.findVirtual(builder, "factory", MethodType.methodType(ThreadFactory.class));
+      threadPerTask =
+          lookup.findStatic(
+              Executors.class,
+              "newThreadPerTaskExecutor",
+              MethodType.methodType(ExecutorService.class, ThreadFactory.class));
+    } catch (ReflectiveOperationException ignored) {
+      // Running on a java version without virtual threads
+    }
+    OF_VIRTUAL = ofVirtual;
+    NAME = name;
+    FACTORY = factory;
+    THREAD_PER_TASK = threadPerTask;
+  }
+
+  private ThreadFactories() {
+    // Sealed class
+  }
+
+  /**
+   * Checks if the current runtime supports virtual threads.
+   *
+   * @return whether virtual threads can be created.
+   */
+  public static boolean supportsVirtualThreads() {
+    return OF_VIRTUAL != null;
+  }
+
+  /**
+   * Creates a factory of platform threads named {@code prefix} followed by a sequential number.
+   *
+   * @param prefix the thread name prefix.
+   * @param daemon whether the created threads are daemon threads.
+   * @return the thread factory.
+   */
+  public static ThreadFactory platform(String prefix, boolean daemon) {
+    var counter = new AtomicInteger();
+    return runnable -> {
+      var thread = new Thread(runnable, prefix + counter.getAndIncrement());
+      thread.setDaemon(daemon);
+      return thread;
+    };
+  }
+
+  /**
+   * Creates a factory of virtual threads named {@code prefix} followed by a sequential number.
+   *
+   * @param prefix the thread name prefix.
+   * @return the thread factory.
+   * @throws UnsupportedOperationException if the runtime does not support virtual threads.
+   */
+  public static ThreadFactory virtual(String prefix) {
+    if (!supportsVirtualThreads()) {
+      throw new UnsupportedOperationException("Virtual threads require Java 21 or newer");
+    }
+    try {
+      return (ThreadFactory) FACTORY.invoke(NAME.invoke(OF_VIRTUAL.invoke(), prefix, 0L));
+    } catch (Throwable e) {
+      throw new IllegalStateException("Unable to create a virtual thread factory", e);
+    }
+  }
+
+  /**
+   * Creates an executor that starts a new virtual thread for every task.
+   *
+   * @param prefix the thread name prefix.
+   * @return the executor.
+   * @throws UnsupportedOperationException if the runtime does not support virtual threads.
+   */
+  public static ExecutorService virtualThreadPerTask(String prefix) {
+    var factory = virtual(prefix);
+    try {
+      return (ExecutorService) THREAD_PER_TASK.invoke(factory);
+    } catch (Throwable e) {
+      throw new IllegalStateException("Unable to create a virtual thread executor", e);
+    }
+  }
+}
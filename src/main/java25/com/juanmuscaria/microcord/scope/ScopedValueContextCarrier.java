@@ -0,0 +1,97 @@
+/*
+ * Copyright 2023 juanmuscaria
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.juanmuscaria.microcord.scope;
+
+import io.micronaut.core.annotation.NonNull;
+import io.micronaut.core.annotation.Nullable;
+
+/**
+ * Binds the context of each dispatch to a {@link ScopedValue} through {@link
+ * #runWith(DiscordContextData, Runnable)}, the binding ends with the dispatch so nothing leaks from
+ * a worker thread. Threads forked within a binding, such as by structured concurrency, see the
+ * same context.
+ *
+ * <p>Contexts set through {@link #set(DiscordContextData)} override the binding in the current
+ * thread only and are kept in a thread local, like {@link ThreadLocalContextCarrier}. {@link
+ * #runIsolated(Runnable)} and {@link #runWith(DiscordContextData, Runnable)} discard them when the
+ * task returns.
+ */
+final class ScopedValueContextCarrier implements ContextCarrier {
+  private static final ScopedValue<DiscordContextData> CONTEXT = ScopedValue.newInstance();
+  // Marks a context cleared within a binding
+  private static final Object CLEARED = new Object();
+  private final ThreadLocal<Object> override = new ThreadLocal<>();
+
+  ScopedValueContextCarrier() {}
+
+  @Nullable @Override
+  public DiscordContextData get() {
+    var local = override.get();
+    if (local != null) {
+      return local != CLEARED ? (DiscordContextData) local : null;
+    }
+    return CONTEXT.isBound() ? CONTEXT.get() : null;
+  }
+
+  @Override
+  public void set(@Nullable DiscordContextData context) {
+    if (context != null) {
+      override.set(context);
+    } else if (CONTEXT.isBound()) {
+      override.set(CLEARED);
+    } else {
+      override.remove();
+    }
+  }
+
+  @Override
+  public void runIsolated(@NonNull Runnable task) {
+    var previous = override.get();
+    try {
+      task.run();
+    } finally {
+      restore(previous);
+    }
+  }
+
+  @Override
+  public void runWith(@Nullable DiscordContextData context, @NonNull Runnable task) {
+    if (context == null) {
+      ContextCarrier.super.runWith(null, task);
+      return;
+    }
+    var previous = override.get();
+    override.remove();
+    try {
+      ScopedValue.where(CONTEXT, context).run(task);
+    } finally {
+      restore(previous);
+    }
+  }
+
+  private void restore(@Nullable Object previous) {
+    if (previous == null) {
+      override.remove();
+    } else {
+      override.set(previous);
+    }
+  }
+
+  @Override
+  public String toString() {
+    return "ScopedValueContextCarrier";
+  }
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright 2023 juanmuscaria
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.juanmuscaria.microcord;
+
+import io.micronaut.context.ApplicationContext;
+import io.micronaut.context.annotation.Prototype;
+import io.micronaut.context.event.ApplicationEventListener;
+import jakarta.inject.Singleton;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class EventListenerIndexTest {
+
+  @Test
+  void testSingletonListenersAreIndexed() {
+    try (var context = ApplicationContext.run()) {
+      var index = new EventListenerIndex(context);
+      var listeners = index.listenersOf(SingletonEvent.class);
+      Assertions.assertEquals(1, listeners.length);
+      Assertions.assertSame(listeners, index.listenersOf(SingletonEvent.class));
+    }
+  }
+
+  @Test
+  void testPrototypeListenersAreResolvedPerDispatch() {
+    try (var context = ApplicationContext.run()) {
+      var index = new EventListenerIndex(context);
+      var first = index.listenersOf(PrototypeEvent.class);
+      var second = index.listenersOf(PrototypeEvent.class);
+      Assertions.assertEquals(1, first.length);
+      Assertions.assertEquals(1, second.length);
+      Assertions.assertNotSame(first[0], second[0]);
+    }
+  }
+
+  public static class SingletonEvent {}
+
+  public static class PrototypeEvent {}
+
+  @Singleton
+  public static class SingletonListener implements ApplicationEventListener<SingletonEvent> {
+    @Override
+    public void onApplicationEvent(SingletonEvent event) {}
+  }
+
+  @Prototype
+  public static class PrototypeListener implements ApplicationEventListener<PrototypeEvent> {
+    @Override
+    public void onApplicationEvent(PrototypeEvent event) {}
+  }
+}
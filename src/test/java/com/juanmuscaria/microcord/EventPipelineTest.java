@@ -0,0 +1,254 @@
+/*
+ * Copyright 2023 juanmuscaria
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.juanmuscaria.microcord;
+
+import com.juanmuscaria.microcord.configuration.JdaConfiguration;
+import com.juanmuscaria.microcord.configuration.JdaConfiguration.OverflowPolicy;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import net.dv8tion.jda.api.JDA;
+import net.dv8tion.jda.api.events.GenericEvent;
+import net.dv8tion.jda.api.utils.data.DataObject;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class EventPipelineTest {
+  private final List<TestEvent> dispatched = Collections.synchronizedList(new ArrayList<>());
+  // Holds the worker in the dispatch of the first event until opened
+  private final CountDownLatch gate = new CountDownLatch(1);
+  private final CountDownLatch started = new CountDownLatch(1);
+  private EventPipeline pipeline;
+
+  @AfterEach
+  void tearDown() {
+    gate.countDown();
+    if (pipeline != null) {
+      pipeline.shutdownAndWait(5000);
+    }
+  }
+
+  @Test
+  void testStripeCountIsRoundedToAPowerOfTwo() {
+    pipeline = new EventPipeline(configuration(1, 1, 16, OverflowPolicy.BLOCK));
+    for (long key = 0; key < 100; key++) {
+      Assertions.assertEquals(0, pipeline.stripeOf(key));
+    }
+    pipeline.shutdown();
+
+    pipeline = new EventPipeline(configuration(3, 1, 16, OverflowPolicy.BLOCK));
+    var seen = new boolean[4];
+    for (long key = 0; key < 100; key++) {
+      seen[pipeline.stripeOf(key)] = true;
+    }
+    Assertions.assertArrayEquals(new boolean[] {true, true, true, true}, seen);
+  }
+
+  @Test
+  void testEventsOfAKeyAreOrdered() throws InterruptedException {
+    pipeline = new EventPipeline(configuration(4, 4, 1024, OverflowPolicy.BLOCK));
+    var manager = manager(false);
+    for (int i = 0; i < 800; i++) {
+      pipeline.submit(manager, new TestEvent(i % 8, i));
+    }
+    awaitDispatched(800);
+
+    var last = new int[8];
+    Arrays.fill(last, -1);
+    for (TestEvent event : dispatched) {
+      Assertions.assertTrue(event.sequence > last[event.key], "Events of a key were reordered");
+      last[event.key] = event.sequence;
+    }
+  }
+
+  @Test
+  void testBlockWaitsForRoom() throws InterruptedException {
+    pipeline = new EventPipeline(configuration(1, 1, 1, OverflowPolicy.BLOCK));
+    var manager = manager(true);
+    submitInFlight(manager);
+    pipeline.submit(manager, new TestEvent(0, 1));
+
+    var producer = new Thread(() -> pipeline.submit(manager, new TestEvent(0, 2)));
+    producer.start();
+    producer.join(200);
+    Assertions.assertTrue(producer.isAlive(), "The producer should wait while the queue is full");
+
+    gate.countDown();
+    producer.join(5000);
+    awaitDispatched(3);
+    Assertions.assertEquals(List.of(0, 1, 2), sequences());
+    Assertions.assertEquals(0, pipeline.getDroppedEvents());
+  }
+
+  @Test
+  void testDropOldestDiscardsQueuedEvents() throws InterruptedException {
+    pipeline = new EventPipeline(configuration(1, 1, 2, OverflowPolicy.DROP_OLDEST));
+    var manager = manager(true);
+    submitInFlight(manager);
+    pipeline.submit(manager, new TestEvent(0, 1));
+    pipeline.submit(manager, new TestEvent(0, 2));
+    pipeline.submit(manager, new TestEvent(0, 3));
+    Assertions.assertEquals(1, pipeline.getDroppedEvents());
+
+    gate.countDown();
+    awaitDispatched(3);
+    Assertions.assertEquals(List.of(0, 2, 3), sequences());
+  }
+
+  @Test
+  void testDropByTypeOnlyDiscardsDroppableEvents() throws InterruptedException {
+    var configuration = configuration(1, 1, 2, OverflowPolicy.DROP_BY_TYPE);
+    configuration.getDroppableEvents().add(DroppableEvent.class);
+    pipeline = new EventPipeline(configuration);
+    var manager = manager(true);
+    submitInFlight(manager);
+    pipeline.submit(manager, new TestEvent(0, 1));
+    pipeline.submit(manager, new TestEvent(0, 2));
+    pipeline.submit(manager, new DroppableEvent(0, 3));
+    Assertions.assertEquals(1, pipeline.getDroppedEvents());
+
+    // Other events wait for room
+    var producer = new Thread(() -> pipeline.submit(manager, new TestEvent(0, 4)));
+    producer.start();
+    gate.countDown();
+    producer.join(5000);
+    awaitDispatched(4);
+    Assertions.assertEquals(List.of(0, 1, 2, 4), sequences());
+  }
+
+  @Test
+  void testWorkerIsReleasedAfterABatch() throws InterruptedException {
+    pipeline = new EventPipeline(configuration(2, 1, 1024, OverflowPolicy.BLOCK));
+    var otherKey = 1;
+    while (pipeline.stripeOf(otherKey) == pipeline.stripeOf(0)) {
+      otherKey++;
+    }
+    var manager = manager(true);
+    submitInFlight(manager);
+    for (int i = 1; i < 200; i++) {
+      pipeline.submit(manager, new TestEvent(0, i));
+    }
+    pipeline.submit(manager, new TestEvent(otherKey, 200));
+
+    gate.countDown();
+    awaitDispatched(201);
+    // The single worker went to the other stripe after a batch, then came back for the rest
+    var sequences = sequences();
+    Assertions.assertTrue(sequences.indexOf(200) < 200, "The other stripe was starved");
+    sequences.remove(Integer.valueOf(200));
+    for (int i = 0; i < 200; i++) {
+      Assertions.assertEquals(i, sequences.get(i));
+    }
+  }
+
+  // Submits the first event and waits for the worker to hold it
+  private void submitInFlight(DefaultEventManager manager) throws InterruptedException {
+    pipeline.submit(manager, new TestEvent(0, 0));
+    Assertions.assertTrue(started.await(5, TimeUnit.SECONDS));
+  }
+
+  private void awaitDispatched(int amount) throws InterruptedException {
+    var deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+    while (dispatched.size() < amount && System.nanoTime() < deadline) {
+      Thread.sleep(10);
+    }
+    Assertions.assertEquals(amount, dispatched.size());
+  }
+
+  private List<Integer> sequences() {
+    var sequences = new ArrayList<Integer>();
+    synchronized (dispatched) {
+      for (TestEvent event : dispatched) {
+        sequences.add(event.sequence);
+      }
+    }
+    return sequences;
+  }
+
+  private DefaultEventManager manager(boolean gated) {
+    return new DefaultEventManager(null, null, null, null, null, null, 0) {
+      @Override
+      void dispatch(GenericEvent genericEvent) {
+        var event = (TestEvent) genericEvent;
+        if (gated && event.sequence == 0) {
+          started.countDown();
+          try {
+            gate.await(5, TimeUnit.SECONDS);
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+          }
+        }
+        dispatched.add(event);
+      }
+    };
+  }
+
+  private static JdaConfiguration.Dispatch configuration(
+      int stripes, int threads, int queueCapacity, OverflowPolicy overflowPolicy) {
+    var configuration = new JdaConfiguration.Dispatch();
+    configuration.setStripes(stripes);
+    configuration.setThreads(threads);
+    configuration.setQueueCapacity(queueCapacity);
+    configuration.setOverflowPolicy(overflowPolicy);
+    return configuration;
+  }
+
+  /** Event not tied to a guild, ordered by the shard id of its fake shard. */
+  private static class TestEvent implements GenericEvent {
+    private final int key;
+    private final int sequence;
+    private final JDA jda;
+
+    private TestEvent(int key, int sequence) {
+      this.key = key;
+      this.sequence = sequence;
+      var shardInfo = new JDA.ShardInfo(key, key + 1);
+      this.jda =
+          (JDA)
+              Proxy.newProxyInstance(
+                  JDA.class.getClassLoader(),
+                  new Class<?>[] {JDA.class},
+                  (proxy, method, args) ->
+                      method.getName().equals("getShardInfo") ? shardInfo : null);
+    }
+
+    @Override
+    public JDA getJDA() {
+      return jda;
+    }
+
+    @Override
+    public long getResponseNumber() {
+      return sequence;
+    }
+
+    @Override
+    public DataObject getRawData() {
+      return null;
+    }
+  }
+
+  private static final class DroppableEvent extends TestEvent {
+    private DroppableEvent(int key, int sequence) {
+      super(key, sequence);
+    }
+  }
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright 2023 juanmuscaria
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.juanmuscaria.microcord.component;
+
+import java.util.Arrays;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class CustomIdTrieTest {
+
+  @Test
+  void testMatchesVariables() {
+    var trie = new CustomIdTrie<String>();
+    Assertions.assertEquals(
+        Arrays.asList("pollId", "choice"), trie.add("vote:{pollId}:{choice}", "vote"));
+    trie.add("close:{pollId}", "close");
+
+    var match = trie.match("vote:42:yes");
+    Assertions.assertNotNull(match);
+    Assertions.assertEquals("vote", match.value());
+    Assertions.assertEquals("42", match.variables()[0]);
+    Assertions.assertEquals("yes", match.variables()[1]);
+    Assertions.assertEquals("close", trie.match("close:7").value());
+    Assertions.assertNull(trie.match("vote:42"));
+    Assertions.assertNull(trie.match("vote::yes"));
+    Assertions.assertNull(trie.match("unknown"));
+  }
+
+  @Test
+  void testPrefersLiterals() {
+    var trie = new CustomIdTrie<String>();
+    trie.add("page:{number}", "page");
+    trie.add("page:last", "last");
+    trie.add("page:{number}:next", "next");
+    Assertions.assertEquals("last", trie.match("page:last").value());
+    Assertions.assertEquals("page", trie.match("page:lastly").value());
+    Assertions.assertEquals("page", trie.match("page:3").value());
+    Assertions.assertEquals("next", trie.match("page:last:next").value());
+    Assertions.assertEquals("last", trie.match("page:last:next").variables()[0]);
+  }
+
+  @Test
+  void testExtendsShorterCaptures() {
+    var trie = new CustomIdTrie<String>();
+    trie.add("{file}.json", "file");
+    trie.add("{a}-x", "dash");
+    Assertions.assertEquals("a.b", trie.match("a.b.json").variables()[0]);
+    Assertions.assertEquals("1-2", trie.match("1-2-x").variables()[0]);
+    Assertions.assertEquals("dash", trie.match("1-x-x").value());
+    Assertions.assertNull(trie.match("a.b.yaml"));
+  }
+
+  @Test
+  void testRejectsInvalidPatterns() {
+    var trie = new CustomIdTrie<String>();
+    trie.add("a:{x}", "a");
+    Assertions.assertThrows(IllegalArgumentException.class, () -> trie.add("a:{y}", "b"));
+    Assertions.assertThrows(IllegalArgumentException.class, () -> trie.add("b:{x}{y}", "b"));
+    Assertions.assertThrows(IllegalArgumentException.class, () -> trie.add("c:{x", "c"));
+    Assertions.assertThrows(IllegalArgumentException.class, () -> trie.add("d:{x}:{x}", "d"));
+  }
+}
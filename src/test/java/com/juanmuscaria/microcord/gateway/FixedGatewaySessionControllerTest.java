@@ -0,0 +1,32 @@
+/*
+ * Copyright 2023 juanmuscaria
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.juanmuscaria.microcord.gateway;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class FixedGatewaySessionControllerTest {
+
+  @Test
+  void testEveryShardIdentifiesConcurrently() {
+    var controller = new FixedGatewaySessionController("ws://127.0.0.1:1234/", 100);
+    // The total is known, discord is never asked
+    var gateway = controller.getShardedGateway(null);
+    Assertions.assertEquals("ws://127.0.0.1:1234/", gateway.getUrl());
+    Assertions.assertEquals(100, gateway.getShardTotal());
+    Assertions.assertEquals(100, gateway.getConcurrency());
+  }
+}
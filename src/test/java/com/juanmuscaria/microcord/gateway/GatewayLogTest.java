@@ -0,0 +1,78 @@
+/*
+ * Copyright 2023 juanmuscaria
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.juanmuscaria.microcord.gateway;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class GatewayLogTest {
+
+  @Test
+  void testRecordsAcrossSegments(@TempDir Path directory) throws IOException {
+    var file = directory.resolve("gateway.log");
+    try (var recorder = GatewayRecorder.create(file, 64)) {
+      for (int i = 0; i < 10; i++) {
+        recorder.append(i % 2, payload(i));
+      }
+      // Larger than a whole segment
+      recorder.append(1, new byte[200]);
+    }
+
+    try (var log = GatewayLog.open(file)) {
+      var previous = -1L;
+      for (int i = 0; i < 10; i++) {
+        var record = log.next();
+        Assertions.assertNotNull(record);
+        Assertions.assertEquals(i % 2, record.shardId());
+        Assertions.assertArrayEquals(payload(i), record.payload());
+        Assertions.assertTrue(record.timestamp() >= previous);
+        previous = record.timestamp();
+      }
+      Assertions.assertEquals(200, log.next().payload().length);
+      Assertions.assertNull(log.next());
+    }
+  }
+
+  @Test
+  void testUnclosedLogEndsAtLastRecord(@TempDir Path directory) throws IOException {
+    var file = directory.resolve("gateway.log");
+    var recorder = GatewayRecorder.create(file, 4096);
+    recorder.append(0, payload(1));
+
+    try (var log = GatewayLog.open(file)) {
+      Assertions.assertArrayEquals(payload(1), log.next().payload());
+      Assertions.assertNull(log.next());
+    }
+    recorder.close();
+    Assertions.assertEquals(8 + 16 + payload(1).length, Files.size(file));
+  }
+
+  @Test
+  void testRejectsOtherFiles(@TempDir Path directory) throws IOException {
+    var file = Files.write(directory.resolve("other.log"), payload(0));
+    Assertions.assertThrows(IOException.class, () -> GatewayLog.open(file));
+  }
+
+  private static byte[] payload(int sequence) {
+    return ("{\"op\":0,\"s\":" + sequence + ",\"t\":\"MESSAGE_CREATE\"}")
+        .getBytes(StandardCharsets.UTF_8);
+  }
+}
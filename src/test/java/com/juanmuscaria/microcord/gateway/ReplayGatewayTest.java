@@ -0,0 +1,43 @@
+/*
+ * Copyright 2023 juanmuscaria
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.juanmuscaria.microcord.gateway;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ReplayGatewayTest {
+
+  @Test
+  void testRecordedShardsIdentifyConcurrently(@TempDir Path directory) throws IOException {
+    var file = directory.resolve("gateway.log");
+    try (var recorder = GatewayRecorder.create(file, 1024)) {
+      for (int shard = 0; shard < 3; shard++) {
+        recorder.append(shard, "{\"op\":0}".getBytes(StandardCharsets.UTF_8));
+      }
+    }
+
+    try (var replay = ReplayGateway.start(file, 1)) {
+      var gateway = replay.sessionController().getShardedGateway(null);
+      Assertions.assertEquals(replay.getUrl(), gateway.getUrl());
+      Assertions.assertEquals(3, gateway.getShardTotal());
+      Assertions.assertEquals(3, gateway.getConcurrency());
+    }
+  }
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright 2023 juanmuscaria
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.juanmuscaria.microcord.locale;
+
+import io.micronaut.context.StaticMessageSource;
+import java.util.Collections;
+import java.util.Locale;
+import java.util.Optional;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class MessageTemplateCacheTest {
+
+  @Test
+  void testFormatting() {
+    var messages = new StaticMessageSource();
+    messages.addMessage(Locale.ENGLISH, "ping", "Pong! {0}ms from {shard}, {bot} {missing} {");
+    messages.addMessage(Locale.ENGLISH, "bot", "Microcord");
+    var cache = MessageTemplateCache.create(messages, 16);
+
+    Assertions.assertEquals(
+        Optional.of("Pong! 42ms from {shard}, Microcord {missing} {"),
+        cache.getMessage(Locale.ENGLISH, "ping", 42));
+    Assertions.assertEquals(
+        Optional.of("Pong! {0}ms from 1, Microcord {missing} {"),
+        cache.getMessage(
+            Locale.ENGLISH, "ping", Collections.<String, Object>singletonMap("shard", 1)));
+    Assertions.assertEquals(Optional.empty(), cache.getMessage(Locale.ENGLISH, "unknown"));
+    Assertions.assertEquals("Hi Microcord", cache.format(Locale.ENGLISH, "Hi {bot}"));
+  }
+
+  @Test
+  void testInvalidation() {
+    var messages = new StaticMessageSource();
+    var cache = MessageTemplateCache.create(messages, 16);
+    Assertions.assertEquals(Optional.empty(), cache.getMessage(Locale.ENGLISH, "late"));
+    messages.addMessage(Locale.ENGLISH, "late", "Here");
+    Assertions.assertEquals(Optional.empty(), cache.getMessage(Locale.ENGLISH, "late"));
+    cache.invalidateAll();
+    Assertions.assertEquals(Optional.of("Here"), cache.getMessage(Locale.ENGLISH, "late"));
+    Assertions.assertTrue(cache.hitRate() > 0);
+  }
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright 2023 juanmuscaria
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.juanmuscaria.microcord.scope;
+
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class ContextCarriersTest {
+
+  @Test
+  void testIsolatedTaskDiscardsContext() {
+    var carrier = ContextCarriers.threadLocal();
+    var context = new DiscordContextData(null, null, null, null, 0);
+    carrier.runIsolated(() -> carrier.set(context));
+    Assertions.assertNull(carrier.get());
+
+    carrier.set(context);
+    carrier.runIsolated(() -> carrier.set(null));
+    Assertions.assertSame(context, carrier.get());
+    carrier.set(null);
+  }
+
+  @Test
+  void testRunWithRestoresContext() {
+    var carrier = ContextCarriers.threadLocal();
+    var context = new DiscordContextData(null, null, null, null, 0);
+    var other = new DiscordContextData(null, null, null, null, 1);
+    var seen = new AtomicReference<DiscordContextData>();
+    carrier.set(context);
+    try {
+      carrier.runWith(other, () -> seen.set(carrier.get()));
+      Assertions.assertSame(other, seen.get());
+      Assertions.assertSame(context, carrier.get());
+    } finally {
+      carrier.set(null);
+    }
+  }
+
+  @Test
+  void testInheritable() throws InterruptedException {
+    var carrier = ContextCarriers.inheritable();
+    var context = new DiscordContextData(null, null, null, null, 0);
+    var seen = new AtomicReference<DiscordContextData>();
+    carrier.set(context);
+    try {
+      var thread = new Thread(() -> seen.set(carrier.get()));
+      thread.start();
+      thread.join();
+    } finally {
+      carrier.set(null);
+    }
+    Assertions.assertSame(context, seen.get());
+  }
+
+  @Test
+  void testNamed() {
+    Assertions.assertNotNull(ContextCarriers.named("thread-local"));
+    Assertions.assertThrows(
+        IllegalArgumentException.class, () -> ContextCarriers.named("java.lang.String"));
+    Assertions.assertThrows(IllegalArgumentException.class, () -> ContextCarriers.named("none"));
+    if (!ContextCarriers.supportsScopedValues()) {
+      Assertions.assertThrows(
+          UnsupportedOperationException.class, () -> ContextCarriers.named("scoped-value"));
+    }
+  }
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright 2023 juanmuscaria
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.juanmuscaria.microcord.scope;
+
+import com.juanmuscaria.microcord.annotations.DiscordScope;
+import com.juanmuscaria.microcord.locale.DiscordLocaleResolver;
+import com.juanmuscaria.microcord.locale.DiscordLocales;
+import io.micronaut.context.ApplicationContext;
+import io.micronaut.context.annotation.Replaces;
+import io.micronaut.context.annotation.Requires;
+import io.micronaut.core.util.locale.AbstractLocaleResolver;
+import io.micronaut.runtime.context.scope.refresh.RefreshEvent;
+import jakarta.inject.Singleton;
+import java.util.Collections;
+import java.util.Locale;
+import java.util.Optional;
+import net.dv8tion.jda.api.interactions.DiscordLocale;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class DiscordContextCustomScopeTest {
+
+  @AfterEach
+  void clearContext() {
+    DiscordContext.set(null);
+  }
+
+  @Test
+  void testSharedByLocale() {
+    try (var context = ApplicationContext.run()) {
+      var shared = context.getBean(SharedBean.class);
+      var perEvent = context.getBean(PerEventBean.class);
+
+      DiscordContext.set(new DiscordContextData(null, DiscordLocale.FRENCH, null, null, 0));
+      var french = shared.self();
+      var firstEvent = perEvent.self();
+      DiscordContext.set(
+          new DiscordContextData(null, DiscordLocale.FRENCH, DiscordLocale.GERMAN, null, 0));
+      Assertions.assertSame(french, shared.self());
+      Assertions.assertNotSame(firstEvent, perEvent.self());
+
+      DiscordContext.set(new DiscordContextData(null, null, DiscordLocale.GERMAN, null, 0));
+      Assertions.assertNotSame(french, shared.self());
+    }
+  }
+
+  @Test
+  void testSharedByResolvedLocale() {
+    try (var context =
+        ApplicationContext.run(Collections.singletonMap("spec.name", "GuildFirstLocale"))) {
+      var shared = context.getBean(SharedBean.class);
+
+      var event = new DiscordContextData(null, DiscordLocale.FRENCH, DiscordLocale.GERMAN, null, 0);
+      DiscordContext.set(event);
+      var german = shared.self();
+      Assertions.assertEquals(Locale.GERMAN, shared.locale());
+      Assertions.assertFalse(event.hasScopedBeans());
+
+      DiscordContext.set(new DiscordContextData(null, DiscordLocale.FRENCH, null, null, 0));
+      Assertions.assertNotSame(german, shared.self());
+      Assertions.assertEquals(Locale.FRENCH, shared.locale());
+
+      DiscordContext.set(new DiscordContextData(null, null, DiscordLocale.GERMAN, null, 0));
+      Assertions.assertSame(german, shared.self());
+    }
+  }
+
+  @Test
+  void testSharedDestroyedOnRefresh() {
+    try (var context = ApplicationContext.run()) {
+      var shared = context.getBean(SharedBean.class);
+
+      DiscordContext.set(new DiscordContextData(null, DiscordLocale.FRENCH, null, null, 0));
+      var french = shared.self();
+      context.publishEvent(new RefreshEvent());
+      Assertions.assertNotSame(french, shared.self());
+    }
+  }
+
+  @DiscordScope(shareBy = DiscordScope.ShareBy.LOCALE)
+  public static class SharedBean implements LocaleAware {
+    private Locale locale;
+
+    public Object self() {
+      return this;
+    }
+
+    public Locale locale() {
+      return locale;
+    }
+
+    @Override
+    public void setLocale(Locale locale) {
+      this.locale = locale;
+    }
+  }
+
+  @Singleton
+  @Replaces(DiscordLocaleResolver.class)
+  @Requires(property = "spec.name", value = "GuildFirstLocale")
+  public static class GuildFirstLocaleResolver extends AbstractLocaleResolver<DiscordContextData> {
+    public GuildFirstLocaleResolver() {
+      super(Locale.ENGLISH);
+    }
+
+    @Override
+    public Optional<Locale> resolve(DiscordContextData context) {
+      var locale =
+          context.getGuildLocale() != null ? context.getGuildLocale() : context.getLocale();
+      return Optional.ofNullable(locale).map(DiscordLocales::toLocale);
+    }
+  }
+
+  @DiscordScope
+  public static class PerEventBean {
+    public Object self() {
+      return this;
+    }
+  }
+}
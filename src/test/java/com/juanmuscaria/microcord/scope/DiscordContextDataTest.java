@@ -0,0 +1,67 @@
+/*
+ * Copyright 2023 juanmuscaria
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.juanmuscaria.microcord.scope;
+
+import net.dv8tion.jda.api.interactions.DiscordLocale;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class DiscordContextDataTest {
+
+  @Test
+  void testViewSharesData() {
+    var parent = new DiscordContextData(null, DiscordLocale.FRENCH, DiscordLocale.GERMAN, null, 3);
+    parent.setAttribute("key", "value");
+    var view = parent.view();
+    Assertions.assertEquals(3, view.getShardId());
+    Assertions.assertSame(DiscordLocale.FRENCH, view.getUserLocale());
+    Assertions.assertSame(DiscordLocale.GERMAN, view.getGuildLocale());
+    Assertions.assertEquals("value", view.getAttribute("key"));
+    Assertions.assertTrue(view.hasAttributes());
+    Assertions.assertFalse(view.hasScopedBeans());
+  }
+
+  @Test
+  void testViewForksAttributesOnWrite() {
+    var parent = new DiscordContextData(null, null, null, null, 0);
+    var view = parent.view();
+    Assertions.assertFalse(view.hasAttributes());
+    parent.setAttribute("key", "parent");
+    view.setAttribute("key", "view");
+    view.setAttribute("other", "view");
+    Assertions.assertEquals("parent", parent.getAttribute("key"));
+    Assertions.assertNull(parent.getAttribute("other"));
+    Assertions.assertEquals("view", view.getAttribute("key"));
+
+    var nested = view.view();
+    nested.setAttribute("nested", "nested");
+    Assertions.assertEquals("view", nested.getAttribute("other"));
+    Assertions.assertNull(view.getAttribute("nested"));
+  }
+
+  @Test
+  void testValueEquality() {
+    var context = new DiscordContextData(null, DiscordLocale.FRENCH, null, null, 1);
+    var same = new DiscordContextData(null, DiscordLocale.FRENCH, null, null, 1);
+    Assertions.assertEquals(context, same);
+    Assertions.assertEquals(context.hashCode(), same.hashCode());
+    Assertions.assertEquals(context, context.view());
+    Assertions.assertNotEquals(context, new DiscordContextData(null, null, null, null, 1));
+
+    same.setAttribute("key", "value");
+    Assertions.assertNotEquals(context, same);
+  }
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright 2023 juanmuscaria
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.juanmuscaria.microcord.scope;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import net.dv8tion.jda.api.interactions.DiscordLocale;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class DiscordContextSnapshotTest {
+  private final DiscordContextCustomScope scope = new DiscordContextCustomScope();
+
+  @AfterEach
+  void clearContext() {
+    DiscordContext.set(null);
+  }
+
+  @Test
+  void testNoContext() {
+    Assertions.assertNull(DiscordContextSnapshot.capture(scope));
+  }
+
+  @Test
+  void testRestoreSharesSnapshot() {
+    var context = new DiscordContextData(null, DiscordLocale.DUTCH, null, null, 1);
+    DiscordContext.set(context);
+    var snapshot = DiscordContextSnapshot.capture(scope);
+    Assertions.assertNotNull(snapshot);
+    DiscordContext.set(null);
+
+    try (var restoration = snapshot.restore()) {
+      Assertions.assertSame(restoration.getContext(), DiscordContext.current());
+      Assertions.assertSame(DiscordLocale.DUTCH, DiscordContext.current().getUserLocale());
+      Assertions.assertSame(snapshot, DiscordContextSnapshot.capture(scope));
+    }
+    Assertions.assertNull(DiscordContext.current());
+  }
+
+  @Test
+  void testExecutorPropagatesContext() throws Exception {
+    var executor = new DiscordContextExecutor(Executors.newSingleThreadExecutor(), scope);
+    try {
+      Assertions.assertNull(executor.submit(DiscordContext::current).get(5, TimeUnit.SECONDS));
+      var context = new DiscordContextData(null, null, DiscordLocale.KOREAN, null, 2);
+      DiscordContext.set(context);
+      var propagated = executor.submit(DiscordContext::current).get(5, TimeUnit.SECONDS);
+      Assertions.assertNotSame(context, propagated);
+      Assertions.assertSame(DiscordLocale.KOREAN, propagated.getGuildLocale());
+      Assertions.assertEquals(2, propagated.getShardId());
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright 2023 juanmuscaria
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.juanmuscaria.microcord.slash;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class CommandChoiceRegistryTest {
+
+  @Test
+  void testLongChoices() {
+    var lookup = CommandChoiceRegistry.lookup(Size.class);
+    Assertions.assertSame(Long.class, lookup.getValueType());
+    Assertions.assertSame(Size.LARGE, lookup.fromValue(100L));
+    Assertions.assertSame(Size.SMALL, Size.LARGE.fromValue(1L));
+    Assertions.assertThrows(IllegalArgumentException.class, () -> lookup.fromValue(2L));
+  }
+
+  @Test
+  void testStringChoicesWithConstantBodies() {
+    Assertions.assertSame(Color.RED, Color.BLUE.fromValue("red"));
+    Assertions.assertSame(
+        Color.BLUE, CommandChoiceRegistry.lookup(Color.class).fromValue("blue"));
+  }
+
+  @Test
+  void testDuplicatedValues() {
+    Assertions.assertThrows(
+        IllegalArgumentException.class, () -> CommandChoiceRegistry.lookup(Duplicated.class));
+  }
+
+  enum Size implements CommandChoices<Long> {
+    SMALL(1L),
+    LARGE(100L);
+
+    private final long value;
+
+    Size(long value) {
+      this.value = value;
+    }
+
+    @Override
+    public Long value() {
+      return value;
+    }
+  }
+
+  enum Color implements CommandChoices<String> {
+    RED {
+      @Override
+      public String value() {
+        return "red";
+      }
+    },
+    BLUE {
+      @Override
+      public String value() {
+        return "blue";
+      }
+    }
+  }
+
+  enum Duplicated implements CommandChoices<Double> {
+    ONE,
+    OTHER_ONE;
+
+    @Override
+    public Double value() {
+      return 1.0;
+    }
+  }
+}
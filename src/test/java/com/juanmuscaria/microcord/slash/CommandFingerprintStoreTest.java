@@ -0,0 +1,62 @@
+/*
+ * Copyright 2023 juanmuscaria
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.juanmuscaria.microcord.slash;
+
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class CommandFingerprintStoreTest {
+
+  @Test
+  void testFingerprintIgnoresKeyOrder() {
+    var first = new LinkedHashMap<String, Object>();
+    first.put("name", "ping");
+    first.put("description", "Pong!");
+    var second = new LinkedHashMap<String, Object>();
+    second.put("description", "Pong!");
+    second.put("name", "ping");
+    Assertions.assertEquals(
+        CommandFingerprintStore.fingerprint(first), CommandFingerprintStore.fingerprint(second));
+
+    second.put("description", "Ping!");
+    Assertions.assertNotEquals(
+        CommandFingerprintStore.fingerprint(first), CommandFingerprintStore.fingerprint(second));
+  }
+
+  @Test
+  void testStoredScopesSurviveRestart(@TempDir Path directory) {
+    var file = directory.resolve("commands.properties");
+    var fingerprints = Collections.singletonMap("ping", "abc");
+    new CommandFingerprintStore(file)
+        .store("global", fingerprints, Collections.singletonMap("ping", 42L));
+
+    var store = new CommandFingerprintStore(file);
+    Assertions.assertEquals(
+        Collections.singletonMap("ping", 42L), store.lookup("global", fingerprints));
+    Assertions.assertNull(store.lookup("global", Collections.singletonMap("ping", "def")));
+    Assertions.assertNull(store.lookup("1234", fingerprints));
+
+    Map<String, String> moreCommands = new HashMap<>(fingerprints);
+    moreCommands.put("pong", "def");
+    Assertions.assertNull(store.lookup("global", moreCommands));
+  }
+}
@@ -0,0 +1,231 @@
+/*
+ * Copyright 2023 juanmuscaria
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.juanmuscaria.microcord.slash;
+
+import com.juanmuscaria.microcord.configuration.JdaConfiguration;
+import com.juanmuscaria.microcord.scope.DiscordContextTerminatedEvent;
+import io.micronaut.context.StaticMessageSource;
+import io.micronaut.context.event.ApplicationEventPublisher;
+import java.time.Duration;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import net.dv8tion.jda.api.interactions.DiscordLocale;
+import net.dv8tion.jda.api.utils.messages.MessageCreateData;
+import net.dv8tion.jda.api.utils.messages.MessageEditData;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscription;
+
+class CommandResponderTest {
+  private static final String FAILURE = "Something went wrong while running this command.";
+  private CommandResponder responder;
+
+  @BeforeEach
+  void setUp() {
+    var configuration = new JdaConfiguration.Commands();
+    configuration.setDeferThreshold(Duration.ofMillis(50));
+    ApplicationEventPublisher<DiscordContextTerminatedEvent> publisher = event -> {};
+    responder = new CommandResponder(configuration, publisher, new StaticMessageSource());
+  }
+
+  @AfterEach
+  void tearDown() {
+    responder.shutdown();
+  }
+
+  @Test
+  void testPendingResultReplies() throws InterruptedException {
+    var reply = new FakeReply();
+    responder.invoke(reply, () -> CompletableFuture.completedFuture(message("pong")), true, null);
+    Assertions.assertEquals("reply:pong", reply.next());
+    // Replied before the threshold, the reply is never deferred
+    Assertions.assertNull(reply.nextOrNull());
+  }
+
+  @Test
+  void testDeferredResultEditsReply() throws InterruptedException {
+    var reply = new FakeReply();
+    var result = new CompletableFuture<MessageCreateData>();
+    responder.invoke(reply, () -> result, true, null);
+    Assertions.assertEquals("defer", reply.next());
+    result.complete(message("pong"));
+    Assertions.assertEquals("edit:pong", reply.next());
+    Assertions.assertNull(reply.nextOrNull());
+  }
+
+  @Test
+  void testEmptyDeferredReplyIsDeleted() throws InterruptedException {
+    var reply = new FakeReply();
+    var result = new CompletableFuture<Void>();
+    responder.invoke(reply, () -> result, true, null);
+    Assertions.assertEquals("defer", reply.next());
+    result.complete(null);
+    Assertions.assertEquals("delete", reply.next());
+  }
+
+  @Test
+  void testAcknowledgedByExecutorIsLeftAlone() throws InterruptedException {
+    var reply = new FakeReply();
+    var result = new CompletableFuture<MessageCreateData>();
+    responder.invoke(
+        reply,
+        () -> {
+          reply.acknowledged = true;
+          return result;
+        },
+        true,
+        null);
+    // Neither deferred nor deleted, later messages are follow-ups
+    Assertions.assertNull(reply.nextOrNull());
+    result.complete(message("pong"));
+    Assertions.assertEquals("followup:pong", reply.next());
+    Assertions.assertNull(reply.nextOrNull());
+  }
+
+  @Test
+  void testFailedDeferralIsNotDeleted() throws InterruptedException {
+    var reply = new FakeReply();
+    reply.deferral.completeExceptionally(new IllegalStateException("Already acknowledged"));
+    var result = new CompletableFuture<MessageCreateData>();
+    responder.invoke(reply, () -> result, true, null);
+    Assertions.assertEquals("defer", reply.next());
+    result.complete(message("pong"));
+    // The original reply belongs to the executor
+    Assertions.assertEquals("followup:pong", reply.next());
+    Assertions.assertNull(reply.nextOrNull());
+  }
+
+  @Test
+  void testFailureRepliesOrEditsDeferral() throws InterruptedException {
+    var reply = new FakeReply();
+    responder.invoke(
+        reply, () -> CompletableFuture.failedFuture(new RuntimeException()), true, null);
+    Assertions.assertEquals("ephemeral:" + FAILURE, reply.next());
+
+    reply = new FakeReply();
+    var result = new CompletableFuture<MessageCreateData>();
+    responder.invoke(reply, () -> result, true, null);
+    Assertions.assertEquals("defer", reply.next());
+    result.completeExceptionally(new RuntimeException());
+    Assertions.assertEquals("edit:" + FAILURE, reply.next());
+    Assertions.assertNull(reply.nextOrNull());
+  }
+
+  @Test
+  void testPublisherRepliesThenFollowsUp() throws InterruptedException {
+    var reply = new FakeReply();
+    Publisher<MessageCreateData> messages =
+        subscriber -> {
+          subscriber.onSubscribe(
+              new Subscription() {
+                @Override
+                public void request(long n) {}
+
+                @Override
+                public void cancel() {}
+              });
+          subscriber.onNext(message("first"));
+          subscriber.onNext(message("second"));
+          subscriber.onComplete();
+        };
+    responder.invoke(reply, () -> messages, true, null);
+    Assertions.assertEquals("reply:first", reply.next());
+    Assertions.assertEquals("followup:second", reply.next());
+    // Closed once completed, neither deferred nor deleted afterwards
+    Assertions.assertNull(reply.nextOrNull());
+  }
+
+  private static MessageCreateData message(String content) {
+    return MessageCreateData.fromContent(content);
+  }
+
+  /** Records the operations the responder performs. */
+  private static final class FakeReply implements CommandResponder.Reply {
+    private final BlockingQueue<String> calls = new LinkedBlockingQueue<>();
+    private final CompletableFuture<Void> deferral = new CompletableFuture<>();
+    private volatile boolean acknowledged;
+
+    private String next() throws InterruptedException {
+      var call = calls.poll(5, TimeUnit.SECONDS);
+      Assertions.assertNotNull(call, "Expected the responder to answer the interaction");
+      return call;
+    }
+
+    private String nextOrNull() throws InterruptedException {
+      return calls.poll(200, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public String commandName() {
+      return "ping";
+    }
+
+    @Override
+    public int shardId() {
+      return 0;
+    }
+
+    @Override
+    public DiscordLocale userLocale() {
+      return DiscordLocale.ENGLISH_US;
+    }
+
+    @Override
+    public boolean isAcknowledged() {
+      return acknowledged;
+    }
+
+    @Override
+    public CompletableFuture<?> defer() {
+      calls.add("defer");
+      acknowledged = true;
+      deferral.complete(null);
+      return deferral;
+    }
+
+    @Override
+    public void reply(MessageCreateData message) {
+      acknowledged = true;
+      calls.add("reply:" + message.getContent());
+    }
+
+    @Override
+    public void replyEphemeral(String message) {
+      acknowledged = true;
+      calls.add("ephemeral:" + message);
+    }
+
+    @Override
+    public void editOriginal(MessageEditData message) {
+      calls.add("edit:" + message.getContent());
+    }
+
+    @Override
+    public void sendFollowup(MessageCreateData message) {
+      calls.add("followup:" + message.getContent());
+    }
+
+    @Override
+    public void deletePlaceholder() {
+      calls.add("delete");
+    }
+  }
+}
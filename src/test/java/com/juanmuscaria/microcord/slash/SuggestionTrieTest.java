@@ -0,0 +1,51 @@
+/*
+ * Copyright 2023 juanmuscaria
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.juanmuscaria.microcord.slash;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import net.dv8tion.jda.api.interactions.commands.Command;
+import net.dv8tion.jda.api.interactions.commands.OptionData;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class SuggestionTrieTest {
+
+  @Test
+  void testCompletesIgnoringCase() {
+    var trie =
+        new SuggestionTrie(
+            Arrays.asList(
+                new Command.Choice("Apple", "apple"),
+                new Command.Choice("apricot", "apricot"),
+                new Command.Choice("Banana", "banana")));
+    Assertions.assertEquals(3, trie.complete("").size());
+    Assertions.assertEquals(2, trie.complete("ap").size());
+    Assertions.assertEquals("apple", trie.complete("APP").get(0).getAsString());
+    Assertions.assertTrue(trie.complete("cherry").isEmpty());
+  }
+
+  @Test
+  void testLimitsSuggestions() {
+    var choices = new ArrayList<Command.Choice>();
+    for (int i = 0; i < 100; i++) {
+      choices.add(new Command.Choice("item" + i, i));
+    }
+    var trie = new SuggestionTrie(choices);
+    Assertions.assertEquals(OptionData.MAX_CHOICES, trie.complete("item").size());
+    Assertions.assertEquals(11, trie.complete("item1").size());
+  }
+}
@@ -0,0 +1,57 @@
+/*
+ * Copyright 2023 juanmuscaria
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.juanmuscaria.microcord.utils;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class LatencyHistogramTest {
+
+  @Test
+  void testPercentiles() {
+    var histogram = new LatencyHistogram();
+    Assertions.assertEquals(0, histogram.percentile(0.5));
+    for (long i = 1; i <= 1000; i++) {
+      histogram.record(i * 1000);
+    }
+    Assertions.assertEquals(1000, histogram.count());
+    assertWithin(500_000, histogram.percentile(0.5));
+    assertWithin(990_000, histogram.percentile(0.99));
+    assertWithin(1000, histogram.percentile(0));
+    assertWithin(1_000_000, histogram.percentile(1));
+
+    histogram.reset();
+    Assertions.assertEquals(0, histogram.count());
+  }
+
+  @Test
+  void testSmallAndHugeValues() {
+    var histogram = new LatencyHistogram();
+    histogram.record(-5);
+    histogram.record(7);
+    histogram.record(Long.MAX_VALUE);
+    Assertions.assertEquals(0, histogram.percentile(0.1));
+    Assertions.assertEquals(7, histogram.percentile(0.5));
+    assertWithin(Long.MAX_VALUE, histogram.percentile(1));
+  }
+
+  // Buckets are at most 1/16 of their lower bound wide
+  private static void assertWithin(long expected, long actual) {
+    Assertions.assertTrue(
+        actual <= expected && actual >= expected - expected / 16,
+        "Expected about " + expected + " but got " + actual);
+  }
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright 2023 juanmuscaria
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.juanmuscaria.microcord.utils;
+
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class RateLimitTableTest {
+  private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+  @Test
+  void testPermitsAreRegainedAlongThePeriod() {
+    var table = new RateLimitTable(2, 10, TimeUnit.SECONDS, 64);
+    var now = System.nanoTime();
+    Assertions.assertEquals(0, table.tryAcquire(1, now));
+    Assertions.assertEquals(0, table.tryAcquire(1, now));
+    Assertions.assertEquals(5 * SECOND, table.tryAcquire(1, now));
+    // Other keys have their own bucket
+    Assertions.assertEquals(0, table.tryAcquire(2, now));
+    // A permit is regained every 5 seconds
+    Assertions.assertEquals(SECOND, table.tryAcquire(1, now + 4 * SECOND));
+    Assertions.assertEquals(0, table.tryAcquire(1, now + 5 * SECOND));
+  }
+
+  @Test
+  void testExpiredSlotsAreReused() {
+    var table = new RateLimitTable(1, 1, TimeUnit.SECONDS, 8);
+    var now = System.nanoTime();
+    for (long key = 0; key < 1000; key++) {
+      Assertions.assertEquals(0, table.tryAcquire(key, now + key * SECOND));
+    }
+    Assertions.assertNotEquals(0, table.tryAcquire(999, now + 999 * SECOND));
+  }
+
+  @Test
+  void testFullStripesKeepLimiting() {
+    var table = new RateLimitTable(1, 1, TimeUnit.MINUTES, 8);
+    var now = System.nanoTime();
+    for (long key = 0; key < 100; key++) {
+      table.tryAcquire(key, now);
+    }
+    // No key gets a second permit within the period, whether it's still in the table or not
+    for (long key = 0; key < 100; key++) {
+      Assertions.assertNotEquals(0, table.tryAcquire(key, now + SECOND));
+    }
+  }
+
+  @Test
+  void testReleaseRefundsStackedLimits() {
+    // A command limited to 2 uses per user and 1 use per channel
+    var user = new RateLimitTable(2, 1, TimeUnit.MINUTES, 64);
+    var channel = new RateLimitTable(1, 1, TimeUnit.MINUTES, 64);
+    var now = System.nanoTime();
+    Assertions.assertEquals(0, user.tryAcquire(1, now));
+    Assertions.assertEquals(0, channel.tryAcquire(2, now));
+
+    // Denied by the channel limit, the user permit is given back
+    Assertions.assertEquals(0, user.tryAcquire(1, now + SECOND));
+    Assertions.assertNotEquals(0, channel.tryAcquire(2, now + SECOND));
+    user.release(1);
+
+    Assertions.assertEquals(0, user.tryAcquire(1, now + 2 * SECOND));
+    Assertions.assertNotEquals(0, user.tryAcquire(1, now + 3 * SECOND));
+    // Unknown keys have nothing to give back
+    user.release(3);
+    Assertions.assertEquals(0, user.tryAcquire(3, now));
+  }
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright 2023 juanmuscaria
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.juanmuscaria.microcord.testing;
+
+import io.micronaut.core.annotation.NonNull;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import net.dv8tion.jda.api.utils.data.DataObject;
+
+/**
+ * A fake discord, a {@link FakeGateway} and a {@link FakeRest} sharing the same bot user. Start the
+ * application with {@link #properties()} to point microcord to it:
+ *
+ * <pre>{@code
+ * try (var discord = FakeDiscord.start(4);
+ *     var context = ApplicationContext.run(discord.properties())) {
+ *   context.getBean(ShardManagerContainer.class).start();
+ *   discord.getGateway().awaitIdentified(0, 10, TimeUnit.SECONDS);
+ * }
+ * }</pre>
+ */
+public final class FakeDiscord implements AutoCloseable {
+  /** Id of the fake bot user and application. */
+  public static final long APPLICATION_ID = 1000000000000000001L;
+
+  private final FakeGateway gateway;
+  private final FakeRest rest;
+  private final int shardsTotal;
+
+  private FakeDiscord(FakeGateway gateway, FakeRest rest, int shardsTotal) {
+    this.gateway = gateway;
+    this.rest = rest;
+    this.shardsTotal = shardsTotal;
+  }
+
+  /**
+   * Starts a fake discord on the loopback interface.
+   *
+   * @param shardsTotal the amount of shards the bot uses.
+   * @return the started fake discord.
+   * @throws IOException if the servers could not be bound.
+   */
+  @NonNull public static FakeDiscord start(int shardsTotal) throws IOException {
+    if (shardsTotal < 1) {
+      throw new IllegalArgumentException("At least one shard is required");
+    }
+    DataObject selfUser =
+        DataObject.empty()
+            .put("id", Long.toUnsignedString(APPLICATION_ID))
+            .put("username", "microcord")
+            .put("discriminator", "0000")
+            .put("global_name", null)
+            .put("avatar", null)
+            .put("bot", true)
+            .put("flags", 0)
+            .put("verified", true)
+            .put("mfa_enabled", false);
+    FakeGateway gateway = new FakeGateway(selfUser, APPLICATION_ID, shardsTotal);
+    try {
+      return new FakeDiscord(
+          gateway,
+          new FakeRest(selfUser, APPLICATION_ID, shardsTotal, gateway.getUrl()),
+          shardsTotal);
+    } catch (IOException | RuntimeException e) {
+      gateway.close();
+      throw e;
+    }
+  }
+
+  @NonNull public FakeGateway getGateway() {
+    return gateway;
+  }
+
+  @NonNull public FakeRest getRest() {
+    return rest;
+  }
+
+  /**
+   * Retrieves the configuration pointing microcord to this fake discord, with every shard managed
+   * by the application.
+   *
+   * @return the application properties.
+   */
+  @NonNull public Map<String, Object> properties() {
+    Map<String, Object> properties = new HashMap<>();
+    properties.put("discord.token", "fake-token");
+    properties.put("discord.gateway-url", gateway.getUrl());
+    properties.put("discord.rest-url", rest.getUrl());
+    properties.put("discord.compression", "NONE");
+    properties.put("discord.shards-total", shardsTotal);
+    return properties;
+  }
+
+  @Override
+  public void close() throws IOException {
+    rest.close();
+    gateway.close();
+  }
+}
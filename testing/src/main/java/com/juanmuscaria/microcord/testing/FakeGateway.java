@@ -0,0 +1,270 @@
+/*
+ * Copyright 2023 juanmuscaria
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.juanmuscaria.microcord.testing;
+
+import com.juanmuscaria.microcord.gateway.GatewayConnection;
+import com.juanmuscaria.microcord.utils.ThreadFactories;
+import io.micronaut.core.annotation.NonNull;
+import io.micronaut.core.annotation.Nullable;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import net.dv8tion.jda.api.utils.data.DataArray;
+import net.dv8tion.jda.api.utils.data.DataObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Fake discord gateway. Shards are sent a HELLO on connection, a READY without guilds once they
+ * identify and a RESUMED if they resume a known session, heartbeats are acknowledged. Anything
+ * else must be scripted with {@link #dispatch(int, String, DataObject)}.
+ */
+public final class FakeGateway implements AutoCloseable {
+  private static final Logger logger = LoggerFactory.getLogger(FakeGateway.class);
+  private static final int HEARTBEAT_INTERVAL = 41250;
+  private final DataObject selfUser;
+  private final long applicationId;
+  private final int shardsTotal;
+  private final ServerSocket server;
+  private final ExecutorService threads =
+      Executors.newCachedThreadPool(ThreadFactories.platform("fake-gateway-", true));
+  private final Map<Integer, Session> sessionsByShard = new ConcurrentHashMap<>();
+  private final Map<String, Session> sessionsById = new ConcurrentHashMap<>();
+  private final Map<Integer, CountDownLatch> identified = new ConcurrentHashMap<>();
+  private final AtomicInteger identifyCount = new AtomicInteger();
+  private final AtomicInteger resumeCount = new AtomicInteger();
+
+  FakeGateway(DataObject selfUser, long applicationId, int shardsTotal) throws IOException {
+    this.selfUser = selfUser;
+    this.applicationId = applicationId;
+    this.shardsTotal = shardsTotal;
+    this.server = new ServerSocket(0, 1024, InetAddress.getLoopbackAddress());
+    threads.execute(this::accept);
+  }
+
+  /**
+   * Retrieves the url shards must connect to.
+   *
+   * @return the websocket url of this gateway.
+   */
+  @NonNull public String getUrl() {
+    return "ws://" + server.getInetAddress().getHostAddress() + ':' + server.getLocalPort() + '/';
+  }
+
+  /**
+   * Waits for a shard to identify.
+   *
+   * @param shardId the shard id.
+   * @param timeout the maximum time to wait.
+   * @param unit the unit of the timeout.
+   * @return whether the shard identified within the timeout.
+   * @throws InterruptedException if interrupted while waiting.
+   */
+  public boolean awaitIdentified(int shardId, long timeout, @NonNull TimeUnit unit)
+      throws InterruptedException {
+    return latchOf(shardId).await(timeout, unit);
+  }
+
+  /**
+   * Retrieves how many times shards identified, including identifications after an invalid
+   * session.
+   *
+   * @return the amount of identifications.
+   */
+  public int getIdentifyCount() {
+    return identifyCount.get();
+  }
+
+  /**
+   * Retrieves how many sessions were resumed.
+   *
+   * @return the amount of resumed sessions.
+   */
+  public int getResumeCount() {
+    return resumeCount.get();
+  }
+
+  /**
+   * Sends a dispatch to the current session of a shard.
+   *
+   * @param shardId the shard id.
+   * @param type the dispatch type, such as {@code INTERACTION_CREATE}.
+   * @param data the dispatch data.
+   * @throws IllegalStateException if the shard is not connected.
+   * @throws IOException if the dispatch could not be sent.
+   */
+  public void dispatch(int shardId, @NonNull String type, @NonNull DataObject data)
+      throws IOException {
+    session(shardId).dispatch(type, data);
+  }
+
+  /**
+   * Closes the connection of a shard, JDA resumes the session if the close code allows it.
+   *
+   * @param shardId the shard id.
+   * @param code the close code, 4000 lets the shard resume.
+   */
+  public void disconnect(int shardId, int code) {
+    Session session = sessionsByShard.get(shardId);
+    if (session != null && session.connection != null) {
+      session.connection.close(code);
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    threads.shutdownNow();
+    server.close();
+    for (Session session : sessionsByShard.values()) {
+      if (session.connection != null) {
+        session.connection.close();
+      }
+    }
+  }
+
+  private Session session(int shardId) {
+    Session session = sessionsByShard.get(shardId);
+    if (session == null || session.connection == null) {
+      throw new IllegalStateException("Shard " + shardId + " is not connected");
+    }
+    return session;
+  }
+
+  private CountDownLatch latchOf(int shardId) {
+    return identified.computeIfAbsent(shardId, id -> new CountDownLatch(1));
+  }
+
+  private void accept() {
+    while (!server.isClosed()) {
+      try {
+        Socket socket = server.accept();
+        threads.execute(() -> serve(socket));
+      } catch (IOException e) {
+        if (!server.isClosed()) {
+          logger.error("Fake gateway failed to accept a connection", e);
+        }
+      }
+    }
+  }
+
+  private void serve(Socket socket) {
+    try (GatewayConnection connection = new GatewayConnection(socket)) {
+      send(connection, 10, DataObject.empty().put("heartbeat_interval", HEARTBEAT_INTERVAL));
+      for (byte[] frame = connection.read(); frame != null; frame = connection.read()) {
+        DataObject message = DataObject.fromJson(frame);
+        switch (message.getInt("op", -1)) {
+          case 1:
+            connection.send(DataObject.empty().put("op", 11).toJson());
+            break;
+          case 2:
+            identify(connection, message.getObject("d"));
+            break;
+          case 6:
+            resume(connection, message.getObject("d"));
+            break;
+          default:
+            logger.debug("Ignoring gateway message {}", message);
+        }
+      }
+    } catch (IOException e) {
+      logger.debug("Fake gateway connection closed", e);
+    }
+  }
+
+  private void identify(GatewayConnection connection, DataObject identify) throws IOException {
+    DataArray shard = identify.optArray("shard").orElse(null);
+    int shardId = shard != null ? shard.getInt(0) : 0;
+    Session session = new Session(shardId, UUID.randomUUID().toString().replace("-", ""));
+    session.connection = connection;
+    Session previous = sessionsByShard.put(shardId, session);
+    if (previous != null) {
+      sessionsById.remove(previous.id);
+    }
+    sessionsById.put(session.id, session);
+    identifyCount.incrementAndGet();
+
+    String applicationIdString = Long.toUnsignedString(applicationId);
+    session.dispatch(
+        "READY",
+        DataObject.empty()
+            .put("v", 10)
+            .put("user", selfUser)
+            .put("guilds", DataArray.empty())
+            .put("private_channels", DataArray.empty())
+            .put("relationships", DataArray.empty())
+            .put("presences", DataArray.empty())
+            .put("session_id", session.id)
+            .put("resume_gateway_url", getUrl())
+            .put("shard", DataArray.empty().add(shardId).add(shardsTotal))
+            .put("application", DataObject.empty().put("id", applicationIdString).put("flags", 0)));
+    latchOf(shardId).countDown();
+  }
+
+  private void resume(GatewayConnection connection, DataObject resume) throws IOException {
+    Session session = sessionsById.get(resume.getString("session_id", ""));
+    if (session == null) {
+      send(connection, 9, false);
+      return;
+    }
+    session.connection = connection;
+    resumeCount.incrementAndGet();
+    session.dispatch("RESUMED", DataObject.empty());
+  }
+
+  private static void send(GatewayConnection connection, int op, @Nullable Object data)
+      throws IOException {
+    connection.send(DataObject.empty().put("op", op).put("d", data).toJson());
+  }
+
+  /** A shard session, resumable while it is the latest session of the shard. */
+  private static final class Session {
+    private final int shardId;
+    private final String id;
+    private final AtomicInteger sequence = new AtomicInteger();
+    private volatile GatewayConnection connection;
+
+    private Session(int shardId, String id) {
+      this.shardId = shardId;
+      this.id = id;
+    }
+
+    private void dispatch(String type, DataObject data) throws IOException {
+      GatewayConnection current = connection;
+      if (current == null) {
+        throw new IllegalStateException("Shard " + shardId + " is not connected");
+      }
+      // Sequence numbers must be sent in order
+      synchronized (this) {
+        current.send(
+            DataObject.empty()
+                .put("op", 0)
+                .put("t", type)
+                .put("s", sequence.incrementAndGet())
+                .put("d", data)
+                .toJson());
+      }
+    }
+  }
+}
@@ -0,0 +1,317 @@
+/*
+ * Copyright 2023 juanmuscaria
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.juanmuscaria.microcord.testing;
+
+import com.juanmuscaria.microcord.utils.ThreadFactories;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.micronaut.core.annotation.NonNull;
+import io.micronaut.core.annotation.Nullable;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+import net.dv8tion.jda.api.utils.data.DataArray;
+import net.dv8tion.jda.api.utils.data.DataObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Fake discord REST API. Global and guild application commands are stored in memory, interaction
+ * callbacks are accepted and every request is recorded, unknown routes answer 404.
+ */
+public final class FakeRest implements AutoCloseable {
+  private static final Logger logger = LoggerFactory.getLogger(FakeRest.class);
+  private static final String BASE_PATH = "/api/v10/";
+  private static final String GLOBAL = "global";
+  private final DataObject selfUser;
+  private final String applicationId;
+  private final int shardsTotal;
+  private final String gatewayUrl;
+  private final HttpServer server;
+  private final ExecutorService threads =
+      Executors.newCachedThreadPool(ThreadFactories.platform("fake-rest-", true));
+  private final List<Request> requests = new ArrayList<>();
+  // Scope (global or guild id) -> command key -> command
+  private final Map<String, Map<String, DataObject>> commands = new ConcurrentHashMap<>();
+  private final AtomicLong nextId = new AtomicLong(1 << 22);
+
+  FakeRest(DataObject selfUser, long applicationId, int shardsTotal, String gatewayUrl)
+      throws IOException {
+    this.selfUser = selfUser;
+    this.applicationId = Long.toUnsignedString(applicationId);
+    this.shardsTotal = shardsTotal;
+    this.gatewayUrl = gatewayUrl;
+    this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+    server.createContext(BASE_PATH, this::handle);
+    server.setExecutor(threads);
+    server.start();
+  }
+
+  /**
+   * Retrieves the base url JDA must use, including the API version.
+   *
+   * @return the base url of this API.
+   */
+  @NonNull public String getUrl() {
+    return "http://"
+        + server.getAddress().getAddress().getHostAddress()
+        + ':'
+        + server.getAddress().getPort()
+        + BASE_PATH;
+  }
+
+  /**
+   * Retrieves the commands currently registered.
+   *
+   * @param guildId the guild, or null for the global commands.
+   * @return the registered commands.
+   */
+  @NonNull public List<DataObject> getCommands(@Nullable Long guildId) {
+    Map<String, DataObject> scope = commands.get(guildId == null ? GLOBAL : guildId.toString());
+    if (scope == null) {
+      return Collections.emptyList();
+    }
+    synchronized (scope) {
+      return new ArrayList<>(scope.values());
+    }
+  }
+
+  /**
+   * Retrieves every request received so far.
+   *
+   * @return the received requests, in order.
+   */
+  @NonNull public synchronized List<Request> getRequests() {
+    return new ArrayList<>(requests);
+  }
+
+  /**
+   * Waits for a matching request, including requests received before this call.
+   *
+   * @param filter the request filter.
+   * @param timeout the maximum time to wait.
+   * @param unit the unit of the timeout.
+   * @return the first matching request, or null if none was received within the timeout.
+   * @throws InterruptedException if interrupted while waiting.
+   */
+  @Nullable public synchronized Request awaitRequest(
+      @NonNull Predicate<Request> filter, long timeout, @NonNull TimeUnit unit)
+      throws InterruptedException {
+    long deadline = System.nanoTime() + unit.toNanos(timeout);
+    int checked = 0;
+    while (true) {
+      for (; checked < requests.size(); checked++) {
+        if (filter.test(requests.get(checked))) {
+          return requests.get(checked);
+        }
+      }
+      long remaining = deadline - System.nanoTime();
+      if (remaining <= 0) {
+        return null;
+      }
+      TimeUnit.NANOSECONDS.timedWait(this, remaining);
+    }
+  }
+
+  @Override
+  public void close() {
+    server.stop(0);
+    threads.shutdownNow();
+  }
+
+  private void handle(HttpExchange exchange) throws IOException {
+    try {
+      String path = exchange.getRequestURI().getPath().substring(BASE_PATH.length());
+      String method = exchange.getRequestMethod();
+      String body = read(exchange.getRequestBody());
+      synchronized (this) {
+        requests.add(new Request(method, path, body));
+        notifyAll();
+      }
+      route(exchange, method, path.split("/"), body);
+    } catch (RuntimeException e) {
+      logger.error("Fake REST request failed", e);
+      respond(exchange, 500, DataObject.empty().put("message", e.toString()).put("code", 0));
+    } finally {
+      exchange.close();
+    }
+  }
+
+  private void route(HttpExchange exchange, String method, String[] path, String body)
+      throws IOException {
+    String route = method + ' ' + path[0];
+    if (route.equals("GET gateway") && path.length == 2 && path[1].equals("bot")) {
+      respond(
+          exchange,
+          200,
+          DataObject.empty()
+              .put("url", gatewayUrl)
+              .put("shards", shardsTotal)
+              .put(
+                  "session_start_limit",
+                  DataObject.empty()
+                      .put("total", 1000)
+                      .put("remaining", 1000)
+                      .put("reset_after", 0)
+                      .put("max_concurrency", shardsTotal)));
+    } else if (route.equals("GET gateway")) {
+      respond(exchange, 200, DataObject.empty().put("url", gatewayUrl));
+    } else if (route.equals("GET users") && path.length == 2 && path[1].equals("@me")) {
+      respond(exchange, 200, selfUser);
+    } else if (path[0].equals("applications") && path.length >= 3) {
+      routeCommands(exchange, method, path, body);
+    } else if (route.equals("POST interactions") && path.length == 4) {
+      respond(exchange, 204, null);
+    } else {
+      notFound(exchange);
+    }
+  }
+
+  // applications/{app}/commands[/{id}] and applications/{app}/guilds/{guild}/commands[/{id}]
+  private void routeCommands(HttpExchange exchange, String method, String[] path, String body)
+      throws IOException {
+    String guildId = null;
+    int commandsIndex = 2;
+    if (path[2].equals("guilds") && path.length >= 5) {
+      guildId = path[3];
+      commandsIndex = 4;
+    }
+    if (!path[commandsIndex].equals("commands") || path.length > commandsIndex + 2) {
+      notFound(exchange);
+      return;
+    }
+    String commandId = path.length == commandsIndex + 2 ? path[commandsIndex + 1] : null;
+    Map<String, DataObject> scope =
+        commands.computeIfAbsent(
+            guildId == null ? GLOBAL : guildId, key -> new LinkedHashMap<String, DataObject>());
+    synchronized (scope) {
+      if (commandId == null && method.equals("GET")) {
+        respond(exchange, 200, DataArray.fromCollection(scope.values()));
+      } else if (commandId == null && method.equals("PUT")) {
+        DataArray updated = DataArray.fromJson(body);
+        Map<String, DataObject> replaced = new LinkedHashMap<>();
+        for (int i = 0; i < updated.length(); i++) {
+          DataObject command = registered(scope, updated.getObject(i), guildId);
+          replaced.put(keyOf(command), command);
+        }
+        scope.clear();
+        scope.putAll(replaced);
+        respond(exchange, 200, DataArray.fromCollection(replaced.values()));
+      } else if (commandId == null && method.equals("POST")) {
+        DataObject command = registered(scope, DataObject.fromJson(body), guildId);
+        int status = scope.put(keyOf(command), command) == null ? 201 : 200;
+        respond(exchange, status, command);
+      } else if (commandId != null && method.equals("DELETE")) {
+        scope.values().removeIf(command -> command.getString("id").equals(commandId));
+        respond(exchange, 204, null);
+      } else {
+        notFound(exchange);
+      }
+    }
+  }
+
+  // Keeps the id of a command with the same type and name, as discord does
+  private DataObject registered(
+      Map<String, DataObject> scope, DataObject command, @Nullable String guildId) {
+    if (!command.hasKey("type")) {
+      command.put("type", 1);
+    }
+    DataObject existing = scope.get(keyOf(command));
+    String id =
+        existing != null ? existing.getString("id") : Long.toString(nextId.getAndIncrement());
+    command.put("id", id).put("application_id", applicationId).put("version", id);
+    if (guildId != null) {
+      command.put("guild_id", guildId);
+    }
+    return command;
+  }
+
+  private static String keyOf(DataObject command) {
+    return command.getInt("type", 1) + ":" + command.getString("name");
+  }
+
+  private static void notFound(HttpExchange exchange) throws IOException {
+    respond(exchange, 404, DataObject.empty().put("message", "404: Not Found").put("code", 0));
+  }
+
+  private static void respond(HttpExchange exchange, int status, @Nullable Object body)
+      throws IOException {
+    if (body == null) {
+      exchange.sendResponseHeaders(status, -1);
+      return;
+    }
+    byte[] bytes = body.toString().getBytes(StandardCharsets.UTF_8);
+    exchange.getResponseHeaders().set("Content-Type", "application/json");
+    exchange.sendResponseHeaders(status, bytes.length);
+    try (OutputStream output = exchange.getResponseBody()) {
+      output.write(bytes);
+    }
+  }
+
+  private static String read(InputStream input) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    byte[] buffer = new byte[8192];
+    for (int read = input.read(buffer); read >= 0; read = input.read(buffer)) {
+      bytes.write(buffer, 0, read);
+    }
+    return new String(bytes.toByteArray(), StandardCharsets.UTF_8);
+  }
+
+  /** A request received by the fake API, the path is relative to the base url. */
+  public static final class Request {
+    private final String method;
+    private final String path;
+    private final String body;
+
+    Request(String method, String path, String body) {
+      this.method = method;
+      this.path = path;
+      this.body = body;
+    }
+
+    @NonNull public String getMethod() {
+      return method;
+    }
+
+    @NonNull public String getPath() {
+      return path;
+    }
+
+    @NonNull public String getBody() {
+      return body;
+    }
+
+    @Override
+    public String toString() {
+      return method + ' ' + path;
+    }
+  }
+}
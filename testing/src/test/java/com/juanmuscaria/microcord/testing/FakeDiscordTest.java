@@ -0,0 +1,187 @@
+/*
+ * Copyright 2023 juanmuscaria
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.juanmuscaria.microcord.testing;
+
+import com.juanmuscaria.microcord.ShardManagerContainer;
+import com.juanmuscaria.microcord.ShardRestartEvent;
+import io.micronaut.context.ApplicationContext;
+import io.micronaut.context.event.ApplicationEventListener;
+import jakarta.inject.Singleton;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import net.dv8tion.jda.api.sharding.ShardManager;
+import net.dv8tion.jda.api.utils.data.DataArray;
+import net.dv8tion.jda.api.utils.data.DataObject;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class FakeDiscordTest {
+  private static final int SHARDS = 4;
+
+  @Test
+  void testShardsConnectAndSynchronizeCommands() throws Exception {
+    try (FakeDiscord discord = FakeDiscord.start(SHARDS);
+        ApplicationContext context = ApplicationContext.run(discord.properties())) {
+      context.getBean(ShardManagerContainer.class).start();
+      for (int shard = 0; shard < SHARDS; shard++) {
+        Assertions.assertTrue(discord.getGateway().awaitIdentified(shard, 30, TimeUnit.SECONDS));
+      }
+      Assertions.assertNotNull(awaitCommandUpdate(discord));
+      List<String> names = new ArrayList<>();
+      for (DataObject command : discord.getRest().getCommands(null)) {
+        names.add(command.getString("name"));
+      }
+      Assertions.assertEquals(1, names.size());
+      Assertions.assertEquals("ping", names.get(0));
+    }
+  }
+
+  @Test
+  void testInteractionCallback() throws Exception {
+    try (FakeDiscord discord = FakeDiscord.start(1);
+        ApplicationContext context = ApplicationContext.run(discord.properties())) {
+      context.getBean(ShardManagerContainer.class).start();
+      Assertions.assertNotNull(awaitCommandUpdate(discord));
+      String commandId = discord.getRest().getCommands(null).get(0).getString("id");
+
+      discord.getGateway().dispatch(0, "INTERACTION_CREATE", slashInteraction(commandId));
+      String callbackPath = "interactions/2000/interaction-token/callback";
+      FakeRest.Request callback =
+          discord
+              .getRest()
+              .awaitRequest(
+                  request -> request.getPath().equals(callbackPath), 30, TimeUnit.SECONDS);
+      Assertions.assertNotNull(callback);
+      DataObject response = DataObject.fromJson(callback.getBody());
+      Assertions.assertEquals("pong", response.getObject("data").getString("content"));
+    }
+  }
+
+  @Test
+  void testResume() throws Exception {
+    try (FakeDiscord discord = FakeDiscord.start(1);
+        ApplicationContext context = ApplicationContext.run(discord.properties())) {
+      context.getBean(ShardManagerContainer.class).start();
+      Assertions.assertTrue(discord.getGateway().awaitIdentified(0, 30, TimeUnit.SECONDS));
+
+      discord.getGateway().disconnect(0, 4000);
+      long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+      while (discord.getGateway().getResumeCount() == 0 && System.nanoTime() < deadline) {
+        Thread.sleep(50);
+      }
+      Assertions.assertEquals(1, discord.getGateway().getResumeCount());
+      Assertions.assertEquals(1, discord.getGateway().getIdentifyCount());
+    }
+  }
+
+  @Test
+  void testRefreshReconnectsShards() throws Exception {
+    try (FakeDiscord discord = FakeDiscord.start(2);
+        ApplicationContext context = ApplicationContext.run(discord.properties())) {
+      ShardManagerContainer container = context.getBean(ShardManagerContainer.class);
+      container.start();
+      Assertions.assertTrue(discord.getGateway().awaitIdentified(1, 30, TimeUnit.SECONDS));
+
+      container.refresh();
+      long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+      while (discord.getGateway().getIdentifyCount() < 4 && System.nanoTime() < deadline) {
+        Thread.sleep(50);
+      }
+      Assertions.assertEquals(4, discord.getGateway().getIdentifyCount());
+    }
+  }
+
+  @Test
+  void testRollingRestartKeepsShardManager() throws Exception {
+    try (FakeDiscord discord = FakeDiscord.start(2)) {
+      Map<String, Object> properties = new HashMap<>(discord.properties());
+      properties.put("discord.restart.mode", "ROLLING");
+      properties.put("discord.restart.batch-size", 2);
+      try (ApplicationContext context = ApplicationContext.run(properties)) {
+        ShardManagerContainer container = context.getBean(ShardManagerContainer.class);
+        container.start();
+        Assertions.assertTrue(discord.getGateway().awaitIdentified(1, 30, TimeUnit.SECONDS));
+        ShardManager shardManager = container.getShardManager();
+
+        container.restartShards().get(60, TimeUnit.SECONDS);
+        Assertions.assertSame(shardManager, container.getShardManager());
+        Assertions.assertEquals(4, discord.getGateway().getIdentifyCount());
+        Assertions.assertEquals(
+            Arrays.asList(
+                ShardRestartEvent.Phase.STOPPING,
+                ShardRestartEvent.Phase.STOPPING,
+                ShardRestartEvent.Phase.CONNECTED,
+                ShardRestartEvent.Phase.CONNECTED),
+            context.getBean(RestartListener.class).phases);
+      }
+    }
+  }
+
+  private static FakeRest.Request awaitCommandUpdate(FakeDiscord discord)
+      throws InterruptedException {
+    return discord
+        .getRest()
+        .awaitRequest(
+            request -> request.getMethod().equals("PUT") && request.getPath().endsWith("/commands"),
+            30,
+            TimeUnit.SECONDS);
+  }
+
+  private static DataObject slashInteraction(String commandId) {
+    DataObject user =
+        DataObject.empty()
+            .put("id", "4000")
+            .put("username", "tester")
+            .put("discriminator", "0000")
+            .put("global_name", null)
+            .put("avatar", null);
+    return DataObject.empty()
+        .put("id", "2000")
+        .put("application_id", Long.toUnsignedString(FakeDiscord.APPLICATION_ID))
+        .put("type", 2)
+        .put("token", "interaction-token")
+        .put("version", 1)
+        .put("locale", "en-US")
+        .put("app_permissions", "0")
+        .put("entitlements", DataArray.empty())
+        .put("channel_id", "3000")
+        .put(
+            "channel",
+            DataObject.empty()
+                .put("id", "3000")
+                .put("type", 1)
+                .put("last_message_id", null)
+                .put("flags", 0)
+                .put("recipients", DataArray.empty().add(user)))
+        .put("user", user)
+        .put("data", DataObject.empty().put("id", commandId).put("name", "ping").put("type", 1));
+  }
+
+  @Singleton
+  static class RestartListener implements ApplicationEventListener<ShardRestartEvent> {
+    private final List<ShardRestartEvent.Phase> phases = new CopyOnWriteArrayList<>();
+
+    @Override
+    public void onApplicationEvent(ShardRestartEvent event) {
+      phases.add(event.getPhase());
+    }
+  }
+}
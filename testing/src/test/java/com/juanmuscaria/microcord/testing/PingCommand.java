@@ -0,0 +1,28 @@
+/*
+ * Copyright 2023 juanmuscaria
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.juanmuscaria.microcord.testing;
+
+import com.juanmuscaria.microcord.annotations.SlashCommand;
+import com.juanmuscaria.microcord.annotations.SlashCommand.OnCommand;
+import net.dv8tion.jda.api.events.interaction.command.SlashCommandInteractionEvent;
+
+@SlashCommand("ping")
+public class PingCommand {
+  @OnCommand
+  public void ping(SlashCommandInteractionEvent event) {
+    event.reply("pong").queue();
+  }
+}